@@ -21,6 +21,7 @@ import java.util.stream.StreamSupport;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.werum.example.course.dao.Course;
 import com.werum.example.course.dao.CourseRepository;
@@ -35,11 +36,13 @@ public class CourseService {
     @Autowired
     private CourseServiceLogger courseServiceLogger;
 
+    @Transactional(readOnly = true)
     public List<Course> getAll() {
         courseServiceLogger.logCourseCall();
         return StreamSupport.stream(courseRepository.findAll().spliterator(), false).collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public Course getCourse(String name) {
         return courseRepository.findByName(name);
     }
@@ -20,6 +20,7 @@ import org.springframework.context.annotation.ComponentScan;
 import com.werum.example.course.dao.CourseDaoModule;
 import com.werum.springmodules.definition.ModuleDefinition;
 import com.werum.springmodules.definition.ModuleConfiguration;
+import com.werum.springmodules.definition.ModulePersistence;
 
 /**
  * Component definition for service layer of course domain
@@ -30,7 +31,7 @@ public class CourseServiceModule extends ModuleDefinition {
         super(CourseServiceComponentConfiguration.class, CourseDaoModule.class);
     }
 
-    @ModuleConfiguration
+    @ModuleConfiguration(exports = CourseService.class, persistence = @ModulePersistence(replicaReads = true))
     @ComponentScan
     static class CourseServiceComponentConfiguration {
 
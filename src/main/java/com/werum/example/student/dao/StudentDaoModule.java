@@ -22,9 +22,12 @@ import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import com.werum.example.course.dao.CourseDaoModule;
 import com.werum.springmodules.definition.ModuleDefinition;
 import com.werum.springmodules.definition.ModuleConfiguration;
+import com.werum.springmodules.definition.ModulePersistence;
 
 /**
  * Component definition for dao layer of student domain
+ *
+ * Students can be spread across several databases by their matrikel number, see {@link ModulePersistence#shards()}.
  */
 public class StudentDaoModule extends ModuleDefinition {
 
@@ -32,7 +35,7 @@ public class StudentDaoModule extends ModuleDefinition {
         super(StudentDaoComponentConfiguration.class, CourseDaoModule.class);
     }
 
-    @ModuleConfiguration
+    @ModuleConfiguration(persistence = @ModulePersistence(shardKey = "matrikelNo"))
     @ComponentScan
     @EnableJpaRepositories
     @EntityScan
@@ -15,6 +15,9 @@
  */
 package com.werum.example.student.dao;
 
+import java.util.List;
+
+import org.springframework.data.domain.Sort;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.Repository;
 
@@ -24,4 +27,10 @@ import org.springframework.data.repository.Repository;
  */
 public interface StudentRepository extends CrudRepository<Student, Long> {
     Student findByMatrikelNo(String matrikelNo);
+
+    long countByCourseId(long courseId);
+
+    List<Student> findByCourseIdOrderByNameDesc(long courseId);
+
+    List<Student> findByCourseId(long courseId, Sort sort);
 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.actuator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.context.ApplicationContext;
+
+import com.werum.springmodules.definition.ResolvedModules;
+import com.werum.springmodules.definition.ResolvedModules.ResolvedModule;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * {@link MeterBinder} publishing the bean count of each module as gauge <tt>spring.modules.beans</tt> and its
+ * initialization time as time gauge <tt>spring.modules.initialization</tt>. The initialization time is spent once, so
+ * it is reported as current value instead of as timer sample. Both are tagged with the module name and whether its
+ * configuration has been replaced.
+ */
+public class ModuleMetrics implements MeterBinder {
+    private final ApplicationContext context;
+
+    public ModuleMetrics(ApplicationContext context) {
+        this.context = context;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        ResolvedModules resolvedModules = ResolvedModules.get(context.getAutowireCapableBeanFactory());
+        if (resolvedModules == null) {
+            return;
+        }
+
+        for (ResolvedModule module : resolvedModules.getModules()) {
+            Gauge.builder("spring.modules.beans", module, m -> m.getBeanNames().size()).tags(tags(module))
+                    .description("number of beans of the module").register(registry);
+            TimeGauge.builder("spring.modules.initialization", module, TimeUnit.NANOSECONDS,
+                    ResolvedModule::getInitializationNanos).tags(tags(module))
+                    .description("time spent creating the beans of the module").register(registry);
+        }
+    }
+
+    private Tags tags(ResolvedModule module) {
+        return Tags.of("module", module.getName(), "replaced", String.valueOf(module.isReplaced()));
+    }
+}
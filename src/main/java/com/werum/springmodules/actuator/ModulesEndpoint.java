@@ -0,0 +1,140 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.actuator;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.context.ApplicationContext;
+
+import com.werum.springmodules.definition.ResolvedModules;
+import com.werum.springmodules.definition.ResolvedModules.ResolvedModule;
+
+/**
+ * {@link Endpoint} exposing the modules resolved for the application context and its ancestors: their dependencies,
+ * the configuration imported for them (and which configuration it replaced), their bean count and their
+ * initialization time.
+ */
+@Endpoint(id = "modules")
+public class ModulesEndpoint {
+    private final ApplicationContext context;
+
+    public ModulesEndpoint(ApplicationContext context) {
+        this.context = context;
+    }
+
+    @ReadOperation
+    public ApplicationModules modules() {
+        Map<String, ContextModules> contexts = new LinkedHashMap<>();
+        for (ApplicationContext current = context; current != null; current = current.getParent()) {
+            ResolvedModules resolvedModules = ResolvedModules.get(current.getAutowireCapableBeanFactory());
+            if (resolvedModules != null) {
+                contexts.put(current.getId(), new ContextModules(resolvedModules,
+                        current.getParent() == null ? null : current.getParent().getId()));
+            }
+        }
+
+        return new ApplicationModules(contexts);
+    }
+
+    /**
+     * Description of the modules of an application, primarily intended for serialization to JSON
+     */
+    public static final class ApplicationModules {
+        private final Map<String, ContextModules> contexts;
+
+        private ApplicationModules(Map<String, ContextModules> contexts) {
+            this.contexts = contexts;
+        }
+
+        public Map<String, ContextModules> getContexts() {
+            return contexts;
+        }
+    }
+
+    /**
+     * Description of the modules of an application context, primarily intended for serialization to JSON
+     */
+    public static final class ContextModules {
+        private final Map<String, ModuleDescriptor> modules = new LinkedHashMap<>();
+
+        private final String parentId;
+
+        private ContextModules(ResolvedModules resolvedModules, String parentId) {
+            resolvedModules.getModules().forEach(module -> modules.put(module.getName(), new ModuleDescriptor(module)));
+            this.parentId = parentId;
+        }
+
+        public Map<String, ModuleDescriptor> getModules() {
+            return modules;
+        }
+
+        public String getParentId() {
+            return parentId;
+        }
+    }
+
+    /**
+     * Description of a module, primarily intended for serialization to JSON
+     */
+    public static final class ModuleDescriptor {
+        private final ResolvedModule module;
+
+        private ModuleDescriptor(ResolvedModule module) {
+            this.module = module;
+        }
+
+        public String getType() {
+            return module.getType().getName();
+        }
+
+        public String getConfiguration() {
+            return module.getConfiguration().getName();
+        }
+
+        /**
+         * @return the configuration declared by the module, if it has been replaced by {@link #getConfiguration()}
+         */
+        public String getReplacedConfiguration() {
+            return module.isReplaced() ? module.getDeclaredConfiguration().getName() : null;
+        }
+
+        public List<String> getDependencies() {
+            return module.getDependencies().stream().map(Class::getName).collect(Collectors.toList());
+        }
+
+        public int getTier() {
+            return module.getTier();
+        }
+
+        public boolean isLazy() {
+            return module.isLazy();
+        }
+
+        public int getBeanCount() {
+            return module.getBeanNames().size();
+        }
+
+        public double getInitializationMillis() {
+            return module.getInitializationNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.actuator;
+
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnEnabledEndpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Auto-configuration for the <tt>modules</tt> actuator endpoint and the module metrics
+ */
+@Configuration
+@ConditionalOnClass(Endpoint.class)
+public class SpringModulesActuatorAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnEnabledEndpoint
+    public ModulesEndpoint modulesEndpoint(ApplicationContext context) {
+        return new ModulesEndpoint(context);
+    }
+
+    @Configuration
+    @ConditionalOnClass(MeterBinder.class)
+    static class ModuleMetricsConfiguration {
+        @Bean
+        @ConditionalOnMissingBean
+        public ModuleMetrics moduleMetrics(ApplicationContext context) {
+            return new ModuleMetrics(context);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.definition;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+
+/**
+ * Tracks the beans in creation on the current thread for a {@link BeanPostProcessor}, from
+ * <tt>postProcessBeforeInstantiation</tt> until <tt>postProcessAfterInitialization</tt>. Nested creations of the beans
+ * a bean depends on are stacked on top of it.
+ *
+ * A failed creation never reaches <tt>postProcessAfterInitialization</tt>. It is dropped when the creation of a bean
+ * below it finishes or, if the outermost creation failed, as soon as the tracker is used again on the same thread. The
+ * thread local is removed whenever no creation is left.
+ *
+ * @param <T> information kept about each creation
+ */
+final class BeanCreationTracker<T> {
+    private final ConfigurableBeanFactory beanFactory;
+
+    private final ThreadLocal<Deque<BeanCreation<T>>> beansInCreation = new ThreadLocal<>();
+
+    BeanCreationTracker(ConfigurableBeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
+    }
+
+    /**
+     * records the start of the creation of the given bean on the current thread
+     */
+    void started(String beanName, T creation) {
+        Deque<BeanCreation<T>> stack = stack();
+        if (stack == null) {
+            stack = new ArrayDeque<>();
+            beansInCreation.set(stack);
+        }
+
+        stack.push(new BeanCreation<>(beanName, creation));
+    }
+
+    /**
+     * records the end of the creation of the given bean on the current thread
+     *
+     * @return the information recorded at the start of the creation or null, if the creation hasn't been tracked (i.e.
+     *         objects created by a FactoryBean)
+     */
+    T finished(String beanName) {
+        Deque<BeanCreation<T>> stack = stack();
+        if (stack == null || stack.stream().noneMatch(creation -> creation.beanName.equals(beanName))) {
+            return null;
+        }
+
+        BeanCreation<T> finished;
+        do {
+            // creations above the finished one failed
+            finished = stack.pop();
+        } while (!finished.beanName.equals(beanName));
+        if (stack.isEmpty()) {
+            beansInCreation.remove();
+        }
+
+        return finished.creation;
+    }
+
+    /**
+     * @return the information about the innermost creation on the current thread or null, if no bean is in creation
+     */
+    T current() {
+        Deque<BeanCreation<T>> stack = stack();
+        return stack == null ? null : stack.peek().creation;
+    }
+
+    /**
+     * @return true, if no bean is in creation on the current thread
+     */
+    boolean isIdle() {
+        return stack() == null;
+    }
+
+    /**
+     * @return the creations of the current thread or null, if there are none
+     */
+    private Deque<BeanCreation<T>> stack() {
+        Deque<BeanCreation<T>> stack = beansInCreation.get();
+        if (stack != null && !beanFactory.isCurrentlyInCreation(stack.peekLast().beanName)) {
+            // the outermost creation failed
+            beansInCreation.remove();
+            return null;
+        }
+
+        return stack;
+    }
+
+    private static final class BeanCreation<T> {
+        private final String beanName;
+
+        private final T creation;
+
+        private BeanCreation(String beanName, T creation) {
+            this.beanName = beanName;
+            this.creation = creation;
+        }
+    }
+}
@@ -20,15 +20,22 @@ import java.lang.annotation.Inherited;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.core.annotation.AnnotationAttributes;
 import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.util.ReflectionUtils;
+
+import com.werum.springmodules.definition.ModuleGraph.Node;
+import com.werum.springmodules.jfr.ModuleEvents;
+import com.werum.springmodules.jfr.ModuleEvents.Span;
 
 /**
  *
@@ -36,31 +43,83 @@ import org.springframework.core.type.AnnotationMetadata;
  * defined in the {@link ModuleDefinition}. However, for tests it might be useful to change the Configuration class for a Module, i.e. to use
  * a mock configuration.
  *
+ * Dependencies are resolved against a {@link ModuleGraph}, so every module is resolved only once, even if it is reachable
+ * on several paths.
+ *
+ * Strategies written against the former per module API may still override
+ * {@link #resolveDependency(ModuleDefinition, AnnotationMetadata, TreePrinter)}; it is called for each root of the
+ * graph then.
+ *
  * TODO: get rid of {@link AlternativeComponentConfigurations} handling here and move to its own Strategy
  */
 public class DependencyResolverStrategy {
+    public Set<Class<?>> resolveDependency(ModuleGraph moduleGraph, AnnotationMetadata importingClassMetadata) {
+        if (overridesModuleApi()) {
+            Set<Class<?>> ret = new LinkedHashSet<>();
+            for (Node root : moduleGraph.getRoots()) {
+                ret.addAll(resolveDependency(BeanUtils.instantiateClass(root.getType()), importingClassMetadata,
+                        new TreePrinter<>(root.toString())));
+            }
+
+            return ret;
+        }
+
+        return resolveGraph(moduleGraph, importingClassMetadata);
+    }
+
+    /**
+     * resolves the configurations of a single module and its dependencies
+     *
+     * @param treePrinter not filled anymore, the dependency tree is rendered from the module graph
+     * @deprecated override {@link #resolveDependency(ModuleGraph, AnnotationMetadata)} instead, this method resolves
+     * each module on its own
+     */
+    @Deprecated
     public Set<Class<?>> resolveDependency(ModuleDefinition bcs, AnnotationMetadata importingClassMetadata,
             TreePrinter<String> treePrinter) {
+        return resolveGraph(ModuleGraph.of(bcs), importingClassMetadata);
+    }
+
+    private boolean overridesModuleApi() {
+        Method method = ReflectionUtils.findMethod(getClass(), "resolveDependency", ModuleDefinition.class,
+                AnnotationMetadata.class, TreePrinter.class);
+        return method != null && method.getDeclaringClass() != DependencyResolverStrategy.class;
+    }
+
+    private Set<Class<?>> resolveGraph(ModuleGraph moduleGraph, AnnotationMetadata importingClassMetadata) {
         Map<Class<? extends ModuleDefinition>, Class<?>> defaultConf2alternativeConfMap = getAlternativeConfigurations(
                 importingClassMetadata);
 
-        Set<Class<?>> ret = new HashSet<>();
-        Class<?> overriddenConfig = defaultConf2alternativeConfMap.get(bcs.getClass());
+        Set<Class<?>> ret = new LinkedHashSet<>();
+        BitSet alreadyHandled = new BitSet(moduleGraph.size());
+        for (Node root : moduleGraph.getRoots()) {
+            resolveDependency(root, defaultConf2alternativeConfMap, alreadyHandled, ret);
+        }
+
+        return ret;
+    }
+
+    private void resolveDependency(Node node,
+            Map<Class<? extends ModuleDefinition>, Class<?>> defaultConf2alternativeConfMap, BitSet alreadyHandled,
+            Set<Class<?>> ret) {
+        if (alreadyHandled.get(node.getIndex())) {
+            return;
+        }
+        alreadyHandled.set(node.getIndex());
+        Span span = ModuleEvents.beginDependencyResolution();
+        int configurationCount = ret.size();
+
+        Class<?> overriddenConfig = defaultConf2alternativeConfMap.get(node.getType());
         if (overriddenConfig != null) {
-            TreePrinter<String> newChild = new TreePrinter<>(overriddenConfig.getSimpleName());
-            treePrinter.getChildren().add(newChild);
             ret.add(overriddenConfig);
         } else {
-            ret.add(bcs.getComponentConfiguration());
-            TreePrinter<String> newChild = new TreePrinter<>(bcs.getComponentConfiguration().getSimpleName());
-            treePrinter.getChildren().add(newChild);
-            for (Class<? extends ModuleDefinition> child : bcs.getDependendComponents()) {
-                ret.addAll(resolveDependency(BeanUtils.instantiateClass(child, ModuleDefinition.class),
-                        importingClassMetadata, newChild));
+            Class<?> componentConfiguration = node.getComponentConfiguration();
+            ret.add(componentConfiguration);
+            for (Node child : node.getDependencies()) {
+                resolveDependency(child, defaultConf2alternativeConfMap, alreadyHandled, ret);
             }
         }
-
-        return ret;
+        span.end(node.toString(), ret.size() - configurationCount);
     }
 
     /**
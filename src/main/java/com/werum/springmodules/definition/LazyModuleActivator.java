@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.definition;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+
+import com.werum.springmodules.definition.ResolvedModules.ResolvedModule;
+
+/**
+ * {@link InstantiationAwareBeanPostProcessor} activating lazy modules (see {@link ModuleDefinition#isLazy()}). When the
+ * first bean of a lazy module has been created, the lazy modules it depends on are activated and then all remaining
+ * beans of the module are created, so the module is initialized in dependency order just like at startup. Activation
+ * is deferred until the outermost bean creation of the current thread has finished, otherwise beans of the module
+ * depending on the bean that triggered the activation would run into a circular reference.
+ *
+ * It is added by {@link ResolvedModules.BeanAssigningPostProcessor} if an application context contains lazy modules.
+ */
+public class LazyModuleActivator implements InstantiationAwareBeanPostProcessor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LazyModuleActivator.class);
+
+    private final ConfigurableListableBeanFactory beanFactory;
+
+    private final ResolvedModules resolvedModules;
+
+    private final Map<ResolvedModule, Long> activationStarts = new ConcurrentHashMap<>();
+
+    private final Set<ResolvedModule> activatedModules = ConcurrentHashMap.newKeySet();
+
+    private final BeanCreationTracker<String> beansInCreation;
+
+    private final ThreadLocal<Set<ResolvedModule>> pendingModules = new ThreadLocal<>();
+
+    LazyModuleActivator(ConfigurableListableBeanFactory beanFactory, ResolvedModules resolvedModules) {
+        this.beanFactory = beanFactory;
+        this.resolvedModules = resolvedModules;
+        this.beansInCreation = new BeanCreationTracker<>(beanFactory);
+    }
+
+    @Override
+    public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) {
+        beansInCreation.started(beanName, beanName);
+        ResolvedModule module = resolvedModules.getModuleOfBean(beanName);
+        if (module != null && module.isLazy()) {
+            activationStarts.putIfAbsent(module, System.nanoTime());
+        }
+
+        return null;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        ResolvedModule module = resolvedModules.getModuleOfBean(beanName);
+        Set<ResolvedModule> pending = pendingModules.get();
+        if (module != null && module.isLazy() && !activatedModules.contains(module)) {
+            if (pending == null) {
+                pending = new LinkedHashSet<>();
+                pendingModules.set(pending);
+            }
+            pending.add(module);
+        }
+
+        beansInCreation.finished(beanName);
+        if (pending != null && beansInCreation.isIdle()) {
+            List<ResolvedModule> modules = new ArrayList<>(pending);
+            pendingModules.remove();
+            modules.forEach(this::activate);
+        }
+
+        return bean;
+    }
+
+    private void activate(ResolvedModule module) {
+        if (!activatedModules.add(module)) {
+            return;
+        }
+
+        long start = activationStarts.computeIfAbsent(module, key -> System.nanoTime());
+        for (Class<? extends ModuleDefinition> dependencyType : module.getDependencies()) {
+            ResolvedModule dependency = resolvedModules.getModule(dependencyType);
+            if (dependency != null && dependency.isLazy()) {
+                activate(dependency);
+            }
+        }
+
+        for (String beanName : module.getBeanNames()) {
+            BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+            if (beanDefinition.isSingleton() && !beanDefinition.isAbstract()) {
+                beanFactory.getBean(beanName);
+            }
+        }
+
+        LOGGER.info("activated lazy module " + module + " with " + module.getBeanNames().size() + " beans in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+}
@@ -29,5 +29,24 @@ import org.springframework.context.annotation.Configuration;
 @Retention(RetentionPolicy.RUNTIME)
 @Configuration
 public @interface ModuleConfiguration {
+    /**
+     * Types of the beans the module offers to the modules depending on it. Beans of other types are internal to the
+     * module if it is started in its own application context (see
+     * {@link com.werum.springmodules.runtime.ModuleContextHierarchy}) and aren't mocked if the module is mocked by
+     * {@link com.werum.springmodules.experimental.MockTheseModulesDependencyResolver.MockTheseComponents}. If empty,
+     * all beans of the module are exported.
+     */
+    Class<?>[] exports() default {};
 
+    /**
+     * If true, all beans of the module are registered lazy-init and the module is activated when one of its beans is
+     * accessed for the first time, see {@link ModuleDefinition#isLazy()}.
+     */
+    boolean lazy() default false;
+
+    /**
+     * Persistence settings of the module, i.e. a DataSource and EntityManagerFactory of its own, see
+     * {@link ModulePersistence}
+     */
+    ModulePersistence persistence() default @ModulePersistence;
 }
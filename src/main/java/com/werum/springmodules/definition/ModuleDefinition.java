@@ -15,18 +15,31 @@
  */
 package com.werum.springmodules.definition;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.annotation.Annotation;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeanUtils;
-import org.springframework.context.annotation.ImportSelector;
+import org.springframework.boot.context.annotation.DeterminableImports;
+import org.springframework.context.annotation.DeferredImportSelector;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.AnnotationAttributes;
 import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.StandardAnnotationMetadata;
+import org.springframework.util.ClassUtils;
 
 import com.werum.springmodules.definition.DependencyResolverStrategy.AlternativeComponentConfigurations;
+import com.werum.springmodules.jfr.ModuleEvents;
+import com.werum.springmodules.jfr.ModuleEvents.Span;
 
 /**
  * Abstract Base class for all component context configurations
@@ -37,8 +50,14 @@ import com.werum.springmodules.definition.DependencyResolverStrategy.Alternative
  * Alternative component context configurations can be configured by {@link AlternativeComponentConfigurations}
  * at type level of a test.
  *
+ * All modules imported by the same class are resolved together, see {@link ModuleImportGroup}.
+ *
+ * Spring Boot builds the key of its test context cache from the imports of a test class (see
+ * {@link DeterminableImports}). The imports of a module are the configuration classes resolved for it, so test classes
+ * resolving to the same configurations share one application context, no matter which modules they import.
+ *
  */
-public abstract class ModuleDefinition implements ImportSelector {
+public abstract class ModuleDefinition implements DeferredImportSelector, DeterminableImports, Ordered {
     private static final Logger LOGGER = LoggerFactory.getLogger(ModuleDefinition.class);
 
     private final Class<?> componentConfiguration;
@@ -57,33 +76,87 @@ public abstract class ModuleDefinition implements ImportSelector {
 
     @Override
     public String[] selectImports(AnnotationMetadata importingClassMetadata) {
-        DependencyResolverStrategy drs = BeanUtils.instantiateClass(findDependencyResolver(importingClassMetadata));
-        TreePrinter<String> root = new TreePrinter<>(getClass().getSimpleName());
-        String[] ret = drs.resolveDependency(this, importingClassMetadata, root).stream().map(Class::getName)
+        return resolveConfigurations(importingClassMetadata, ModuleGraph.of(this)).stream().map(Class::getName)
                 .toArray(String[]::new);
-        LOGGER.info("created the following dependency tree for " + getClass().getSimpleName() + "\n"
-                + root.getDependencyView());
+    }
+
+    @Override
+    public Class<? extends Group> getImportGroup() {
+        return ModuleImportGroup.class;
+    }
+
+    /**
+     * strategies other than the default one may evaluate the annotation selecting them on their own (i.e. to register
+     * mocks), so that annotation is part of the imports, too. The dependency tree is logged by
+     * {@link #selectImports(AnnotationMetadata)} only, when the context is actually created.
+     */
+    @Override
+    public Set<Object> determineImports(AnnotationMetadata importingClassMetadata) {
+        Set<Object> ret = new HashSet<>(resolveConfigurations(importingClassMetadata, ModuleGraph.of(this), false));
+        if (findDependencyResolver(importingClassMetadata) != DependencyResolverStrategy.class
+                && importingClassMetadata instanceof StandardAnnotationMetadata) {
+            Class<?> importingClass = ((StandardAnnotationMetadata) importingClassMetadata).getIntrospectedClass();
+            for (Annotation annotation : importingClass.getAnnotations()) {
+                if (AnnotatedElementUtils.hasAnnotation(annotation.annotationType(), DependenciesResolvedBy.class)) {
+                    ret.add(annotation);
+                }
+            }
+        }
 
-        System.out.println(Arrays.asList(ret));
         return ret;
     }
 
-    @SuppressWarnings("unchecked")
-    private Class<? extends DependencyResolverStrategy> findDependencyResolver(
-            AnnotationMetadata importingClassMetadata) {
-        for (String annotationType : importingClassMetadata.getAnnotationTypes()) {
+    /**
+     * modules are imported before auto-configurations, so conditions of auto-configurations see the beans of the
+     * modules
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    /**
+     * resolves the configuration classes to import for the roots of the given graph and logs the dependency tree
+     */
+    static Set<Class<?>> resolveConfigurations(AnnotationMetadata importingClassMetadata, ModuleGraph moduleGraph) {
+        return resolveConfigurations(importingClassMetadata, moduleGraph, true);
+    }
+
+    private static Set<Class<?>> resolveConfigurations(AnnotationMetadata importingClassMetadata,
+            ModuleGraph moduleGraph, boolean logTree) {
+        Span span = ModuleEvents.beginModuleResolution();
+        DependencyResolverStrategy drs = BeanUtils.instantiateClass(findDependencyResolver(importingClassMetadata));
+        String rootName = moduleGraph.getRoots().size() == 1 ? moduleGraph.getRoots().get(0).toString()
+                : ClassUtils.getShortName(importingClassMetadata.getClassName());
+        Set<Class<?>> ret = drs.resolveDependency(moduleGraph, importingClassMetadata);
+        span.end(rootName, ret.size());
+        if (logTree && LOGGER.isInfoEnabled()) {
+            StringBuilder tree = new StringBuilder("created the following dependency tree for ").append(rootName)
+                    .append('\n');
             try {
-                Class<? extends Annotation> annotationClass = (Class<? extends Annotation>) Class
-                        .forName(annotationType);
-                DependenciesResolvedBy dependenciesResolvedByAnnotation = annotationClass
-                        .getAnnotation(DependenciesResolvedBy.class);
-                if (dependenciesResolvedByAnnotation != null) {
-                    return dependenciesResolvedByAnnotation.value();
-                }
-            } catch (Exception e) {
-                throw new IllegalStateException(e);
+                ModuleGraphRenderer.of(moduleGraph, ret).renderTree(tree);
+            } catch (IOException e) {
+                // StringBuilder doesn't throw
+                throw new UncheckedIOException(e);
             }
+            LOGGER.info(tree.toString());
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("importing " + ret.stream().map(Class::getName).collect(Collectors.toList()));
+        }
 
+        return ret;
+    }
+
+    /**
+     * looks for an annotation of the importing class that is meta-annotated with {@link DependenciesResolvedBy}
+     */
+    private static Class<? extends DependencyResolverStrategy> findDependencyResolver(
+            AnnotationMetadata importingClassMetadata) {
+        AnnotationAttributes dependenciesResolvedBy = AnnotationAttributes
+                .fromMap(importingClassMetadata.getAnnotationAttributes(DependenciesResolvedBy.class.getName()));
+        if (dependenciesResolvedBy != null) {
+            return dependenciesResolvedBy.getClass("value");
         }
 
         return DependencyResolverStrategy.class;
@@ -94,6 +167,59 @@ public abstract class ModuleDefinition implements ImportSelector {
     }
 
     public Set<Class<? extends ModuleDefinition>> getDependendComponents() {
-        return new HashSet<>(Arrays.asList(dependingOnComponents));
+        return new LinkedHashSet<>(Arrays.asList(dependingOnComponents));
+    }
+
+    /**
+     * Beans of lazy modules are registered lazy-init and created together, when a bean of the module is accessed for
+     * the first time (see {@link LazyModuleActivator}). Defaults to {@link ModuleConfiguration#lazy()} of the
+     * configuration class.
+     *
+     * @return true, if the module is activated on first access instead of at startup
+     */
+    public boolean isLazy() {
+        return isLazy(componentConfiguration);
+    }
+
+    /**
+     * @return true, if the given module configuration is declared lazy
+     */
+    public static boolean isLazy(Class<?> componentConfiguration) {
+        ModuleConfiguration moduleConfiguration = AnnotatedElementUtils.findMergedAnnotation(componentConfiguration,
+                ModuleConfiguration.class);
+        return moduleConfiguration != null && moduleConfiguration.lazy();
+    }
+
+    /**
+     * @return the persistence settings of the given module configuration or null, if it isn't a module configuration
+     */
+    public static ModulePersistence persistenceOf(Class<?> componentConfiguration) {
+        ModuleConfiguration moduleConfiguration = AnnotatedElementUtils.findMergedAnnotation(componentConfiguration,
+                ModuleConfiguration.class);
+        return moduleConfiguration == null ? null : moduleConfiguration.persistence();
+    }
+
+    /**
+     * Only beans of the exported types are visible to other modules (see
+     * {@link com.werum.springmodules.runtime.ModuleContextHierarchy}) and mocked in place of the module. Defaults to
+     * {@link ModuleConfiguration#exports()} of the configuration class.
+     *
+     * @return the types exported by this module, empty if all beans are exported
+     */
+    public Set<Class<?>> getExportedTypes() {
+        return exportedTypesOf(componentConfiguration);
+    }
+
+    /**
+     * @return the types exported by the given module configuration, empty if all beans are exported
+     */
+    public static Set<Class<?>> exportedTypesOf(Class<?> componentConfiguration) {
+        ModuleConfiguration moduleConfiguration = AnnotatedElementUtils.findMergedAnnotation(componentConfiguration,
+                ModuleConfiguration.class);
+        if (moduleConfiguration == null) {
+            return Collections.emptySet();
+        }
+
+        return new LinkedHashSet<>(Arrays.asList(moduleConfiguration.exports()));
     }
 }
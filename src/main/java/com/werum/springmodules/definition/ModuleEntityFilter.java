@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.definition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.persistenceunit.DefaultPersistenceUnitManager;
+import org.springframework.orm.jpa.persistenceunit.MutablePersistenceUnitInfo;
+import org.springframework.orm.jpa.persistenceunit.PersistenceUnitPostProcessor;
+
+import com.werum.springmodules.definition.ResolvedModules.ResolvedModule;
+
+/**
+ * {@link BeanPostProcessor} restricting the persistence units of {@link LocalContainerEntityManagerFactoryBean}s to the
+ * entities of the modules imported into the application context. Entities located in the entity packages of a module
+ * that has been replaced or isn't imported at all (see {@link ResolvedModules#isEntityImported(String)}) are removed
+ * from the managed classes, even if a broader <tt>@EntityScan</tt> found them. Hibernate builds neither metamodel nor
+ * tables for them.
+ *
+ * The persistence unit of a module with isolated persistence (see {@link ModulePersistenceRegistrar}) only keeps the
+ * entities of that module, the other persistence units drop them. The shards of a sharded module keep its entities
+ * along with those of the shared persistence unit, which drops them.
+ *
+ * It is added by {@link ResolvedModules.BeanAssigningPostProcessor} if spring-orm is on the classpath.
+ */
+public class ModuleEntityFilter implements BeanPostProcessor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ModuleEntityFilter.class);
+
+    private final ResolvedModules resolvedModules;
+
+    ModuleEntityFilter(ResolvedModules resolvedModules) {
+        this.resolvedModules = resolvedModules;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+        if (bean instanceof LocalContainerEntityManagerFactoryBean) {
+            LocalContainerEntityManagerFactoryBean factoryBean = (LocalContainerEntityManagerFactoryBean) bean;
+            List<PersistenceUnitPostProcessor> postProcessors = new ArrayList<>(postProcessorsOf(factoryBean));
+            ResolvedModule unitModule = resolvedModules.getModules().stream()
+                    .filter(module -> ModulePersistenceRegistrar.isEntityManagerFactoryOf(beanName, module))
+                    .findFirst().orElse(null);
+            postProcessors.add(persistenceUnit -> removeEntitiesOfOtherModules(persistenceUnit, unitModule));
+            factoryBean.setPersistenceUnitPostProcessors(postProcessors.toArray(new PersistenceUnitPostProcessor[0]));
+        }
+
+        return bean;
+    }
+
+    /**
+     * @return the post processors set so far, LocalContainerEntityManagerFactoryBean has no getter for them
+     */
+    private static List<PersistenceUnitPostProcessor> postProcessorsOf(
+            LocalContainerEntityManagerFactoryBean factoryBean) {
+        Object persistenceUnitManager = new DirectFieldAccessor(factoryBean)
+                .getPropertyValue("internalPersistenceUnitManager");
+        if (persistenceUnitManager instanceof DefaultPersistenceUnitManager) {
+            PersistenceUnitPostProcessor[] postProcessors = ((DefaultPersistenceUnitManager) persistenceUnitManager)
+                    .getPersistenceUnitPostProcessors();
+            if (postProcessors != null) {
+                return Arrays.asList(postProcessors);
+            }
+        }
+
+        return Collections.emptyList();
+    }
+
+    /**
+     * @param unitModule isolated or sharded module the persistence unit belongs to, null for a persistence unit shared
+     *        by all other modules
+     */
+    private void removeEntitiesOfOtherModules(MutablePersistenceUnitInfo persistenceUnit, ResolvedModule unitModule) {
+        List<String> removed = persistenceUnit.getManagedClassNames().stream()
+                .filter(className -> !belongsTo(className, unitModule)).collect(Collectors.toList());
+        persistenceUnit.getManagedClassNames().removeAll(removed);
+        persistenceUnit.getManagedPackages()
+                .removeIf(packageName -> !belongsTo(packageName + ".package-info", unitModule));
+
+        if (!removed.isEmpty()) {
+            LOGGER.debug("removed entities of other modules from persistence unit {}: {}",
+                    persistenceUnit.getPersistenceUnitName(), removed);
+        }
+    }
+
+    private boolean belongsTo(String className, ResolvedModule unitModule) {
+        if (!resolvedModules.isEntityImported(className)) {
+            return false;
+        }
+
+        ResolvedModule module = resolvedModules.getModuleOfEntity(className);
+        if (module == unitModule) {
+            return true;
+        }
+        if (unitModule != null && unitModule.isPersistenceIsolated()) {
+            return false;
+        }
+
+        // the shards keep the entities of the shared persistence unit their entities may reference
+        return module == null || !module.isPersistenceIsolated() && !module.isPersistenceSharded();
+    }
+}
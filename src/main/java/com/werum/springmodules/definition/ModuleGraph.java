@@ -0,0 +1,386 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.definition;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Immutable graph of all {@link ModuleDefinition}s reachable from a set of root modules.
+ *
+ * Each module is represented by exactly one {@link Node}, no matter on how many paths it can be reached. Dependencies
+ * are looked up in the {@link ModuleIndex}, modules missing in the index are instantiated once to find them. The
+ * transitive closure of every node is calculated once while building the graph (as a {@link BitSet} over the node
+ * indexes), so building and walking the graph is linear in the number of modules and dependencies.
+ * Cyclic dependencies between modules are tolerated, all modules of a cycle share the same closure.
+ */
+public final class ModuleGraph {
+    private final List<Node> roots;
+
+    private final List<Node> nodes;
+
+    private final Map<Class<? extends ModuleDefinition>, Node> nodesByType;
+
+    private final List<List<Node>> tiers;
+
+    private ModuleGraph(List<Node> roots, Map<Class<? extends ModuleDefinition>, Node> nodesByType) {
+        this.roots = Collections.unmodifiableList(roots);
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(nodesByType.values()));
+        this.nodesByType = Collections.unmodifiableMap(nodesByType);
+
+        List<List<Node>> tiers = new ArrayList<>();
+        for (Node node : nodes) {
+            while (tiers.size() <= node.tier) {
+                tiers.add(new ArrayList<>());
+            }
+            tiers.get(node.tier).add(node);
+        }
+        tiers.replaceAll(Collections::unmodifiableList);
+        this.tiers = Collections.unmodifiableList(tiers);
+    }
+
+    public static ModuleGraph of(ModuleDefinition... roots) {
+        return of(Arrays.asList(roots));
+    }
+
+    /**
+     * builds the graph of all modules reachable from the given roots, using the {@link ModuleIndex} visible to the
+     * class loader of the roots
+     *
+     * @param roots module instances to start from
+     * @return the graph, never null
+     */
+    public static ModuleGraph of(Collection<? extends ModuleDefinition> roots) {
+        ClassLoader classLoader = roots.isEmpty() ? null : roots.iterator().next().getClass().getClassLoader();
+        return of(roots, ModuleIndex.load(classLoader));
+    }
+
+    /**
+     * builds the graph of all modules reachable from the given roots
+     *
+     * @param roots module instances to start from
+     * @param index index to look up dependencies in. Modules not found in the index are instantiated, once per module
+     * class
+     * @return the graph, never null
+     */
+    public static ModuleGraph of(Collection<? extends ModuleDefinition> roots, ModuleIndex index) {
+        Map<Class<? extends ModuleDefinition>, Node> nodesByType = new LinkedHashMap<>();
+        Map<Node, Collection<Class<? extends ModuleDefinition>>> toExpand = new LinkedHashMap<>();
+        List<Node> rootNodes = new ArrayList<>();
+
+        for (ModuleDefinition root : roots) {
+            Node rootNode = nodesByType.get(root.getClass());
+            if (rootNode == null) {
+                rootNode = intern(root.getClass(), root.getComponentConfiguration(), root.getDependendComponents(),
+                        root.isLazy(), root.getExportedTypes(), nodesByType, toExpand);
+            }
+            if (!rootNodes.contains(rootNode)) {
+                rootNodes.add(rootNode);
+            }
+        }
+
+        while (!toExpand.isEmpty()) {
+            Iterator<Map.Entry<Node, Collection<Class<? extends ModuleDefinition>>>> iterator = toExpand.entrySet()
+                    .iterator();
+            Map.Entry<Node, Collection<Class<? extends ModuleDefinition>>> next = iterator.next();
+            iterator.remove();
+            for (Class<? extends ModuleDefinition> dependency : next.getValue()) {
+                Node dependencyNode = nodesByType.get(dependency);
+                if (dependencyNode == null) {
+                    dependencyNode = intern(dependency, index, nodesByType, toExpand);
+                }
+                next.getKey().dependencies.add(dependencyNode);
+            }
+        }
+
+        new ClosureCalculator(nodesByType.size()).calculate(nodesByType.values());
+        return new ModuleGraph(rootNodes, nodesByType);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Node intern(Class<? extends ModuleDefinition> type, ModuleIndex index,
+            Map<Class<? extends ModuleDefinition>, Node> nodesByType,
+            Map<Node, Collection<Class<? extends ModuleDefinition>>> toExpand) {
+        ModuleIndex.Entry entry = index.getEntry(type.getName());
+        if (entry == null) {
+            ModuleDefinition definition = BeanUtils.instantiateClass(type, ModuleDefinition.class);
+            return intern(type, definition.getComponentConfiguration(), definition.getDependendComponents(),
+                    definition.isLazy(), definition.getExportedTypes(), nodesByType, toExpand);
+        }
+
+        ClassLoader classLoader = type.getClassLoader();
+        List<Class<? extends ModuleDefinition>> dependencies = new ArrayList<>();
+        for (String dependency : entry.getDependendComponents()) {
+            dependencies.add((Class<? extends ModuleDefinition>) ClassUtils.resolveClassName(dependency, classLoader));
+        }
+        Class<?> componentConfiguration = ClassUtils.resolveClassName(entry.getComponentConfiguration(), classLoader);
+        // modules overriding isLazy() or getExportedTypes() aren't indexed, so their configuration decides
+        boolean lazy = entry.isLazy() != null ? entry.isLazy() : ModuleDefinition.isLazy(componentConfiguration);
+        Set<Class<?>> exportedTypes;
+        if (entry.getExportedTypes() != null) {
+            exportedTypes = new LinkedHashSet<>();
+            for (String exportedType : entry.getExportedTypes()) {
+                exportedTypes.add(ClassUtils.resolveClassName(exportedType, classLoader));
+            }
+        } else {
+            exportedTypes = ModuleDefinition.exportedTypesOf(componentConfiguration);
+        }
+        return intern(type, componentConfiguration, dependencies, lazy, exportedTypes, nodesByType, toExpand);
+    }
+
+    private static Node intern(Class<? extends ModuleDefinition> type, Class<?> componentConfiguration,
+            Collection<Class<? extends ModuleDefinition>> dependencies, boolean lazy, Set<Class<?>> exportedTypes,
+            Map<Class<? extends ModuleDefinition>, Node> nodesByType,
+            Map<Node, Collection<Class<? extends ModuleDefinition>>> toExpand) {
+        Node node = new Node(nodesByType.size(), type, componentConfiguration, lazy, exportedTypes);
+        nodesByType.put(type, node);
+        toExpand.put(node, dependencies);
+        return node;
+    }
+
+    /**
+     * @return the modules the graph has been built for, in the order they have been provided
+     */
+    public List<Node> getRoots() {
+        return roots;
+    }
+
+    /**
+     * @return all modules of the graph, ordered by their index
+     */
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the node for the given module class or null, if the module is not part of this graph
+     */
+    public Node getNode(Class<? extends ModuleDefinition> moduleType) {
+        return nodesByType.get(moduleType);
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Splits the modules into topological tiers. Tier 0 contains all modules without dependencies, each further tier
+     * contains the modules whose dependencies are all part of lower tiers. Modules inside the same tier don't depend on
+     * each other, modules of a dependency cycle share the same tier.
+     *
+     * @return the tiers in ascending order, each tier ordered by node index
+     */
+    public List<List<Node>> getTiers() {
+        return tiers;
+    }
+
+    /**
+     * @return the given node and all nodes it transitively depends on, ordered by their index
+     */
+    public List<Node> getClosure(Node node) {
+        List<Node> ret = new ArrayList<>(node.closure.cardinality());
+        for (int i = node.closure.nextSetBit(0); i >= 0; i = node.closure.nextSetBit(i + 1)) {
+            ret.add(nodes.get(i));
+        }
+
+        return ret;
+    }
+
+    /**
+     * A single module inside a {@link ModuleGraph}
+     */
+    public static final class Node {
+        private final int index;
+
+        private final Class<? extends ModuleDefinition> type;
+
+        private final Class<?> componentConfiguration;
+
+        private final boolean lazy;
+
+        private final Set<Class<?>> exportedTypes;
+
+        private final List<Node> dependencies = new ArrayList<>();
+
+        private BitSet closure;
+
+        private int tier;
+
+        private Node(int index, Class<? extends ModuleDefinition> type, Class<?> componentConfiguration,
+                boolean lazy, Set<Class<?>> exportedTypes) {
+            this.index = index;
+            this.type = type;
+            this.componentConfiguration = componentConfiguration;
+            this.lazy = lazy;
+            this.exportedTypes = Collections.unmodifiableSet(new LinkedHashSet<>(exportedTypes));
+        }
+
+        /**
+         * @return position of this node in {@link ModuleGraph#getNodes()}
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public Class<? extends ModuleDefinition> getType() {
+            return type;
+        }
+
+        /**
+         * @return the configuration class declared by the module
+         */
+        public Class<?> getComponentConfiguration() {
+            return componentConfiguration;
+        }
+
+        /**
+         * @return true, if the module is activated on first access, see {@link ModuleDefinition#isLazy()}
+         */
+        public boolean isLazy() {
+            return lazy;
+        }
+
+        /**
+         * @return the types exported by the module, empty if all beans are exported, see
+         *         {@link ModuleDefinition#getExportedTypes()}
+         */
+        public Set<Class<?>> getExportedTypes() {
+            return exportedTypes;
+        }
+
+        /**
+         * @return the direct dependencies of this module in order of their declaration
+         */
+        public List<Node> getDependencies() {
+            return Collections.unmodifiableList(dependencies);
+        }
+
+        /**
+         * @return the topological tier of this module, see {@link ModuleGraph#getTiers()}
+         */
+        public int getTier() {
+            return tier;
+        }
+
+        /**
+         * @return true, if this module directly or transitively depends on the other module
+         */
+        public boolean dependsOn(Node other) {
+            return other != this && closure.get(other.index);
+        }
+
+        @Override
+        public String toString() {
+            return getType().getSimpleName();
+        }
+    }
+
+    /**
+     * Calculates the transitive closure and the tier of all nodes with Tarjan's algorithm for strongly connected
+     * components. Each component is completed after all components it depends on, so the closure of a component is the
+     * union of its members and the closures of its dependencies and its tier is one above the highest tier of its
+     * dependencies.
+     */
+    private static class ClosureCalculator {
+        private final int[] order;
+
+        private final int[] lowLink;
+
+        private final BitSet onStack;
+
+        private final Deque<Node> stack = new ArrayDeque<>();
+
+        private final int size;
+
+        private int counter;
+
+        ClosureCalculator(int size) {
+            this.size = size;
+            order = new int[size];
+            lowLink = new int[size];
+            onStack = new BitSet(size);
+            Arrays.fill(order, -1);
+        }
+
+        void calculate(Collection<Node> nodes) {
+            for (Node node : nodes) {
+                if (order[node.index] == -1) {
+                    strongConnect(node);
+                }
+            }
+        }
+
+        private void strongConnect(Node node) {
+            int v = node.index;
+            order[v] = counter;
+            lowLink[v] = counter;
+            counter++;
+            stack.push(node);
+            onStack.set(v);
+
+            for (Node dependency : node.dependencies) {
+                int w = dependency.index;
+                if (order[w] == -1) {
+                    strongConnect(dependency);
+                    lowLink[v] = Math.min(lowLink[v], lowLink[w]);
+                } else if (onStack.get(w)) {
+                    lowLink[v] = Math.min(lowLink[v], order[w]);
+                }
+            }
+
+            if (lowLink[v] == order[v]) {
+                List<Node> component = new ArrayList<>();
+                BitSet closure = new BitSet(size);
+                Node member;
+                do {
+                    member = stack.pop();
+                    onStack.clear(member.index);
+                    component.add(member);
+                    closure.set(member.index);
+                } while (member != node);
+
+                int tier = 0;
+                for (Node componentMember : component) {
+                    for (Node dependency : componentMember.dependencies) {
+                        // dependencies outside this component are already completed
+                        if (dependency.closure != null) {
+                            closure.or(dependency.closure);
+                            tier = Math.max(tier, dependency.tier + 1);
+                        }
+                    }
+                }
+                for (Node componentMember : component) {
+                    componentMember.closure = closure;
+                    componentMember.tier = tier;
+                }
+            }
+        }
+    }
+}
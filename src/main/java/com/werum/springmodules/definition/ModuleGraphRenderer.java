@@ -0,0 +1,206 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.definition;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.werum.springmodules.definition.ModuleGraph.Node;
+
+/**
+ * Renders a {@link ModuleGraph} together with the configuration classes resolved for it as folder-like tree, as
+ * <a href="https://graphviz.org/doc/info/lang.html">DOT</a> or as JSON. The output is streamed to an {@link Appendable}
+ * in the order of the graph, so it is deterministic and no intermediate structure is built.
+ *
+ * A module is shown with the configuration imported for it: its own configuration, an alternative configuration
+ * replacing it (dependencies of replaced modules are not imported and not descended into) or none, i.e. if it has been
+ * cut off or is mocked.
+ */
+public final class ModuleGraphRenderer {
+    private static final String INDENT = "    ";
+
+    private static final String INDENT_CONTINUED = "|   ";
+
+    private final ModuleGraph graph;
+
+    private final Collection<Class<?>> importedConfigurations;
+
+    private final Map<Class<? extends ModuleDefinition>, Class<?>> replacements;
+
+    private ModuleGraphRenderer(ModuleGraph graph, Collection<Class<?>> importedConfigurations) {
+        this.graph = graph;
+        this.importedConfigurations = importedConfigurations;
+        this.replacements = ResolvedModules.replacements(importedConfigurations);
+    }
+
+    /**
+     * @param graph graph to render
+     * @param importedConfigurations configuration classes resolved for the graph, see
+     * {@link DependencyResolverStrategy#resolveDependency(ModuleGraph, org.springframework.core.type.AnnotationMetadata)}
+     */
+    public static ModuleGraphRenderer of(ModuleGraph graph, Collection<Class<?>> importedConfigurations) {
+        return new ModuleGraphRenderer(graph, importedConfigurations);
+    }
+
+    /**
+     * renders each root module and its dependencies as tree. A module reachable on several paths is expanded only at
+     * its first occurrence.
+     */
+    public void renderTree(Appendable out) throws IOException {
+        BitSet rendered = new BitSet(graph.size());
+        StringBuilder prefix = new StringBuilder();
+        for (Node root : graph.getRoots()) {
+            appendLabel(out, root);
+            out.append('\n');
+            renderChildren(out, root, prefix, rendered);
+        }
+    }
+
+    private void renderChildren(Appendable out, Node node, StringBuilder prefix, BitSet rendered) throws IOException {
+        rendered.set(node.getIndex());
+        if (configurationOf(node) != node.getComponentConfiguration()) {
+            return;
+        }
+
+        List<Node> dependencies = node.getDependencies();
+        for (int i = 0; i < dependencies.size(); i++) {
+            Node dependency = dependencies.get(i);
+            out.append(prefix).append("+-> ");
+            appendLabel(out, dependency);
+            if (rendered.get(dependency.getIndex())) {
+                out.append(" (see above)\n");
+                continue;
+            }
+            out.append('\n');
+
+            int length = prefix.length();
+            prefix.append(i == dependencies.size() - 1 ? INDENT : INDENT_CONTINUED);
+            renderChildren(out, dependency, prefix, rendered);
+            prefix.setLength(length);
+        }
+    }
+
+    private void appendLabel(Appendable out, Node node) throws IOException {
+        Class<?> configuration = configurationOf(node);
+        if (configuration == null) {
+            out.append(node.getComponentConfiguration().getSimpleName()).append(" (not imported)");
+        } else {
+            out.append(configuration.getSimpleName());
+        }
+    }
+
+    /**
+     * renders the graph as directed graph in DOT format. Modules with replaced configuration are drawn dashed, modules
+     * without imported configuration dotted.
+     */
+    public void renderDot(Appendable out) throws IOException {
+        out.append("digraph modules {\n");
+        for (Node node : graph.getNodes()) {
+            Class<?> configuration = configurationOf(node);
+            out.append("  ");
+            appendQuoted(out, node.toString());
+            out.append(" [label=");
+            appendQuoted(out, configuration == null ? node.getComponentConfiguration().getSimpleName()
+                    : configuration.getSimpleName());
+            if (configuration == null) {
+                out.append(", style=dotted");
+            } else if (configuration != node.getComponentConfiguration()) {
+                out.append(", style=dashed");
+            }
+            out.append("];\n");
+        }
+        for (Node node : graph.getNodes()) {
+            for (Node dependency : node.getDependencies()) {
+                out.append("  ");
+                appendQuoted(out, node.toString());
+                out.append(" -> ");
+                appendQuoted(out, dependency.toString());
+                out.append(";\n");
+            }
+        }
+        out.append("}\n");
+    }
+
+    /**
+     * renders the graph as JSON object with the names of the root modules and a description of every module
+     */
+    public void renderJson(Appendable out) throws IOException {
+        out.append("{\"roots\":[");
+        appendNames(out, graph.getRoots());
+        out.append("],\"modules\":[");
+        for (Node node : graph.getNodes()) {
+            if (node.getIndex() > 0) {
+                out.append(',');
+            }
+            Class<?> configuration = configurationOf(node);
+            out.append("{\"name\":");
+            appendQuoted(out, node.toString());
+            out.append(",\"type\":");
+            appendQuoted(out, node.getType().getName());
+            out.append(",\"configuration\":");
+            if (configuration == null) {
+                out.append("null");
+            } else {
+                appendQuoted(out, configuration.getName());
+            }
+            out.append(",\"replaced\":").append(String.valueOf(
+                    configuration != null && configuration != node.getComponentConfiguration()));
+            out.append(",\"lazy\":").append(String.valueOf(node.isLazy()));
+            out.append(",\"tier\":").append(String.valueOf(node.getTier()));
+            out.append(",\"dependencies\":[");
+            appendNames(out, node.getDependencies());
+            out.append("]}");
+        }
+        out.append("]}");
+    }
+
+    private void appendNames(Appendable out, List<Node> nodes) throws IOException {
+        for (int i = 0; i < nodes.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            appendQuoted(out, nodes.get(i).toString());
+        }
+    }
+
+    /**
+     * appends the given value as double quoted string, valid in DOT as well as in JSON
+     */
+    private static void appendQuoted(Appendable out, String value) throws IOException {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    private Class<?> configurationOf(Node node) {
+        Class<?> replacement = replacements.get(node.getType());
+        if (replacement != null) {
+            return replacement;
+        }
+
+        return importedConfigurations.contains(node.getComponentConfiguration()) ? node.getComponentConfiguration()
+                : null;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.definition;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.annotation.DeferredImportSelector;
+import org.springframework.context.annotation.DeferredImportSelector.Group;
+import org.springframework.core.type.AnnotationMetadata;
+
+/**
+ * {@link Group} collecting all {@link ModuleDefinition}s imported by the same class, i.e.
+ * <tt>@Import({StudentControllerModule.class, CourseControllerModule.class})</tt>. The dependencies of those modules are
+ * resolved in one pass, so modules shared between them are resolved only once and each configuration class is imported
+ * only once.
+ *
+ * The resolved modules are published to the bean factory as {@link ResolvedModules}.
+ */
+public class ModuleImportGroup implements Group, BeanFactoryAware {
+    private final Map<String, ImportingClass> importingClasses = new LinkedHashMap<>();
+
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        if (beanFactory instanceof ConfigurableListableBeanFactory) {
+            this.beanFactory = (ConfigurableListableBeanFactory) beanFactory;
+        }
+    }
+
+    @Override
+    public void process(AnnotationMetadata metadata, DeferredImportSelector selector) {
+        importingClasses.computeIfAbsent(metadata.getClassName(), className -> new ImportingClass(metadata)).modules
+                .add((ModuleDefinition) selector);
+    }
+
+    @Override
+    public Iterable<Entry> selectImports() {
+        List<Entry> ret = new ArrayList<>();
+        for (ImportingClass importingClass : importingClasses.values()) {
+            ModuleGraph moduleGraph = ModuleGraph.of(importingClass.modules);
+            Set<Class<?>> configurations = ModuleDefinition.resolveConfigurations(importingClass.metadata,
+                    moduleGraph);
+            if (beanFactory != null) {
+                ResolvedModules resolvedModules = ResolvedModules.register(beanFactory);
+                resolvedModules.add(moduleGraph, configurations);
+                resolvedModules.addImportingClass(importingClass.metadata);
+            }
+            for (Class<?> configuration : configurations) {
+                ret.add(new Entry(importingClass.metadata, configuration.getName()));
+            }
+        }
+
+        return ret;
+    }
+
+    private static class ImportingClass {
+        private final AnnotationMetadata metadata;
+
+        private final List<ModuleDefinition> modules = new ArrayList<>();
+
+        ImportingClass(AnnotationMetadata metadata) {
+            this.metadata = metadata;
+        }
+    }
+}
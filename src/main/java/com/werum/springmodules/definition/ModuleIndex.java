@@ -0,0 +1,177 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.definition;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.SpringProperties;
+import org.springframework.core.io.UrlResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.StringUtils;
+
+import com.werum.springmodules.processor.ModuleIndexProcessor;
+
+/**
+ * Index of the configuration class, dependencies and {@link ModuleConfiguration} attributes of all
+ * {@link ModuleDefinition}s, created at compile time by {@link ModuleIndexProcessor}. Using the index
+ * {@link ModuleGraph} doesn't have to instantiate each module to find its dependencies.
+ *
+ * All index files found on the classpath are merged. Modules not contained in any index are resolved reflectively. The
+ * index can be disabled by setting the system property <tt>spring.modules.index.ignore</tt> to true.
+ */
+public final class ModuleIndex {
+    public static final String INDEX_LOCATION = "META-INF/spring-modules.idx";
+
+    public static final String IGNORE_INDEX_PROPERTY = "spring.modules.index.ignore";
+
+    private static final String LAZY_KEY = "#lazy";
+
+    private static final String EXPORTS_KEY = "#exports";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ModuleIndex.class);
+
+    private static final ModuleIndex EMPTY = new ModuleIndex(Collections.emptyMap());
+
+    private static final ConcurrentMap<ClassLoader, ModuleIndex> CACHE = new ConcurrentReferenceHashMap<>();
+
+    private final Map<String, Entry> entries;
+
+    private ModuleIndex(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * loads the index from all index files visible to the given class loader. Loaded indexes are cached per class
+     * loader.
+     *
+     * @return the index, never null
+     */
+    public static ModuleIndex load(ClassLoader classLoader) {
+        if (SpringProperties.getFlag(IGNORE_INDEX_PROPERTY) || classLoader == null) {
+            return EMPTY;
+        }
+
+        return CACHE.computeIfAbsent(classLoader, ModuleIndex::doLoad);
+    }
+
+    /**
+     * @return an index without any entries, so all modules are resolved reflectively
+     */
+    public static ModuleIndex empty() {
+        return EMPTY;
+    }
+
+    private static ModuleIndex doLoad(ClassLoader classLoader) {
+        try {
+            Map<String, Entry> entries = new HashMap<>();
+            Enumeration<URL> urls = classLoader.getResources(INDEX_LOCATION);
+            while (urls.hasMoreElements()) {
+                Properties properties = PropertiesLoaderUtils.loadProperties(new UrlResource(urls.nextElement()));
+                for (String moduleClassName : properties.stringPropertyNames()) {
+                    if (moduleClassName.indexOf('#') >= 0) {
+                        // attribute of a module
+                        continue;
+                    }
+                    String[] classNames = StringUtils
+                            .commaDelimitedListToStringArray(properties.getProperty(moduleClassName));
+                    String lazy = properties.getProperty(moduleClassName + LAZY_KEY);
+                    String exports = properties.getProperty(moduleClassName + EXPORTS_KEY);
+                    entries.put(moduleClassName, new Entry(classNames[0],
+                            Arrays.asList(Arrays.copyOfRange(classNames, 1, classNames.length)),
+                            lazy == null ? null : Boolean.valueOf(lazy),
+                            exports == null ? null
+                                    : Arrays.asList(StringUtils.commaDelimitedListToStringArray(exports))));
+                }
+            }
+
+            LOGGER.debug("loaded {} modules from {}", entries.size(), INDEX_LOCATION);
+            return entries.isEmpty() ? EMPTY : new ModuleIndex(entries);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to load module index from " + INDEX_LOCATION, e);
+        }
+    }
+
+    /**
+     * @return the indexed information about all modules by the name of the module class
+     */
+    public Map<String, Entry> getEntries() {
+        return Collections.unmodifiableMap(entries);
+    }
+
+    /**
+     * @return the indexed information about the given module or null, if the module is not indexed
+     */
+    public Entry getEntry(String moduleClassName) {
+        return entries.get(moduleClassName);
+    }
+
+    /**
+     * Indexed information about a single module
+     */
+    public static final class Entry {
+        private final String componentConfiguration;
+
+        private final List<String> dependendComponents;
+
+        private final Boolean lazy;
+
+        private final List<String> exportedTypes;
+
+        Entry(String componentConfiguration, List<String> dependendComponents, Boolean lazy,
+                List<String> exportedTypes) {
+            this.componentConfiguration = componentConfiguration;
+            this.dependendComponents = Collections.unmodifiableList(dependendComponents);
+            this.lazy = lazy;
+            this.exportedTypes = exportedTypes == null ? null : Collections.unmodifiableList(exportedTypes);
+        }
+
+        public String getComponentConfiguration() {
+            return componentConfiguration;
+        }
+
+        public List<String> getDependendComponents() {
+            return dependendComponents;
+        }
+
+        /**
+         * @return {@link ModuleConfiguration#lazy()} of the configuration class or null, if it has to be read from the
+         * configuration class (i.e. the index has been written by an older version)
+         */
+        public Boolean isLazy() {
+            return lazy;
+        }
+
+        /**
+         * @return names of {@link ModuleConfiguration#exports()} of the configuration class or null, if they have to
+         * be read from the configuration class
+         */
+        public List<String> getExportedTypes() {
+            return exportedTypes;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.definition;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+
+import com.werum.springmodules.definition.ResolvedModules.ResolvedModule;
+import com.werum.springmodules.jfr.ModuleEvents;
+import com.werum.springmodules.jfr.ModuleEvents.Span;
+
+/**
+ * {@link InstantiationAwareBeanPostProcessor} recording the time spent creating the beans of each module (see
+ * {@link ResolvedModule#getInitializationNanos()}), excluding the time spent on beans they depend on. For each bean
+ * belonging to a module a flight recorder event is emitted (see {@link ModuleEvents}).
+ *
+ * It is added by {@link ResolvedModules.BeanAssigningPostProcessor}.
+ */
+public class ModuleInitializationPostProcessor implements InstantiationAwareBeanPostProcessor {
+    private final ResolvedModules resolvedModules;
+
+    private final BeanCreationTracker<BeanCreation> beansInCreation;
+
+    ModuleInitializationPostProcessor(ConfigurableBeanFactory beanFactory, ResolvedModules resolvedModules) {
+        this.resolvedModules = resolvedModules;
+        this.beansInCreation = new BeanCreationTracker<>(beanFactory);
+    }
+
+    @Override
+    public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) {
+        beansInCreation.started(beanName, new BeanCreation(beanName, resolvedModules.getModuleOfBean(beanName)));
+        return null;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        BeanCreation creation = beansInCreation.finished(beanName);
+        if (creation == null) {
+            // i.e. objects created by a FactoryBean, their creation is measured with the FactoryBean
+            return bean;
+        }
+
+        long elapsed = System.nanoTime() - creation.start;
+        BeanCreation dependent = beansInCreation.current();
+        if (dependent != null) {
+            dependent.nanosInDependencies += elapsed;
+        }
+        if (creation.module != null) {
+            creation.module.addInitializationNanos(elapsed - creation.nanosInDependencies);
+            creation.span.end(creation.module.getName(), 1);
+        }
+
+        return bean;
+    }
+
+    private static class BeanCreation {
+        private final ResolvedModule module;
+
+        private final Span span;
+
+        private final long start = System.nanoTime();
+
+        private long nanosInDependencies;
+
+        BeanCreation(String beanName, ResolvedModule module) {
+            this.module = module;
+            this.span = module == null ? null : ModuleEvents.beginBeanInitialization(beanName);
+        }
+    }
+}
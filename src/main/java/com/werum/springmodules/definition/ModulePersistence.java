@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.definition;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Persistence settings of a module, see {@link ModuleConfiguration#persistence()}
+ *
+ * Usage:
+ * @ModuleConfiguration(persistence = @ModulePersistence(isolated = true, poolSize = 20, batchSize = 50))
+ * @EnableJpaRepositories
+ * @EntityScan
+ * public class StudentDaoComponentConfiguration {
+ * }
+ *
+ * The connection of an isolated module is configured by the properties
+ * <tt>spring.modules.persistence.&lt;module&gt;.url</tt>, <tt>.username</tt>, <tt>.password</tt>,
+ * <tt>.driver-class-name</tt> and <tt>.ddl-auto</tt>, where <tt>&lt;module&gt;</tt> is the simple name of the module
+ * class. Without url an in-memory H2 database named after the module is used. The properties <tt>.pool-size</tt> and
+ * <tt>.batch-size</tt> override the sizes declared here.
+ *
+ * The property <tt>.shards</tt> overrides the number of shards. The connection of each shard is configured by the same
+ * properties below <tt>spring.modules.persistence.&lt;module&gt;.shard&lt;n&gt;</tt>, counting from 0; the properties
+ * of the module apply to all shards not configuring them. Without url an in-memory H2 database per shard is used.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({})
+public @interface ModulePersistence {
+    /**
+     * If true, the module gets a DataSource, an EntityManagerFactory and a transaction manager of its own and its
+     * repositories are bound to them. Its entities are left out of the persistence unit shared by the other modules,
+     * so they must not reference entities of other modules.
+     */
+    boolean isolated() default false;
+
+    /**
+     * maximum size of the connection pool of an isolated module
+     */
+    int poolSize() default 10;
+
+    /**
+     * JDBC batch size used by Hibernate for the entities of an isolated module, 0 disables batching
+     */
+    int batchSize() default 0;
+
+    /**
+     * If true, read-only transactions started by beans of the module are served by the read replica, if one is
+     * configured, see {@link com.werum.springmodules.runtime.ReadReplicaPostProcessor}
+     */
+    boolean replicaReads() default false;
+
+    /**
+     * number of databases the entities of the module are spread across by the hash of their {@link #shardKey()}. With
+     * more than one shard, each shard gets a DataSource, an EntityManagerFactory and a transaction manager of its own
+     * and the repositories of the module route to them, see {@link ShardedRepositoryFactoryBean}. The entities of the
+     * modules the module depends on are managed by the shards as well, as they may be referenced.
+     */
+    int shards() default 1;
+
+    /**
+     * property of the entities of a sharded module their shard is determined by, see {@link #shards()}
+     */
+    String shardKey() default "";
+}
@@ -0,0 +1,392 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.definition;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import com.werum.springmodules.definition.ResolvedModules.ResolvedModule;
+
+/**
+ * Registers a DataSource, an EntityManagerFactory and a transaction manager for each resolved module with isolated
+ * persistence (see {@link ModulePersistence#isolated()}) and binds the repositories of the module to them. The beans
+ * aren't candidates for autowiring by type, so the DataSource and the EntityManagerFactory shared by the other modules
+ * stay unique. They are named after the module, see {@link #dataSourceBeanName(ResolvedModule)},
+ * {@link #entityManagerFactoryBeanName(ResolvedModule)} and {@link #transactionManagerBeanName(ResolvedModule)}.
+ *
+ * The entities of a sharded module (see {@link ModulePersistence#shards()}) are spread across several persistence units
+ * of the same kind, one per shard. Its repositories are routed to the shards by a {@link ShardedRepositoryFactoryBean}
+ * and its identifiers are generated by a {@link ShardedSequenceGenerator}, so they are unique across the shards.
+ *
+ * Each persistence unit needs a url. Only if {@value #IN_MEMORY_FALLBACK_PROPERTY} is true, like in module tests,
+ * persistence units without url get an in-memory H2 database, whose schema is created on startup and dropped on
+ * shutdown.
+ *
+ * It is called by {@link ResolvedModules.BeanAssigningPostProcessor}. The entities of the module are left out of the
+ * other persistence units by the {@link ModuleEntityFilter}.
+ */
+public final class ModulePersistenceRegistrar {
+    public static final String PROPERTY_PREFIX = "spring.modules.persistence.";
+
+    public static final String IN_MEMORY_FALLBACK_PROPERTY = PROPERTY_PREFIX + "in-memory-fallback";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ModulePersistenceRegistrar.class);
+
+    private static final String HIKARI_DATA_SOURCE = "com.zaxxer.hikari.HikariDataSource";
+
+    private static final String HIBERNATE_PERSISTENCE_PROVIDER = "org.hibernate.jpa.HibernatePersistenceProvider";
+
+    private static final String H2_DRIVER = "org.h2.Driver";
+
+    private static final String PHYSICAL_NAMING_STRATEGY =
+            "org.springframework.boot.orm.jpa.hibernate.SpringPhysicalNamingStrategy";
+
+    private static final String IMPLICIT_NAMING_STRATEGY =
+            "org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy";
+
+    /**
+     * properties of the repository factory beans of spring data jpa
+     */
+    private static final String ENTITY_MANAGER = "entityManager";
+
+    private static final String TRANSACTION_MANAGER = "transactionManager";
+
+    private ModulePersistenceRegistrar() {
+
+    }
+
+    public static String dataSourceBeanName(ResolvedModule module) {
+        return beanName(module, -1, "dataSource");
+    }
+
+    public static String entityManagerFactoryBeanName(ResolvedModule module) {
+        return beanName(module, -1, "entityManagerFactory");
+    }
+
+    public static String transactionManagerBeanName(ResolvedModule module) {
+        return beanName(module, -1, "transactionManager");
+    }
+
+    /**
+     * @param shard index of the shard of a sharded module, counting from 0
+     */
+    public static String dataSourceBeanName(ResolvedModule module, int shard) {
+        return beanName(module, shard, "dataSource");
+    }
+
+    /**
+     * @param shard index of the shard of a sharded module, counting from 0
+     */
+    public static String entityManagerFactoryBeanName(ResolvedModule module, int shard) {
+        return beanName(module, shard, "entityManagerFactory");
+    }
+
+    /**
+     * @param shard index of the shard of a sharded module, counting from 0
+     */
+    public static String transactionManagerBeanName(ResolvedModule module, int shard) {
+        return beanName(module, shard, "transactionManager");
+    }
+
+    /**
+     * @param shard index of the shard, negative for the persistence of an isolated module
+     */
+    private static String beanName(ResolvedModule module, int shard, String suffix) {
+        return "springModules." + module.getName() + (shard < 0 ? "" : ".shard" + shard) + "." + suffix;
+    }
+
+    /**
+     * @return true, if the given bean is the EntityManagerFactory of the isolated module or of a shard of the sharded
+     *         module given
+     */
+    static boolean isEntityManagerFactoryOf(String beanName, ResolvedModule module) {
+        if (module.isPersistenceIsolated()) {
+            return beanName.equals(entityManagerFactoryBeanName(module));
+        }
+
+        return module.isPersistenceSharded() && IntStream.range(0, module.getShards())
+                .anyMatch(shard -> beanName.equals(entityManagerFactoryBeanName(module, shard)));
+    }
+
+    static void registerIsolatedPersistence(ConfigurableListableBeanFactory beanFactory,
+            ResolvedModules resolvedModules) {
+        Environment environment = beanFactory.containsBean(ConfigurableApplicationContext.ENVIRONMENT_BEAN_NAME)
+                ? beanFactory.getBean(ConfigurableApplicationContext.ENVIRONMENT_BEAN_NAME, Environment.class)
+                : new StandardEnvironment();
+        for (ResolvedModule module : resolvedModules.getModules()) {
+            int shards = shardsOf(module, environment);
+            if (shards > 1 && !beanFactory.containsBean(entityManagerFactoryBeanName(module, 0))) {
+                registerShards(beanFactory, resolvedModules, module, shards, environment);
+            } else if (module.isPersistenceIsolated()
+                    && !beanFactory.containsBean(entityManagerFactoryBeanName(module))) {
+                register(beanFactory, resolvedModules, module, environment);
+            }
+        }
+    }
+
+    private static int shardsOf(ResolvedModule module, Environment environment) {
+        if (!module.isPersistent() || module.getPersistence() == null) {
+            return 1;
+        }
+
+        return environment.getProperty(PROPERTY_PREFIX + module.getName() + ".shards", Integer.class,
+                module.getPersistence().shards());
+    }
+
+    private static void register(ConfigurableListableBeanFactory beanFactory, ResolvedModules resolvedModules,
+            ResolvedModule module, Environment environment) {
+        checkClasspath(beanFactory, module);
+        bindRepositories(beanFactory, module);
+        registerPersistenceUnit(beanFactory, resolvedModules, module, -1, module.getEntityPackages(), environment);
+    }
+
+    private static void registerShards(ConfigurableListableBeanFactory beanFactory, ResolvedModules resolvedModules,
+            ResolvedModule module, int shards, Environment environment) {
+        checkClasspath(beanFactory, module);
+        if (!StringUtils.hasText(module.getPersistence().shardKey())) {
+            throw new IllegalStateException(
+                    "Module " + module.getName() + " is spread across " + shards + " shards, but has no shard key");
+        }
+
+        module.setShards(shards);
+        Set<String> entityPackages = new LinkedHashSet<>(module.getEntityPackages());
+        addEntityPackagesOfDependencies(resolvedModules, module, entityPackages, new HashSet<>());
+        for (int shard = 0; shard < shards; shard++) {
+            registerPersistenceUnit(beanFactory, resolvedModules, module, shard, entityPackages, environment);
+        }
+        shardRepositories(beanFactory, resolvedModules, module, shards);
+    }
+
+    /**
+     * adds the entity packages of the resolved dependencies of the given module, as their entities may be referenced by
+     * the entities of the module
+     */
+    private static void addEntityPackagesOfDependencies(ResolvedModules resolvedModules, ResolvedModule module,
+            Set<String> entityPackages, Set<ResolvedModule> visited) {
+        for (Class<? extends ModuleDefinition> type : module.getDependencies()) {
+            ResolvedModule dependency = resolvedModules.getModule(type);
+            if (dependency != null && visited.add(dependency)) {
+                entityPackages.addAll(dependency.getEntityPackages());
+                addEntityPackagesOfDependencies(resolvedModules, dependency, entityPackages, visited);
+            }
+        }
+    }
+
+    private static void checkClasspath(ConfigurableListableBeanFactory beanFactory, ResolvedModule module) {
+        ClassLoader classLoader = beanFactory.getBeanClassLoader();
+        if (!ClassUtils.isPresent(HIKARI_DATA_SOURCE, classLoader)
+                || !ClassUtils.isPresent(HIBERNATE_PERSISTENCE_PROVIDER, classLoader)) {
+            throw new IllegalStateException("Isolated persistence of module " + module.getName()
+                    + " requires HikariCP and Hibernate on the classpath");
+        }
+    }
+
+    /**
+     * registers DataSource, EntityManagerFactory and transaction manager of an isolated module or of a shard
+     *
+     * @param shard index of the shard, negative for the persistence of an isolated module
+     */
+    private static void registerPersistenceUnit(ConfigurableListableBeanFactory beanFactory,
+            ResolvedModules resolvedModules, ResolvedModule module, int shard, Set<String> entityPackages,
+            Environment environment) {
+        String name = shard < 0 ? module.getName() : module.getName() + "-shard" + shard;
+        String modulePrefix = PROPERTY_PREFIX + module.getName() + ".";
+        String prefix = shard < 0 ? modulePrefix : modulePrefix + "shard" + shard + ".";
+        String url = environment.getProperty(prefix + "url");
+        String ddlAuto = property(environment, prefix, modulePrefix, "ddl-auto");
+        if (ddlAuto == null) {
+            ddlAuto = url == null ? "create-drop" : "none";
+        }
+        if (url == null) {
+            if (!environment.getProperty(IN_MEMORY_FALLBACK_PROPERTY, Boolean.class, false)) {
+                throw new IllegalStateException("No url configured for the persistence " + name + " of module "
+                        + module.getName() + ", set " + prefix + "url (or " + IN_MEMORY_FALLBACK_PROPERTY
+                        + "=true to use an in-memory H2 database)");
+            }
+            if (!ClassUtils.isPresent(H2_DRIVER, beanFactory.getBeanClassLoader())) {
+                throw new IllegalStateException("No url configured for the persistence " + name + " of module "
+                        + module.getName() + " and no H2 on the classpath, set " + prefix + "url");
+            }
+            url = "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+        }
+        String poolSize = property(environment, prefix, modulePrefix, "pool-size");
+        String batchSize = property(environment, prefix, modulePrefix, "batch-size");
+        int maximumPoolSize = poolSize == null ? module.getPersistence().poolSize() : Integer.parseInt(poolSize);
+        int jdbcBatchSize = batchSize == null ? module.getPersistence().batchSize() : Integer.parseInt(batchSize);
+
+        BeanDefinitionBuilder dataSource = BeanDefinitionBuilder.genericBeanDefinition(HIKARI_DATA_SOURCE)
+                .addPropertyValue("jdbcUrl", url).addPropertyValue("maximumPoolSize", maximumPoolSize)
+                .addPropertyValue("poolName", name);
+        addOptionalProperty(dataSource, "username", property(environment, prefix, modulePrefix, "username"));
+        addOptionalProperty(dataSource, "password", property(environment, prefix, modulePrefix, "password"));
+        addOptionalProperty(dataSource, "driverClassName",
+                property(environment, prefix, modulePrefix, "driver-class-name"));
+
+        Map<String, Object> jpaProperties = new HashMap<>();
+        jpaProperties.put("hibernate.hbm2ddl.auto", ddlAuto);
+        if (ClassUtils.isPresent(PHYSICAL_NAMING_STRATEGY, beanFactory.getBeanClassLoader())) {
+            jpaProperties.put("hibernate.physical_naming_strategy", PHYSICAL_NAMING_STRATEGY);
+            jpaProperties.put("hibernate.implicit_naming_strategy", IMPLICIT_NAMING_STRATEGY);
+        }
+        if (shard >= 0) {
+            jpaProperties.put(ShardedSequenceGenerator.StrategyProvider.PROPERTY,
+                    ShardedSequenceGenerator.StrategyProvider.class.getName());
+            jpaProperties.put(ShardedSequenceGenerator.SHARD, String.valueOf(shard));
+            jpaProperties.put(ShardedSequenceGenerator.SHARDS, String.valueOf(module.getShards()));
+        }
+        if (jdbcBatchSize > 0) {
+            jpaProperties.put("hibernate.jdbc.batch_size", String.valueOf(jdbcBatchSize));
+            jpaProperties.put("hibernate.order_inserts", "true");
+            jpaProperties.put("hibernate.order_updates", "true");
+        }
+        BeanDefinitionBuilder entityManagerFactory = BeanDefinitionBuilder
+                .genericBeanDefinition(LocalContainerEntityManagerFactoryBean.class)
+                .addPropertyReference("dataSource", beanName(module, shard, "dataSource"))
+                .addPropertyValue("packagesToScan", entityPackages.toArray(new String[0]))
+                .addPropertyValue("persistenceUnitName", name)
+                .addPropertyValue("jpaVendorAdapter", new RootBeanDefinition(HibernateJpaVendorAdapter.class))
+                .addPropertyValue("jpaPropertyMap", jpaProperties);
+
+        BeanDefinitionBuilder transactionManager = BeanDefinitionBuilder
+                .genericBeanDefinition(JpaTransactionManager.class)
+                .addPropertyReference("entityManagerFactory", beanName(module, shard, "entityManagerFactory"));
+
+        register(beanFactory, resolvedModules, module, beanName(module, shard, "dataSource"),
+                dataSource.getBeanDefinition());
+        register(beanFactory, resolvedModules, module, beanName(module, shard, "entityManagerFactory"),
+                entityManagerFactory.getBeanDefinition());
+        register(beanFactory, resolvedModules, module, beanName(module, shard, "transactionManager"),
+                transactionManager.getBeanDefinition());
+        LOGGER.debug("module {} uses its own persistence {} at {}, pool size {}, batch size {}", module.getName(),
+                name, url, maximumPoolSize, jdbcBatchSize);
+    }
+
+    /**
+     * @return the property of the shard or, if it doesn't configure it, the one of the module
+     */
+    private static String property(Environment environment, String prefix, String modulePrefix, String name) {
+        String ret = environment.getProperty(prefix + name);
+        return ret == null ? environment.getProperty(modulePrefix + name) : ret;
+    }
+
+    private static void addOptionalProperty(BeanDefinitionBuilder builder, String name, String value) {
+        if (value != null) {
+            builder.addPropertyValue(name, value);
+        }
+    }
+
+    private static void register(ConfigurableListableBeanFactory beanFactory, ResolvedModules resolvedModules,
+            ResolvedModule module, String beanName, AbstractBeanDefinition beanDefinition) {
+        beanDefinition.setAutowireCandidate(false);
+        ((BeanDefinitionRegistry) beanFactory).registerBeanDefinition(beanName, beanDefinition);
+        resolvedModules.assignBean(beanName, module);
+    }
+
+    /**
+     * replaces the shared entity manager and the transaction manager of the repository factory beans of the module
+     */
+    private static void bindRepositories(ConfigurableListableBeanFactory beanFactory, ResolvedModule module) {
+        for (String beanName : new ArrayList<>(module.getBeanNames())) {
+            MutablePropertyValues propertyValues = beanFactory.getBeanDefinition(beanName).getPropertyValues();
+            if (isRepository(propertyValues)) {
+                bind(propertyValues, module, -1);
+            }
+        }
+    }
+
+    /**
+     * registers a copy of each repository factory bean of the module per shard, bound to the persistence of the shard,
+     * and replaces the repository factory bean by a {@link ShardedRepositoryFactoryBean} routing to the copies
+     */
+    private static void shardRepositories(ConfigurableListableBeanFactory beanFactory,
+            ResolvedModules resolvedModules, ResolvedModule module, int shards) {
+        for (String beanName : new ArrayList<>(module.getBeanNames())) {
+            BeanDefinition repository = beanFactory.getBeanDefinition(beanName);
+            if (!isRepository(repository.getPropertyValues())) {
+                continue;
+            }
+
+            String[] shardRepositories = new String[shards];
+            String[] entityManagerFactories = new String[shards];
+            String[] transactionManagers = new String[shards];
+            for (int shard = 0; shard < shards; shard++) {
+                AbstractBeanDefinition shardRepository = ((AbstractBeanDefinition) repository).cloneBeanDefinition();
+                bind(shardRepository.getPropertyValues(), module, shard);
+                shardRepositories[shard] = beanName(module, shard, beanName);
+                entityManagerFactories[shard] = entityManagerFactoryBeanName(module, shard);
+                transactionManagers[shard] = transactionManagerBeanName(module, shard);
+                register(beanFactory, resolvedModules, module, shardRepositories[shard], shardRepository);
+            }
+
+            AbstractBeanDefinition router = BeanDefinitionBuilder
+                    .genericBeanDefinition(ShardedRepositoryFactoryBean.class)
+                    .addConstructorArgValue(
+                            repository.getConstructorArgumentValues().getIndexedArgumentValue(0, null).getValue())
+                    .addPropertyValue("shardRepositories", shardRepositories)
+                    .addPropertyValue("entityManagerFactories", entityManagerFactories)
+                    .addPropertyValue("transactionManagers", transactionManagers)
+                    .addPropertyValue("shardKey", module.getPersistence().shardKey())
+                    .addPropertyValue("entityPackages", module.getEntityPackages().toArray(new String[0]))
+                    .getBeanDefinition();
+            router.setPrimary(repository.isPrimary());
+            for (String attribute : repository.attributeNames()) {
+                router.setAttribute(attribute, repository.getAttribute(attribute));
+            }
+            ((BeanDefinitionRegistry) beanFactory).removeBeanDefinition(beanName);
+            ((BeanDefinitionRegistry) beanFactory).registerBeanDefinition(beanName, router);
+        }
+    }
+
+    private static boolean isRepository(MutablePropertyValues propertyValues) {
+        return propertyValues.contains(ENTITY_MANAGER) && propertyValues.contains(TRANSACTION_MANAGER);
+    }
+
+    /**
+     * @param shard index of the shard, negative for the persistence of an isolated module
+     */
+    private static void bind(MutablePropertyValues propertyValues, ResolvedModule module, int shard) {
+        propertyValues.add(TRANSACTION_MANAGER, beanName(module, shard, "transactionManager"));
+        propertyValues.add(ENTITY_MANAGER,
+                BeanDefinitionBuilder.rootBeanDefinition(SharedEntityManagerCreator.class)
+                        .setFactoryMethod("createSharedEntityManager")
+                        .addConstructorArgReference(beanName(module, shard, "entityManagerFactory"))
+                        .getBeanDefinition());
+    }
+}
@@ -0,0 +1,661 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.definition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.AnnotationAttributes;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.core.type.StandardAnnotationMetadata;
+import org.springframework.util.ClassUtils;
+
+import com.werum.springmodules.definition.ModuleGraph.Node;
+
+/**
+ * Registry of all modules resolved for an application context. It is registered as singleton {@value #BEAN_NAME} by
+ * {@link ModuleImportGroup} and knows which configuration class has been imported for which module. Once the bean
+ * factory has been post processed it also knows which bean definitions belong to which module.
+ *
+ * A bean belongs to a module if it is the module's configuration class, is created by a factory method of it, or its
+ * class (for repositories the repository interface) is located in one of the packages scanned by the configuration.
+ *
+ * A module is persistent if its imported configuration enables JPA repositories or scans entities. If no persistent
+ * module has been resolved and no importing class asks for persistence (i.e. a <tt>@DataJpaTest</tt>), persistence
+ * isn't required by the modules, see {@link #isPersistenceRequired()}.
+ *
+ * The entity packages of a module are the packages scanned by the <tt>@EntityScan</tt> of its configuration. An entity
+ * belongs to the module with the most specific entity package containing it; all modules of the module graphs and of
+ * the {@link ModuleIndex} are taken into account. Entities of modules whose configuration hasn't been imported are left
+ * out of the persistence units, see {@link ModuleEntityFilter}.
+ */
+public class ResolvedModules {
+    public static final String BEAN_NAME = "springModules.resolvedModules";
+
+    /**
+     * attribute used by spring data to store the repository interface at the repository factory bean definition
+     */
+    private static final String FACTORY_BEAN_OBJECT_TYPE = "factoryBeanObjectType";
+
+    private static final String ENTITY_SCAN = "org.springframework.boot.autoconfigure.domain.EntityScan";
+
+    private static final String ENTITY_MANAGER_FACTORY_BEAN =
+            "org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean";
+
+    /**
+     * annotations of configurations or importing classes using JPA
+     */
+    private static final String[] PERSISTENCE_ANNOTATIONS = {
+            "org.springframework.data.jpa.repository.config.EnableJpaRepositories",
+            ENTITY_SCAN,
+            "org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureDataJpa",
+            "org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase"};
+
+    private final Map<Class<? extends ModuleDefinition>, ResolvedModule> modules = new LinkedHashMap<>();
+
+    private final Map<String, ResolvedModule> modulesByBeanName = new HashMap<>();
+
+    private boolean persistenceImported;
+
+    /**
+     * entity packages of all known modules, whether their configuration has been imported or not
+     */
+    private final Set<String> entityPackages = new HashSet<>();
+
+    /**
+     * class loader of the module index whose modules haven't been added to {@link #entityPackages} yet
+     */
+    private ClassLoader indexClassLoader;
+
+    /**
+     * @return the registry of the given bean factory, a new one is registered if none exists yet
+     */
+    public static ResolvedModules register(ConfigurableListableBeanFactory beanFactory) {
+        synchronized (beanFactory) {
+            if (!beanFactory.containsSingleton(BEAN_NAME)) {
+                beanFactory.registerSingleton(BEAN_NAME, new ResolvedModules());
+                if (beanFactory instanceof BeanDefinitionRegistry) {
+                    RootBeanDefinition postProcessor = new RootBeanDefinition(BeanAssigningPostProcessor.class);
+                    postProcessor.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+                    ((BeanDefinitionRegistry) beanFactory)
+                            .registerBeanDefinition(BeanAssigningPostProcessor.class.getName(), postProcessor);
+                }
+            }
+
+            return (ResolvedModules) beanFactory.getSingleton(BEAN_NAME);
+        }
+    }
+
+    /**
+     * @return the registry of the given bean factory or null, if no modules have been imported into it
+     */
+    public static ResolvedModules get(BeanFactory beanFactory) {
+        return beanFactory.containsBean(BEAN_NAME) ? beanFactory.getBean(BEAN_NAME, ResolvedModules.class) : null;
+    }
+
+    /**
+     * resolves the modules imported by the given class (i.e. <tt>@Import(StudentControllerModule.class)</tt>) the same
+     * way they would be resolved when the class is registered at an application context, but without creating one
+     */
+    public static ResolvedModules resolve(Class<?> importingClass) {
+        List<ModuleDefinition> roots = new ArrayList<>();
+        for (Import importAnnotation : AnnotatedElementUtils.findAllMergedAnnotations(importingClass, Import.class)) {
+            for (Class<?> imported : importAnnotation.value()) {
+                if (ModuleDefinition.class.isAssignableFrom(imported)) {
+                    roots.add((ModuleDefinition) BeanUtils.instantiateClass(imported));
+                }
+            }
+        }
+
+        ModuleGraph moduleGraph = ModuleGraph.of(roots);
+        ResolvedModules ret = new ResolvedModules();
+        StandardAnnotationMetadata importingClassMetadata = new StandardAnnotationMetadata(importingClass, true);
+        ret.add(moduleGraph, ModuleDefinition.resolveConfigurations(importingClassMetadata, moduleGraph));
+        ret.addImportingClass(importingClassMetadata);
+        return ret;
+    }
+
+    /**
+     * @return the alternative configurations among the given configurations (see {@link ReplacesConfigurationClass}) by
+     * the module they replace the configuration of
+     */
+    static Map<Class<? extends ModuleDefinition>, Class<?>> replacements(Collection<Class<?>> importedConfigurations) {
+        Map<Class<? extends ModuleDefinition>, Class<?>> ret = new HashMap<>();
+        for (Class<?> importedConfiguration : importedConfigurations) {
+            ReplacesConfigurationClass replaces = AnnotatedElementUtils.findMergedAnnotation(importedConfiguration,
+                    ReplacesConfigurationClass.class);
+            if (replaces != null) {
+                ret.put(replaces.value(), importedConfiguration);
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * adds all modules of the given graph for which a configuration class has been imported
+     */
+    synchronized void add(ModuleGraph graph, Collection<Class<?>> importedConfigurations) {
+        Map<Class<? extends ModuleDefinition>, Class<?>> replacements = replacements(importedConfigurations);
+        for (Node node : graph.getNodes()) {
+            if (indexClassLoader == null) {
+                indexClassLoader = node.getType().getClassLoader();
+            }
+            entityPackages.addAll(entityPackagesOf(node.getComponentConfiguration()));
+            if (modules.containsKey(node.getType())) {
+                continue;
+            }
+
+            Class<?> configuration = replacements.get(node.getType());
+            if (configuration == null && importedConfigurations.contains(node.getComponentConfiguration())) {
+                configuration = node.getComponentConfiguration();
+            }
+            if (configuration != null) {
+                List<Class<? extends ModuleDefinition>> dependencies = new ArrayList<>();
+                node.getDependencies().forEach(dependency -> dependencies.add(dependency.getType()));
+                ResolvedModule module = new ResolvedModule(node.getType(), configuration,
+                        node.getComponentConfiguration(), node.isLazy(), node.getTier(), dependencies,
+                        node.getExportedTypes());
+                modules.put(node.getType(), module);
+                entityPackages.addAll(module.entityPackages);
+            }
+        }
+    }
+
+    /**
+     * records whether the given class importing modules asks for persistence itself
+     */
+    synchronized void addImportingClass(AnnotatedTypeMetadata importingClassMetadata) {
+        persistenceImported |= isPersistent(importingClassMetadata);
+    }
+
+    /**
+     * @return true, if a persistent module has been resolved or a class importing modules asks for persistence
+     */
+    public synchronized boolean isPersistenceRequired() {
+        return persistenceImported || modules.values().stream().anyMatch(ResolvedModule::isPersistent);
+    }
+
+    /**
+     * @return true, if the given configuration or importing class carries an annotation using JPA, i.e.
+     * <tt>@EnableJpaRepositories</tt> or <tt>@EntityScan</tt>
+     */
+    public static boolean isPersistent(AnnotatedTypeMetadata metadata) {
+        return Arrays.stream(PERSISTENCE_ANNOTATIONS).anyMatch(metadata::isAnnotated);
+    }
+
+    /**
+     * @return the packages scanned by the <tt>@EntityScan</tt> of the given configuration, empty if it isn't annotated
+     */
+    static Set<String> entityPackagesOf(Class<?> configuration) {
+        AnnotationAttributes entityScan = AnnotatedElementUtils.getMergedAnnotationAttributes(configuration,
+                ENTITY_SCAN, true, false);
+        if (entityScan == null) {
+            return Collections.emptySet();
+        }
+
+        Set<String> ret = new LinkedHashSet<>(Arrays.asList(entityScan.getStringArray("basePackages")));
+        for (String basePackageClass : entityScan.getStringArray("basePackageClasses")) {
+            ret.add(ClassUtils.getPackageName(basePackageClass));
+        }
+        if (ret.isEmpty()) {
+            ret.add(ClassUtils.getPackageName(configuration));
+        }
+
+        return ret;
+    }
+
+    /**
+     * @param className name of an entity class (or of a <tt>package-info</tt>)
+     * @return false, if the class belongs to a module whose configuration hasn't been imported. Classes outside of the
+     *         entity packages of all modules are always imported.
+     */
+    public synchronized boolean isEntityImported(String className) {
+        return ownerPackage(className) == null || getModuleOfEntity(className) != null;
+    }
+
+    /**
+     * @param className name of an entity class (or of a <tt>package-info</tt>)
+     * @return the module whose imported configuration scans the entity package the class belongs to or null, if the
+     *         class doesn't belong to an imported module
+     */
+    public synchronized ResolvedModule getModuleOfEntity(String className) {
+        String ownerPackage = ownerPackage(className);
+        if (ownerPackage == null) {
+            return null;
+        }
+
+        return modules.values().stream().filter(module -> module.entityPackages.contains(ownerPackage)).findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * @return the most specific entity package of all known modules containing the given class
+     */
+    private String ownerPackage(String className) {
+        addIndexedEntityPackages();
+        String ret = null;
+        for (String entityPackage : entityPackages) {
+            if (className.startsWith(entityPackage + ".") && (ret == null || entityPackage.length() > ret.length())) {
+                ret = entityPackage;
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * adds the entity packages of the indexed modules, which aren't part of the module graphs. Their configuration
+     * classes are loaded on the first query, so contexts without JPA don't load them.
+     */
+    private void addIndexedEntityPackages() {
+        if (indexClassLoader == null) {
+            return;
+        }
+
+        for (ModuleIndex.Entry entry : ModuleIndex.load(indexClassLoader).getEntries().values()) {
+            try {
+                entityPackages.addAll(
+                        entityPackagesOf(ClassUtils.forName(entry.getComponentConfiguration(), indexClassLoader)));
+            } catch (ClassNotFoundException | LinkageError e) {
+                // a stale index entry, the module can't be part of the context either
+            }
+        }
+        indexClassLoader = null;
+    }
+
+    /**
+     * @return all resolved modules in order of their resolution
+     */
+    public synchronized List<ResolvedModule> getModules() {
+        return Collections.unmodifiableList(new ArrayList<>(modules.values()));
+    }
+
+    /**
+     * @return time spent creating the beans of each module, see {@link ResolvedModule#getInitializationNanos()}
+     */
+    public synchronized Map<ResolvedModule, Long> getInitializationNanos() {
+        Map<ResolvedModule, Long> ret = new LinkedHashMap<>();
+        modules.values().forEach(module -> ret.put(module, module.getInitializationNanos()));
+        return ret;
+    }
+
+    /**
+     * @return the resolved module of the given type or null, if the module isn't part of the application context
+     */
+    public synchronized ResolvedModule getModule(Class<? extends ModuleDefinition> type) {
+        return modules.get(type);
+    }
+
+    /**
+     * @return the module the given bean belongs to or null, if the bean doesn't belong to any module
+     */
+    public synchronized ResolvedModule getModuleOfBean(String beanName) {
+        return modulesByBeanName.get(beanName);
+    }
+
+    /**
+     * @return the module whose configuration scans the most specific package containing the given class or null, if the
+     *         class doesn't belong to any module
+     */
+    public synchronized ResolvedModule getModuleOfClass(String className) {
+        ResolvedModule ret = null;
+        String retPackage = null;
+        for (ResolvedModule module : modules.values()) {
+            for (String basePackage : scannedPackages(module)) {
+                if (className.startsWith(basePackage + ".")
+                        && (retPackage == null || basePackage.length() > retPackage.length())) {
+                    ret = module;
+                    retPackage = basePackage;
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    synchronized void assignBeans(ConfigurableListableBeanFactory beanFactory) {
+        Map<String, ResolvedModule> modulesByConfiguration = new HashMap<>();
+        Map<String, ResolvedModule> modulesByPackage = new HashMap<>();
+        for (ResolvedModule module : modules.values()) {
+            modulesByConfiguration.put(module.configuration.getName(), module);
+            for (String basePackage : scannedPackages(module)) {
+                modulesByPackage.putIfAbsent(basePackage, module);
+            }
+        }
+        List<String> packagesLongestFirst = new ArrayList<>(modulesByPackage.keySet());
+        packagesLongestFirst.sort(Comparator.comparing(String::length).reversed());
+
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            if (modulesByBeanName.containsKey(beanName)) {
+                continue;
+            }
+
+            BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+            ResolvedModule module = modulesByConfiguration.get(beanName);
+            if (module == null && beanDefinition.getFactoryBeanName() != null) {
+                module = modulesByConfiguration.get(beanDefinition.getFactoryBeanName());
+            }
+            if (module == null) {
+                String className = beanClassName(beanDefinition);
+                for (String basePackage : packagesLongestFirst) {
+                    if (className != null && className.startsWith(basePackage + ".")) {
+                        module = modulesByPackage.get(basePackage);
+                        break;
+                    }
+                }
+            }
+
+            if (module != null) {
+                modulesByBeanName.put(beanName, module);
+                module.beanNames.add(beanName);
+            }
+        }
+    }
+
+    /**
+     * assigns a bean registered after the bean factory has been post processed to the given module
+     */
+    synchronized void assignBean(String beanName, ResolvedModule module) {
+        modulesByBeanName.put(beanName, module);
+        module.beanNames.add(beanName);
+    }
+
+    private Set<String> scannedPackages(ResolvedModule module) {
+        Set<String> ret = new LinkedHashSet<>();
+        if (!module.replaced) {
+            ret.add(ClassUtils.getPackageName(module.configuration));
+        }
+
+        ComponentScan componentScan = AnnotatedElementUtils.findMergedAnnotation(module.configuration,
+                ComponentScan.class);
+        if (componentScan != null) {
+            ret.addAll(Arrays.asList(componentScan.basePackages()));
+            for (Class<?> basePackageClass : componentScan.basePackageClasses()) {
+                ret.add(ClassUtils.getPackageName(basePackageClass));
+            }
+            if (ret.isEmpty()) {
+                ret.add(ClassUtils.getPackageName(module.configuration));
+            }
+        }
+
+        return ret;
+    }
+
+    private String beanClassName(BeanDefinition beanDefinition) {
+        Object objectType = beanDefinition.getAttribute(FACTORY_BEAN_OBJECT_TYPE);
+        if (objectType instanceof Class) {
+            return ((Class<?>) objectType).getName();
+        }
+        if (objectType instanceof String) {
+            return (String) objectType;
+        }
+
+        return beanDefinition.getBeanClassName();
+    }
+
+    /**
+     * A module that is part of the application context, either with its own or with an alternative configuration
+     */
+    public static final class ResolvedModule {
+        private final Class<? extends ModuleDefinition> type;
+
+        private final Class<?> configuration;
+
+        private final Class<?> declaredConfiguration;
+
+        private final boolean replaced;
+
+        private final boolean lazy;
+
+        private final int tier;
+
+        private final List<Class<? extends ModuleDefinition>> dependencies;
+
+        private final Set<Class<?>> exportedTypes;
+
+        private final boolean persistent;
+
+        private final Set<String> entityPackages;
+
+        private final ModulePersistence persistence;
+
+        private final Set<String> beanNames = new LinkedHashSet<>();
+
+        private volatile int shards = 1;
+
+        private final AtomicLong initializationNanos = new AtomicLong();
+
+        ResolvedModule(Class<? extends ModuleDefinition> type, Class<?> configuration, Class<?> declaredConfiguration,
+                boolean lazy, int tier, List<Class<? extends ModuleDefinition>> dependencies,
+                Set<Class<?>> exportedTypes) {
+            this.type = type;
+            this.configuration = configuration;
+            this.declaredConfiguration = declaredConfiguration;
+            this.replaced = configuration != declaredConfiguration;
+            this.lazy = lazy;
+            this.tier = tier;
+            this.dependencies = Collections.unmodifiableList(dependencies);
+            this.exportedTypes = Collections.unmodifiableSet(exportedTypes);
+            this.persistent = ResolvedModules.isPersistent(new StandardAnnotationMetadata(configuration));
+            this.entityPackages = Collections.unmodifiableSet(entityPackagesOf(configuration));
+            this.persistence = ModuleDefinition.persistenceOf(configuration);
+        }
+
+        public Class<? extends ModuleDefinition> getType() {
+            return type;
+        }
+
+        public String getName() {
+            return type.getSimpleName();
+        }
+
+        /**
+         * @return the configuration class imported for this module
+         */
+        public Class<?> getConfiguration() {
+            return configuration;
+        }
+
+        /**
+         * @return the configuration class declared by the module, differs from {@link #getConfiguration()} if it has
+         *         been replaced
+         */
+        public Class<?> getDeclaredConfiguration() {
+            return declaredConfiguration;
+        }
+
+        /**
+         * @return true, if the configuration of the module has been replaced by an alternative configuration
+         */
+        public boolean isReplaced() {
+            return replaced;
+        }
+
+        /**
+         * @return true, if the module is activated on first access, see {@link ModuleDefinition#isLazy()}
+         */
+        public boolean isLazy() {
+            return lazy;
+        }
+
+        /**
+         * @return the topological tier of the module, see {@link ModuleGraph#getTiers()}
+         */
+        public int getTier() {
+            return tier;
+        }
+
+        /**
+         * @return the modules this module declares dependencies on
+         */
+        public List<Class<? extends ModuleDefinition>> getDependencies() {
+            return dependencies;
+        }
+
+        /**
+         * @return the types the module exports (see {@link ModuleDefinition#getExportedTypes()}), even if its
+         *         configuration has been replaced. Empty if all beans are exported
+         */
+        public Set<Class<?>> getExportedTypes() {
+            return exportedTypes;
+        }
+
+        /**
+         * @return true, if the imported configuration of the module enables JPA repositories or scans entities
+         */
+        public boolean isPersistent() {
+            return persistent;
+        }
+
+        /**
+         * @return the packages scanned for entities by the imported configuration of the module
+         */
+        public Set<String> getEntityPackages() {
+            return entityPackages;
+        }
+
+        /**
+         * @return the persistence settings of the imported configuration or null, if it isn't a module configuration
+         */
+        public ModulePersistence getPersistence() {
+            return persistence;
+        }
+
+        /**
+         * @return true, if the module has a DataSource and EntityManagerFactory of its own, see
+         *         {@link ModulePersistence#isolated()}
+         */
+        public boolean isPersistenceIsolated() {
+            return persistent && persistence != null && persistence.isolated();
+        }
+
+        /**
+         * @return number of shards the entities of the module are spread across, 1 if they aren't sharded
+         */
+        public int getShards() {
+            return shards;
+        }
+
+        void setShards(int shards) {
+            this.shards = shards;
+        }
+
+        /**
+         * @return true, if the entities of the module are spread across several shards, see
+         *         {@link ModulePersistence#shards()}
+         */
+        public boolean isPersistenceSharded() {
+            return shards > 1;
+        }
+
+        /**
+         * @return names of the bean definitions belonging to this module
+         */
+        public Set<String> getBeanNames() {
+            return Collections.unmodifiableSet(beanNames);
+        }
+
+        /**
+         * @return time spent creating the beans of this module, excluding the time spent on beans of other modules
+         */
+        public long getInitializationNanos() {
+            return initializationNanos.get();
+        }
+
+        void addInitializationNanos(long nanos) {
+            initializationNanos.addAndGet(nanos);
+        }
+
+        @Override
+        public String toString() {
+            return getName();
+        }
+    }
+
+    /**
+     * marks the bean definitions of all lazy modules lazy-init
+     *
+     * @return true, if there are lazy modules
+     */
+    synchronized boolean applyLazyInit(ConfigurableListableBeanFactory beanFactory) {
+        boolean ret = false;
+        for (ResolvedModule module : modules.values()) {
+            if (module.lazy) {
+                module.beanNames.forEach(beanName -> beanFactory.getBeanDefinition(beanName).setLazyInit(true));
+                ret = true;
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * {@link BeanFactoryPostProcessor} assigning the bean definitions of the bean factory to the resolved modules,
+     * deferring the creation of lazy modules to a {@link LazyModuleActivator} and recording the creation of module
+     * beans by a {@link ModuleInitializationPostProcessor}. Modules with isolated persistence get their persistence
+     * beans from the {@link ModulePersistenceRegistrar}, the persistence units of the context are restricted to the
+     * entities of the imported modules by a {@link ModuleEntityFilter}.
+     */
+    public static class BeanAssigningPostProcessor implements BeanFactoryPostProcessor, Ordered {
+        @Override
+        public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+            ResolvedModules resolvedModules = get(beanFactory);
+            if (resolvedModules != null) {
+                resolvedModules.assignBeans(beanFactory);
+                if (ClassUtils.isPresent(ENTITY_MANAGER_FACTORY_BEAN, beanFactory.getBeanClassLoader())
+                        && beanFactory instanceof BeanDefinitionRegistry) {
+                    ModulePersistenceRegistrar.registerIsolatedPersistence(beanFactory, resolvedModules);
+                }
+                if (resolvedModules.applyLazyInit(beanFactory)) {
+                    beanFactory.addBeanPostProcessor(new LazyModuleActivator(beanFactory, resolvedModules));
+                }
+                beanFactory.addBeanPostProcessor(new ModuleInitializationPostProcessor(beanFactory, resolvedModules));
+                if (ClassUtils.isPresent(ENTITY_MANAGER_FACTORY_BEAN, beanFactory.getBeanClassLoader())) {
+                    beanFactory.addBeanPostProcessor(new ModuleEntityFilter(resolvedModules));
+                }
+            }
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,558 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.definition;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.ToIntFunction;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.SingularAttribute;
+
+import org.hibernate.ReplicationMode;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.beans.PropertyAccessor;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.NullHandling;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.data.repository.core.RepositoryMetadata;
+import org.springframework.data.repository.core.support.AbstractRepositoryMetadata;
+import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@link FactoryBean} creating the repository of a sharded module (see {@link ModulePersistence#shards()}). It routes
+ * to a repository per shard, which is bound to the persistence of the shard by the {@link ModulePersistenceRegistrar}.
+ * An entity belongs to the shard given by the hash of its shard key, see {@link #shardOf(Object, int)}.
+ *
+ * Methods taking entities (i.e. <tt>save</tt>, <tt>saveAll</tt> or <tt>delete</tt>), methods taking the shard key only
+ * (i.e. <tt>findByMatrikelNo</tt>) and methods named <tt>...ById</tt> taking identifiers generated by the
+ * {@link ShardedSequenceGenerator} (i.e. <tt>findById</tt>, <tt>existsById</tt>, <tt>deleteById</tt> or
+ * <tt>findAllById</tt>) are routed to the owning shards. All other methods are invoked on all shards in parallel and
+ * their results are gathered: collections are concatenated, counts summed, optionals and entities are taken from the
+ * first shard returning one. Collections of methods taking a {@link Sort} or ordering by their name (i.e.
+ * <tt>findByCourseIdOrderByName</tt>) are merged in that order. Methods returning other types, like pages or streams,
+ * methods taking a page and queries ordering by their <tt>@Query</tt> are rejected.
+ *
+ * Entities of other modules referenced by an entity (i.e. the course of a student) are owned by the shared persistence
+ * unit and are referenced by their identifier only: they have to be saved there first, the shard keeps a copy of them
+ * just to satisfy its mapping, and the references of the entities returned are read from the shared persistence unit
+ * again. Queries of the shards joining them see the copy as it was when the entity has been saved last.
+ *
+ * Each shard is accessed in a transaction of its own. As they can't take part in the transaction of the caller,
+ * modifying methods (whose name starts with <tt>save</tt>, <tt>delete</tt> or <tt>remove</tt>) are rejected while a
+ * transaction is active.
+ */
+public class ShardedRepositoryFactoryBean implements FactoryBean<Object>, BeanFactoryAware, InitializingBean,
+        DisposableBean {
+    private static final String[] MODIFYING_PREFIXES = {"save", "delete", "remove"};
+
+    private static final Pattern ORDER_BY = Pattern.compile("\\border\\s+by\\b", Pattern.CASE_INSENSITIVE);
+
+    private final Class<?> repositoryInterface;
+
+    private final Class<?> domainType;
+
+    private final Class<?> idType;
+
+    private BeanFactory beanFactory;
+
+    private String[] shardRepositories;
+
+    private String[] entityManagerFactories;
+
+    private String[] transactionManagers;
+
+    private String shardKey;
+
+    private String[] entityPackages = {};
+
+    private Shard[] shards;
+
+    /**
+     * true, if the identifiers of the entities are generated by the {@link ShardedSequenceGenerator}
+     */
+    private boolean routedById;
+
+    private EntityManager sharedEntityManager;
+
+    private ExecutorService executor;
+
+    private Object repository;
+
+    /**
+     * ordering of the query methods given by their names, see {@link #sortOf(Method, Object[])}
+     */
+    private final Map<Method, Sort> derivedSorts = new ConcurrentHashMap<>();
+
+    public ShardedRepositoryFactoryBean(Class<?> repositoryInterface) {
+        RepositoryMetadata metadata = AbstractRepositoryMetadata.getMetadata(repositoryInterface);
+        this.repositoryInterface = repositoryInterface;
+        this.domainType = metadata.getDomainType();
+        this.idType = metadata.getIdType();
+    }
+
+    /**
+     * @return index of the shard owning the entities with the given shard key
+     */
+    public static int shardOf(Object key, int shards) {
+        return Math.floorMod(key.hashCode(), shards);
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
+    }
+
+    /**
+     * @param shardRepositories names of the repositories of the shards, ordered by shard
+     */
+    public void setShardRepositories(String[] shardRepositories) {
+        this.shardRepositories = shardRepositories;
+    }
+
+    /**
+     * @param entityManagerFactories names of the EntityManagerFactories of the shards, ordered by shard
+     */
+    public void setEntityManagerFactories(String[] entityManagerFactories) {
+        this.entityManagerFactories = entityManagerFactories;
+    }
+
+    /**
+     * @param transactionManagers names of the transaction managers of the shards, ordered by shard
+     */
+    public void setTransactionManagers(String[] transactionManagers) {
+        this.transactionManagers = transactionManagers;
+    }
+
+    public void setShardKey(String shardKey) {
+        this.shardKey = shardKey;
+    }
+
+    /**
+     * @param entityPackages entity packages of the sharded module, referenced entities outside of them belong to the
+     *        shared persistence unit
+     */
+    public void setEntityPackages(String[] entityPackages) {
+        this.entityPackages = entityPackages;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        shards = new Shard[shardRepositories.length];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(beanFactory.getBean(shardRepositories[i], repositoryInterface),
+                    beanFactory.getBean(entityManagerFactories[i], EntityManagerFactory.class),
+                    beanFactory.getBean(transactionManagers[i], PlatformTransactionManager.class));
+        }
+        routedById = shards[0].entityManagerFactory.unwrap(SessionFactoryImplementor.class).getMetamodel()
+                .entityPersister(domainType).getIdentifierGenerator() instanceof ShardedSequenceGenerator;
+        sharedEntityManager = SharedEntityManagerCreator
+                .createSharedEntityManager(beanFactory.getBean(EntityManagerFactory.class));
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+                repositoryInterface.getSimpleName() + "-shard-");
+        threadFactory.setDaemon(true);
+        executor = Executors.newFixedThreadPool(shards.length, threadFactory);
+        repository = Proxy.newProxyInstance(repositoryInterface.getClassLoader(), new Class<?>[] {repositoryInterface},
+                (proxy, method, args) -> invoke(proxy, method, args));
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public Object getObject() {
+        return repository;
+    }
+
+    @Override
+    public Class<?> getObjectType() {
+        return repositoryInterface;
+    }
+
+    private Object invoke(Object proxy, Method method, Object[] args) {
+        if (method.getDeclaringClass() == Object.class) {
+            switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return "sharded " + repositoryInterface.getName();
+            }
+        }
+        if (isModifying(method) && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalTransactionStateException("The shards of " + repositoryInterface.getSimpleName()
+                    + " can't take part in the active transaction, call " + method.getName()
+                    + " outside of transactions");
+        }
+
+        return resolveReferences(route(method, args), new HashMap<>());
+    }
+
+    private static boolean isModifying(Method method) {
+        return Arrays.stream(MODIFYING_PREFIXES).anyMatch(prefix -> method.getName().startsWith(prefix));
+    }
+
+    private Object route(Method method, Object[] args) {
+        Object argument = args != null && args.length == 1 ? args[0] : null;
+        if (domainType.isInstance(argument)) {
+            return invokeOnShard(shardOfEntity(argument), method, args, Collections.singletonList(argument));
+        }
+        if (argument != null && method.getName().endsWith("By" + StringUtils.capitalize(shardKey))) {
+            return ReflectionUtils.invokeMethod(method, shards[shardOf(argument, shards.length)].repository, args);
+        }
+        if (isRoutedById(method) && argument instanceof Number && idType.isInstance(argument)) {
+            return ReflectionUtils.invokeMethod(method, shards[shardOfId(argument)].repository, args);
+        }
+        if (argument instanceof Iterable && isIterableOf((Iterable<?>) argument, domainType)) {
+            return invokeByShard(method, (Iterable<?>) argument, this::shardOfEntity, true);
+        }
+        if (isRoutedById(method) && argument instanceof Iterable && isIterableOf((Iterable<?>) argument, idType)) {
+            return invokeByShard(method, (Iterable<?>) argument, this::shardOfId, false);
+        }
+
+        return gather(method, args,
+                scatter(shard -> ReflectionUtils.invokeMethod(method, shards[shard].repository, args)));
+    }
+
+    /**
+     * @return true, if the given method takes identifiers of entities (i.e. <tt>findById</tt> or
+     * <tt>findAllById</tt>), which tell the owning shards. Other methods taking numbers, like
+     * <tt>countByCourseId</tt>, are invoked on all shards.
+     */
+    private boolean isRoutedById(Method method) {
+        return routedById && method.getName().endsWith("ById");
+    }
+
+    /**
+     * @return true, if the given iterable isn't empty and contains instances of the given type only
+     */
+    private static boolean isIterableOf(Iterable<?> iterable, Class<?> type) {
+        boolean ret = false;
+        for (Object element : iterable) {
+            if (!type.isInstance(element)) {
+                return false;
+            }
+            ret = true;
+        }
+
+        return ret;
+    }
+
+    /**
+     * invokes the given method taking entities or identifiers on each shard with the ones owned by it
+     */
+    private Object invokeByShard(Method method, Iterable<?> elements, ToIntFunction<Object> shardOf,
+            boolean entities) {
+        Map<Integer, List<Object>> elementsByShard = new LinkedHashMap<>();
+        for (Object element : elements) {
+            elementsByShard.computeIfAbsent(shardOf.applyAsInt(element), shard -> new ArrayList<>()).add(element);
+        }
+
+        return gather(method, null, scatter(shard -> {
+            List<Object> owned = elementsByShard.get(shard);
+            if (owned == null) {
+                return null;
+            }
+
+            return entities ? invokeOnShard(shard, method, new Object[] {owned}, owned)
+                    : ReflectionUtils.invokeMethod(method, shards[shard].repository, new Object[] {owned});
+        }));
+    }
+
+    private Object invokeOnShard(int index, Method method, Object[] args, Collection<?> entities) {
+        Shard shard = shards[index];
+        return shard.transactionTemplate.execute(status -> {
+            entities.forEach(entity -> copyReferences(shard, entity));
+            return ReflectionUtils.invokeMethod(method, shard.repository, args);
+        });
+    }
+
+    /**
+     * copies the entities of other modules referenced by the given entity into the given shard, keeping their
+     * identifiers
+     */
+    private void copyReferences(Shard shard, Object entity) {
+        for (SingularAttribute<?, ?> attribute : referenceAttributes(entity)) {
+            PropertyAccessor accessor = accessor(entity, attribute);
+            Object reference = accessor.getPropertyValue(attribute.getName());
+            if (reference == null || shard.entityManager.contains(reference)) {
+                continue;
+            }
+            Object id = shard.entityManagerFactory.getPersistenceUnitUtil().getIdentifier(reference);
+            if (id == null || id instanceof Number && ((Number) id).longValue() == 0) {
+                throw new IllegalArgumentException("The " + attribute.getName() + " referenced by " + entity
+                        + " has to be saved before, it isn't owned by the shards of "
+                        + repositoryInterface.getSimpleName());
+            }
+
+            if (shard.entityManager.find(attribute.getJavaType(), id) == null) {
+                shard.entityManager.unwrap(Session.class).replicate(reference, ReplicationMode.OVERWRITE);
+            } else {
+                accessor.setPropertyValue(attribute.getName(), shard.entityManager.merge(reference));
+            }
+        }
+    }
+
+    /**
+     * replaces the entities of other modules referenced by the entities in the given result by their current state in
+     * the shared persistence unit
+     *
+     * @param resolved entities read from the shared persistence unit so far, by type and identifier
+     */
+    private Object resolveReferences(Object result, Map<List<Object>, Object> resolved) {
+        if (result instanceof Optional) {
+            ((Optional<?>) result).ifPresent(entity -> resolveReferences(entity, resolved));
+        } else if (result instanceof Iterable) {
+            ((Iterable<?>) result).forEach(element -> resolveReferences(element, resolved));
+        } else if (domainType.isInstance(result)) {
+            for (SingularAttribute<?, ?> attribute : referenceAttributes(result)) {
+                PropertyAccessor accessor = accessor(result, attribute);
+                Object reference = accessor.getPropertyValue(attribute.getName());
+                if (reference != null) {
+                    Object id = shards[0].entityManagerFactory.getPersistenceUnitUtil().getIdentifier(reference);
+                    accessor.setPropertyValue(attribute.getName(),
+                            resolved.computeIfAbsent(Arrays.asList(attribute.getJavaType(), id),
+                                    key -> sharedEntityManager.find(attribute.getJavaType(), id)));
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the associations of the given entity to entities of other modules
+     */
+    private List<SingularAttribute<?, ?>> referenceAttributes(Object entity) {
+        return shards[0].entityManagerFactory.getMetamodel().entity(entity.getClass()).getSingularAttributes()
+                .stream().filter(attribute -> attribute.isAssociation() && !isOwnEntity(attribute.getJavaType()))
+                .collect(Collectors.toList());
+    }
+
+    private static PropertyAccessor accessor(Object entity, SingularAttribute<?, ?> attribute) {
+        return attribute.getJavaMember() instanceof Field ? new DirectFieldAccessor(entity)
+                : new BeanWrapperImpl(entity);
+    }
+
+    private boolean isOwnEntity(Class<?> type) {
+        return Arrays.stream(entityPackages).anyMatch(entityPackage -> type.getName().startsWith(entityPackage + "."));
+    }
+
+    private int shardOfEntity(Object entity) {
+        Object key = new BeanWrapperImpl(entity).getPropertyValue(shardKey);
+        if (key == null) {
+            throw new IllegalArgumentException(
+                    "Can't determine the shard of " + entity + ", its " + shardKey + " isn't set");
+        }
+
+        return shardOf(key, shards.length);
+    }
+
+    private int shardOfId(Object id) {
+        return ShardedSequenceGenerator.shardOf((Number) id, shards.length);
+    }
+
+    /**
+     * @return the results of the given call on all shards, ordered by shard
+     */
+    private List<Object> scatter(ShardCall call) {
+        List<CompletableFuture<Object>> futures = new ArrayList<>();
+        for (int i = 0; i < shards.length; i++) {
+            int shard = i;
+            futures.add(CompletableFuture.supplyAsync(() -> call.invoke(shard), executor));
+        }
+
+        List<Object> ret = new ArrayList<>();
+        for (CompletableFuture<Object> future : futures) {
+            try {
+                ret.add(future.join());
+            } catch (CompletionException e) {
+                ReflectionUtils.rethrowRuntimeException(e.getCause());
+            }
+        }
+
+        return ret;
+    }
+
+    private Object gather(Method method, Object[] args, List<Object> results) {
+        Class<?> type = method.getReturnType();
+        List<Object> nonNullResults = results.stream().filter(result -> result != null).collect(Collectors.toList());
+        if (type == void.class) {
+            return null;
+        } else if (type == Optional.class) {
+            return nonNullResults.stream().map(result -> (Optional<?>) result).filter(Optional::isPresent)
+                    .findFirst().orElse(Optional.empty());
+        } else if (type == long.class || type == Long.class) {
+            return nonNullResults.stream().mapToLong(result -> ((Number) result).longValue()).sum();
+        } else if (type == int.class || type == Integer.class) {
+            return nonNullResults.stream().mapToInt(result -> ((Number) result).intValue()).sum();
+        } else if (type == boolean.class || type == Boolean.class) {
+            return nonNullResults.stream().anyMatch(Boolean.TRUE::equals);
+        } else if (type.isAssignableFrom(ArrayList.class) || type.isAssignableFrom(LinkedHashSet.class)) {
+            List<Object> ret = new ArrayList<>();
+            nonNullResults.forEach(result -> ((Iterable<?>) result).forEach(ret::add));
+            Sort sort = sortOf(method, args);
+            if (sort.isSorted()) {
+                // the results of the shards are sorted already, so this merges them
+                ret.sort((left, right) -> compare(left, right, sort));
+            }
+            return type.isAssignableFrom(ArrayList.class) ? ret : new LinkedHashSet<>(ret);
+        } else if (type.isAssignableFrom(domainType)) {
+            return nonNullResults.isEmpty() ? null : nonNullResults.get(0);
+        }
+
+        throw new UnsupportedOperationException(repositoryInterface.getSimpleName() + "." + method.getName()
+                + " returns " + type.getSimpleName() + ", which can't be gathered from the shards");
+    }
+
+    /**
+     * @return the order of the results of the given query method: the ordering of its name combined with the
+     *         {@link Sort} passed
+     */
+    private Sort sortOf(Method method, Object[] args) {
+        Sort ret = derivedSorts.computeIfAbsent(method, this::derivedSort);
+        for (Object arg : args == null ? new Object[0] : args) {
+            if (arg instanceof Sort) {
+                ret = ret.and((Sort) arg);
+            } else if (arg instanceof Pageable) {
+                if (((Pageable) arg).isPaged()) {
+                    throw new UnsupportedOperationException(repositoryInterface.getSimpleName() + "."
+                            + method.getName() + " takes a page, which can't be gathered from the shards");
+                }
+                ret = ret.and(((Pageable) arg).getSort());
+            }
+        }
+
+        return ret;
+    }
+
+    private Sort derivedSort(Method method) {
+        Query query = AnnotatedElementUtils.findMergedAnnotation(method, Query.class);
+        if (query != null) {
+            if (ORDER_BY.matcher(query.value()).find()) {
+                throw new UnsupportedOperationException(repositoryInterface.getSimpleName() + "." + method.getName()
+                        + " orders by its query, its results can't be merged from the shards");
+            }
+            return Sort.unsorted();
+        }
+
+        try {
+            return new PartTree(method.getName(), domainType).getSort();
+        } catch (IllegalArgumentException | PropertyReferenceException e) {
+            // no query method, i.e. saveAll
+            return Sort.unsorted();
+        }
+    }
+
+    /**
+     * compares the given entities by the properties of the given sort. Like in H2, null values are lower than all
+     * others unless the sort tells otherwise.
+     */
+    private static int compare(Object left, Object right, Sort sort) {
+        for (Sort.Order order : sort) {
+            Object leftValue = new BeanWrapperImpl(left).getPropertyValue(order.getProperty());
+            Object rightValue = new BeanWrapperImpl(right).getPropertyValue(order.getProperty());
+            int ret;
+            if (leftValue == null || rightValue == null) {
+                if (leftValue == rightValue) {
+                    continue;
+                }
+                ret = leftValue == null ? -1 : 1;
+                if (order.getNullHandling() != NullHandling.NATIVE) {
+                    return order.getNullHandling() == NullHandling.NULLS_FIRST ? ret : -ret;
+                }
+            } else if (order.isIgnoreCase() && leftValue instanceof String) {
+                ret = ((String) leftValue).compareToIgnoreCase((String) rightValue);
+            } else {
+                ret = compareValues(leftValue, rightValue);
+            }
+            if (ret != 0) {
+                return order.isAscending() ? ret : -ret;
+            }
+        }
+
+        return 0;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareValues(Object left, Object right) {
+        return ((Comparable) left).compareTo(right);
+    }
+
+    @FunctionalInterface
+    private interface ShardCall {
+        Object invoke(int shard);
+    }
+
+    private static final class Shard {
+        private final Object repository;
+
+        private final EntityManagerFactory entityManagerFactory;
+
+        private final EntityManager entityManager;
+
+        private final TransactionTemplate transactionTemplate;
+
+        private Shard(Object repository, EntityManagerFactory entityManagerFactory,
+                PlatformTransactionManager transactionManager) {
+            this.repository = repository;
+            this.entityManagerFactory = entityManagerFactory;
+            this.entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+            this.transactionTemplate = new TransactionTemplate(transactionManager);
+        }
+    }
+}
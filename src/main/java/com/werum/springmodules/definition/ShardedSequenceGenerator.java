@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.definition;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.jpa.spi.IdentifierGeneratorStrategyProvider;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * Sequence based identifier generator of the shards of a sharded module (see {@link ModulePersistence#shards()}). The
+ * sequence of each shard counts on its own, so the generated values are spread across the shards: value <tt>n</tt> of
+ * shard <tt>s</tt> becomes <tt>n * shards + s</tt>. The identifiers are unique across all shards and the shard owning
+ * an entity is given by its identifier modulo the number of shards.
+ *
+ * It replaces the sequence generator of the persistence unit of each shard, see {@link StrategyProvider}.
+ */
+public class ShardedSequenceGenerator extends SequenceStyleGenerator {
+    /**
+     * Hibernate settings of the persistence unit of a shard: index of the shard and number of shards
+     */
+    public static final String SHARD = "spring.modules.shard";
+
+    public static final String SHARDS = "spring.modules.shards";
+
+    private int shard;
+
+    private int shards = 1;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) {
+        super.configure(type, params, serviceRegistry);
+        Map<?, ?> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+        shard = ConfigurationHelper.getInt(SHARD, settings, 0);
+        shards = ConfigurationHelper.getInt(SHARDS, settings, 1);
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        Serializable value = super.generate(session, object);
+        if (value instanceof Long) {
+            return (Long) value * shards + shard;
+        }
+        if (value instanceof Integer) {
+            return (Integer) value * shards + shard;
+        }
+
+        return value;
+    }
+
+    /**
+     * @return the shard owning the entity with the given generated identifier
+     */
+    public static int shardOf(Number id, int shards) {
+        return (int) Math.floorMod(id.longValue(), (long) shards);
+    }
+
+    /**
+     * {@link IdentifierGeneratorStrategyProvider} replacing the sequence generator used for <tt>@GeneratedValue</tt>
+     * by the {@link ShardedSequenceGenerator}
+     */
+    public static class StrategyProvider implements IdentifierGeneratorStrategyProvider {
+        public static final String PROPERTY = "hibernate.ejb.identifier_generator_strategy_provider";
+
+        @Override
+        public Map<String, Class<?>> getStrategies() {
+            return Collections.singletonMap(SequenceStyleGenerator.class.getName(), ShardedSequenceGenerator.class);
+        }
+    }
+}
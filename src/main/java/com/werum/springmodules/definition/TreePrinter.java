@@ -23,7 +23,11 @@ import java.util.Set;
 
 /**
  * Helper class allowing to print a tree structure in a folder-like layout into a string
+ *
+ * @deprecated only kept for strategies overriding the deprecated <tt>resolveDependency</tt> method of
+ * {@link DependencyResolverStrategy}, the dependency tree is rendered by {@link ModuleGraphRenderer}
  */
+@Deprecated
 public class TreePrinter<E> {
     private final E instance;
 
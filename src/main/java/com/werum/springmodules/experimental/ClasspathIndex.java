@@ -0,0 +1,310 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.experimental;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.ClassMetadata;
+import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ResourceUtils;
+
+/**
+ * Index of the class metadata found on the classpath, shared by all {@link MockConfigurationCreator}s of a JVM. The
+ * metadata is read by ASM, so no class is loaded to be indexed.
+ *
+ * The class folders of the classpath (i.e. <tt>target/classes</tt> and <tt>target/test-classes</tt>) are scanned once,
+ * when the index is queried for the first time. On the first query of a package the roots of the classpath containing
+ * it are resolved, and those that aren't class folders (i.e. jars) are scanned for it once. So packages split between
+ * a class folder and a jar are indexed completely.
+ *
+ * The {@link #getResourceLoader() resource loader} of the index resolves the class files of a package from the index
+ * and shares the metadata read by the index, so a component scan using it neither walks the classpath nor reads a class
+ * file again.
+ */
+public final class ClasspathIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClasspathIndex.class);
+
+    private static final String CLASS_FILES = "**/*.class";
+
+    /**
+     * pattern of the class files searched for by a component scan of a base package without wildcards
+     */
+    private static final Pattern PACKAGE_SEARCH_PATH = Pattern
+            .compile(Pattern.quote(ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX) + "([^*?]+)/\\*\\*/\\*\\.class");
+
+    private static final ClasspathIndex INSTANCE = new ClasspathIndex(ClassUtils.getDefaultClassLoader());
+
+    private final IndexResourceLoader resourceLoader;
+
+    private final ResourcePatternResolver resourcePatternResolver;
+
+    private final MetadataReaderFactory metadataReaderFactory;
+
+    private final NavigableMap<String, MetadataReader> types = new ConcurrentSkipListMap<>();
+
+    private final Set<String> scannedPackages = ConcurrentHashMap.newKeySet();
+
+    /**
+     * urls of the class folders scanned, ending with '/'
+     */
+    private final Set<String> classFolders = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger scans = new AtomicInteger();
+
+    private volatile boolean classFoldersScanned;
+
+    ClasspathIndex(ClassLoader classLoader) {
+        this.resourceLoader = new IndexResourceLoader(classLoader);
+        this.resourcePatternResolver = new PathMatchingResourcePatternResolver(resourceLoader);
+        this.metadataReaderFactory = new CachingMetadataReaderFactory(resourceLoader);
+    }
+
+    public static ClasspathIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the names of all types in the given package and its sub packages
+     */
+    public Set<String> getTypes(String packageName) {
+        return typesIn(packageName).keySet();
+    }
+
+    /**
+     * @return the names of all types in the given package and its sub packages, that are assignable to the given type
+     */
+    public Set<String> getSubTypesOf(String packageName, String superTypeName) {
+        return getTypes(packageName).stream().filter(name -> isAssignable(name, superTypeName))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * @return the names of all types in the given package and its sub packages, that are annotated or meta-annotated
+     * with the given annotation
+     */
+    public Set<String> getTypesAnnotatedWith(String packageName, String annotationName) {
+        return typesIn(packageName).values().stream()
+                .filter(reader -> isAnnotated(reader, annotationName))
+                .map(reader -> reader.getClassMetadata().getClassName()).collect(Collectors.toSet());
+    }
+
+    /**
+     * @return <tt>true</tt> if the given type is the given super type or extends or implements it
+     */
+    public boolean isAssignable(String typeName, String superTypeName) {
+        if (typeName.equals(superTypeName)) {
+            return true;
+        }
+
+        MetadataReader reader = metadataOf(typeName);
+        if (reader == null) {
+            return false;
+        }
+        ClassMetadata metadata = reader.getClassMetadata();
+        if (metadata.hasSuperClass() && isAssignable(metadata.getSuperClassName(), superTypeName)) {
+            return true;
+        }
+        for (String interfaceName : metadata.getInterfaceNames()) {
+            if (isAssignable(interfaceName, superTypeName)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return <tt>true</tt> if the given type is annotated or meta-annotated with the given annotation
+     */
+    public boolean isAnnotated(String typeName, String annotationName) {
+        MetadataReader reader = metadataOf(typeName);
+        return reader != null && isAnnotated(reader, annotationName);
+    }
+
+    /**
+     * @return the metadata of the given type, read from the index or, if it is not indexed, from its class file.
+     * <tt>null</tt> for types of the JDK and types without class file.
+     */
+    public AnnotationMetadata getMetadata(String typeName) {
+        MetadataReader reader = metadataOf(typeName);
+        return reader == null ? null : reader.getAnnotationMetadata();
+    }
+
+    /**
+     * @return a resource loader resolving the class files of packages from this index, to be passed to component scans
+     */
+    public ResourceLoader getResourceLoader() {
+        return resourceLoader;
+    }
+
+    int getScanCount() {
+        return scans.get();
+    }
+
+    private static boolean isAnnotated(MetadataReader reader, String annotationName) {
+        return reader.getAnnotationMetadata().hasAnnotation(annotationName)
+                || reader.getAnnotationMetadata().hasMetaAnnotation(annotationName);
+    }
+
+    private NavigableMap<String, MetadataReader> typesIn(String packageName) {
+        if (!classFoldersScanned) {
+            synchronized (this) {
+                if (!classFoldersScanned) {
+                    scanClassFolders();
+                    classFoldersScanned = true;
+                }
+            }
+        }
+
+        if (!isCovered(packageName)) {
+            synchronized (this) {
+                if (!isCovered(packageName)) {
+                    scanRootsOutsideOfClassFolders(packageName);
+                    scannedPackages.add(packageName);
+                }
+            }
+        }
+
+        return indexed(packageName);
+    }
+
+    private NavigableMap<String, MetadataReader> indexed(String packageName) {
+        // '/' follows '.', so the sub map contains exactly the types of the package and its sub packages
+        return types.subMap(packageName + ".", true, packageName + "/", false);
+    }
+
+    private boolean isCovered(String packageName) {
+        for (String name = packageName; !name.isEmpty(); name = name.substring(0, Math.max(name.lastIndexOf('.'), 0))) {
+            if (scannedPackages.contains(name)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * scans the given package in all roots of the classpath containing it, except for the class folders scanned already
+     */
+    private void scanRootsOutsideOfClassFolders(String packageName) {
+        String packagePath = ClassUtils.convertClassNameToResourcePath(packageName);
+        try {
+            Enumeration<URL> roots = resourceLoader.getClassLoader().getResources(packagePath);
+            while (roots.hasMoreElements()) {
+                String root = roots.nextElement().toString();
+                if (classFolders.stream().noneMatch(root::startsWith)) {
+                    scan(root.endsWith("/") ? root + CLASS_FILES : root + "/" + CLASS_FILES);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("could not resolve the roots of package " + packageName, e);
+        }
+    }
+
+    private void scanClassFolders() {
+        try {
+            Enumeration<URL> roots = resourceLoader.getClassLoader().getResources("");
+            while (roots.hasMoreElements()) {
+                URL root = roots.nextElement();
+                if (ResourceUtils.isFileURL(root)) {
+                    String folder = root.toString().endsWith("/") ? root.toString() : root + "/";
+                    scan(folder + CLASS_FILES);
+                    classFolders.add(folder);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("could not resolve class folders", e);
+        }
+    }
+
+    private void scan(String locationPattern) {
+        long start = System.nanoTime();
+        int count = 0;
+        try {
+            for (Resource resource : resourcePatternResolver.getResources(locationPattern)) {
+                String fileName = resource.getFilename();
+                if (!resource.isReadable() || fileName == null || fileName.endsWith("-info.class")) {
+                    continue;
+                }
+                MetadataReader reader = metadataReaderFactory.getMetadataReader(resource);
+                types.putIfAbsent(reader.getClassMetadata().getClassName(), reader);
+                count++;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("could not scan " + locationPattern, e);
+        }
+
+        scans.incrementAndGet();
+        LOGGER.debug("indexed {} types of {} in {} ms", count, locationPattern, (System.nanoTime() - start) / 1000000);
+    }
+
+    private MetadataReader metadataOf(String className) {
+        MetadataReader reader = types.get(className);
+        if (reader != null || className.startsWith("java.")) {
+            return reader;
+        }
+
+        try {
+            // types outside of the index, i.e. super types declared in jars, are read but not indexed
+            return metadataReaderFactory.getMetadataReader(className);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * resolves the class files searched by component scans from the index. As {@link DefaultResourceLoader} it provides
+     * the metadata cache of the {@link CachingMetadataReaderFactory}s created for it, so these share the metadata read
+     * by the index.
+     */
+    private class IndexResourceLoader extends DefaultResourceLoader implements ResourcePatternResolver {
+        IndexResourceLoader(ClassLoader classLoader) {
+            super(classLoader);
+        }
+
+        @Override
+        public Resource[] getResources(String locationPattern) throws IOException {
+            Matcher matcher = PACKAGE_SEARCH_PATH.matcher(locationPattern);
+            if (!matcher.matches()) {
+                return resourcePatternResolver.getResources(locationPattern);
+            }
+
+            return typesIn(ClassUtils.convertResourcePathToClassName(matcher.group(1))).values().stream()
+                    .map(MetadataReader::getResource).toArray(Resource[]::new);
+        }
+    }
+}
@@ -17,20 +17,13 @@ package com.werum.springmodules.experimental;
 
 import static org.mockito.Mockito.mock;
 
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-import org.reflections.Reflections;
-import org.reflections.scanners.SubTypesScanner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.config.BeanDefinitionHolder;
@@ -44,22 +37,53 @@ import org.springframework.context.annotation.PublicComponentScanAnnotationParse
 import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.core.annotation.AnnotationAttributes;
 import org.springframework.core.annotation.AnnotationUtils;
-import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.MethodMetadata;
 import org.springframework.mock.env.MockEnvironment;
+import org.springframework.util.ClassUtils;
+
+import com.werum.springmodules.jfr.ModuleEvents;
+import com.werum.springmodules.jfr.ModuleEvents.Span;
 
 /**
  * Helper class creating Mock instances of all Beans that would be instantiated by a Configuration class
  *
+ * Repositories and components are looked up in the {@link ClasspathIndex}, so the classpath is scanned once no matter
+ * how many configurations are mocked. The beans found for a configuration are stored in the {@link MockInventoryCache},
+ * so they aren't looked up again as long as the scanned class files don't change.
+ *
+ * Beans are discovered from the bytecode metadata of the classes, so the types of the beans are returned by name and
+ * no class is loaded until a mock of it is created.
  */
 public class MockConfigurationCreator {
     private static final Logger LOGGER = LoggerFactory.getLogger(MockConfigurationCreator.class);
 
+    private static final String REPOSITORY = "org.springframework.data.repository.Repository";
+
+    private static final String NO_REPOSITORY_BEAN = "org.springframework.data.repository.NoRepositoryBean";
+
+    private final ClasspathIndex classpathIndex;
+
+    private final MockInventoryCache inventoryCache;
+
+    public MockConfigurationCreator() {
+        this(ClasspathIndex.getInstance(), MockInventoryCache.fromProperties());
+    }
+
+    /**
+     * @param inventoryCache cache of discovered beans, <tt>null</tt> to discover the beans on every call
+     */
+    MockConfigurationCreator(ClasspathIndex classpathIndex, MockInventoryCache inventoryCache) {
+        this.classpathIndex = classpathIndex;
+        this.inventoryCache = inventoryCache;
+    }
+
     public Map<String, Object> createMocksForConfiguration(Class<?> configurationClass,
             Map<Class<?>, Object> mockOverrides) {
         return beansFromConfiguration(configurationClass).entrySet().stream()
                 .collect(Collectors.toMap(Entry::getKey, entry -> {
-                    Class<?> c = entry.getValue();
+                    Class<?> c = forNameSafe(entry.getValue());
                     Object mockBean = getMockFromOverrides(mockOverrides, c);
                     if (mockBean == null) {
                         mockBean = mock(c);
@@ -69,11 +93,23 @@ public class MockConfigurationCreator {
                 }));
     }
 
-    protected Map<String, Class<?>> beansFromConfiguration(Class<?> configurationClass) {
-        Map<String, Class<?>> classesFromBeanAnnotation = getClassesFromBeanAnnotation(configurationClass);
-        Map<String, Class<?>> repositoryInterfaces = repositories(configurationClass);
-        Map<String, Class<?>> classesFromComponentScan = beansFromComponentScan(configurationClass,
-                new DefaultBeanNameGenerator(), new DefaultResourceLoader());
+    /**
+     * @return the names of the beans defined by the given configuration class with the names of their types
+     */
+    protected Map<String, String> beansFromConfiguration(Class<?> configurationClass) {
+        if (inventoryCache == null) {
+            return discoverBeans(configurationClass);
+        }
+
+        return inventoryCache.get(configurationClass, this::discoverBeans);
+    }
+
+    private Map<String, String> discoverBeans(Class<?> configurationClass) {
+        Span span = ModuleEvents.beginMockConfigurationScan();
+        Map<String, String> classesFromBeanAnnotation = getClassesFromBeanAnnotation(configurationClass);
+        Map<String, String> repositoryInterfaces = repositories(configurationClass);
+        Map<String, String> classesFromComponentScan = beansFromComponentScan(configurationClass,
+                new DefaultBeanNameGenerator(), classpathIndex.getResourceLoader());
 
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("found beans to mock for {}", configurationClass.getName());
@@ -89,36 +125,26 @@ public class MockConfigurationCreator {
                     .collect(Collectors.joining("\n")));
         }
 
-        Map<String, Class<?>> ret = new HashMap<>();
+        Map<String, String> ret = new HashMap<>();
         ret.putAll(classesFromBeanAnnotation);
         ret.putAll(classesFromComponentScan);
         ret.putAll(repositoryInterfaces);
+        span.end(configurationClass.getSimpleName(), ret.size());
 
         return ret;
     }
 
-    @SuppressWarnings({"unchecked", "rawtypes"})
-    protected Map<String, Class<?>> repositories(Class<?> configurationClass) {
-        try {
-            Class<?> repositoryClass = Class.forName("org.springframework.data.repository.Repository");
-            Class<? extends Annotation> noRepositoryBean = (Class) Class
-                    .forName("org.springframework.data.repository.NoRepositoryBean");
-            Reflections reflections = new Reflections(configurationClass.getPackage().getName(),
-                    new SubTypesScanner(false));
-            return reflections.getSubTypesOf(Object.class).stream().filter(repositoryClass::isAssignableFrom)
-                    .filter(c -> {
-                        try {
-                            return !c.isAnnotationPresent(noRepositoryBean);
-                        } catch (Exception e) {
-                            throw new IllegalStateException(e);
-                        }
-                    }).collect(Collectors.toMap(Class::getName, c -> c));
-        } catch (ClassNotFoundException cnfe) {
+    protected Map<String, String> repositories(Class<?> configurationClass) {
+        if (!ClassUtils.isPresent(REPOSITORY, configurationClass.getClassLoader())) {
             return Collections.emptyMap();
         }
+
+        return classpathIndex.getSubTypesOf(configurationClass.getPackage().getName(), REPOSITORY).stream()
+                .filter(name -> !classpathIndex.isAnnotated(name, NO_REPOSITORY_BEAN))
+                .collect(Collectors.toMap(name -> name, name -> name));
     }
 
-    protected Map<String, Class<?>> beansFromComponentScan(Class<?> configurationClass,
+    protected Map<String, String> beansFromComponentScan(Class<?> configurationClass,
             BeanNameGenerator beanNameGenerator, ResourceLoader resourceLoader) {
         ComponentScan componentScanAnnotation = AnnotatedElementUtils.findMergedAnnotation(configurationClass,
                 ComponentScan.class);
@@ -132,32 +158,29 @@ public class MockConfigurationCreator {
         BeanDefinitionRegistry registryMock = mock(BeanDefinitionRegistry.class);
         PublicComponentScanAnnotationParser parser = new PublicComponentScanAnnotationParser(new MockEnvironment(),
                 resourceLoader, beanNameGenerator, registryMock);
-        return parser.parse(componentScan, configurationClass.getName()).stream().collect(Collectors
-                .toMap(BeanDefinitionHolder::getBeanName, b -> forNameSafe(b.getBeanDefinition().getBeanClassName())));
+        return parser.parse(componentScan, configurationClass.getName()).stream().collect(
+                Collectors.toMap(BeanDefinitionHolder::getBeanName, b -> b.getBeanDefinition().getBeanClassName()));
     }
 
-    protected Map<String, Class<?>> getClassesFromBeanAnnotation(final Class<?> type) {
-        final Map<String, Class<?>> classes = new HashMap<>();
-        Class<?> klass = type;
-        while (klass != Object.class) {
-            final List<Method> allMethods = new ArrayList<>(Arrays.asList(klass.getDeclaredMethods()));
-            for (final Method method : allMethods) {
-                if (method.isAnnotationPresent(Bean.class)) {
-                    Class<?> beanType = method.getReturnType();
-                    Bean bean = method.getAnnotation(Bean.class);
-                    String[] names = bean.value();
-                    if (names.length == 0) {
-                        names = bean.name();
-                        if (names.length == 0) {
-                            names = new String[] {beanType.getName()};
-                        }
-                    }
-                    for (String name : names) {
-                        classes.put(name, beanType);
+    protected Map<String, String> getClassesFromBeanAnnotation(final Class<?> type) {
+        final Map<String, String> classes = new HashMap<>();
+        AnnotationMetadata metadata = classpathIndex.getMetadata(type.getName());
+        while (metadata != null) {
+            for (final MethodMetadata method : metadata.getAnnotatedMethods(Bean.class.getName())) {
+                String beanType = method.getReturnTypeName();
+                Map<String, Object> bean = method.getAnnotationAttributes(Bean.class.getName());
+                String[] names = (String[]) bean.get("value");
+                if (names == null || names.length == 0) {
+                    names = (String[]) bean.get("name");
+                    if (names == null || names.length == 0) {
+                        names = new String[] {beanType};
                     }
                 }
+                for (String name : names) {
+                    classes.put(name, beanType);
+                }
             }
-            klass = klass.getSuperclass();
+            metadata = metadata.hasSuperClass() ? classpathIndex.getMetadata(metadata.getSuperClassName()) : null;
         }
         return classes;
     }
@@ -186,7 +209,7 @@ public class MockConfigurationCreator {
 
     private Class<?> forNameSafe(String className) {
         try {
-            return Class.forName(className);
+            return ClassUtils.forName(className, getClass().getClassLoader());
         } catch (Exception e) {
             throw new IllegalStateException("could not lod class " + className);
         }
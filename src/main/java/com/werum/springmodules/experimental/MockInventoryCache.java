@@ -0,0 +1,321 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.experimental;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.core.SpringProperties;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Cache of the beans discovered by {@link MockConfigurationCreator} for a configuration class, stored on disk so
+ * forked test JVMs and later builds don't discover them again.
+ *
+ * An inventory is stored together with a hash of the class files it has been discovered from: the class files of the
+ * configuration class, its super classes and the packages scanned for it (the package of the configuration class and
+ * the base packages of its <tt>@ComponentScan</tt>). An inventory is discovered again if any of these files changed.
+ *
+ * Reading all these files on each lookup would cost more than the discovery saves, so the inventory is stored with a
+ * second, cheap hash of the url, size and modification time of the files, too. The contents of the files are only
+ * hashed if that one differs, i.e. after a rebuild. If their contents didn't change, the inventory is kept.
+ *
+ * The inventories are stored in <tt>target/spring-modules/mock-inventories</tt> of the working directory, another
+ * directory can be set by the property {@value #DIRECTORY_PROPERTY}. Set {@value #IGNORE_PROPERTY} to <tt>true</tt> to
+ * disable the cache.
+ */
+public final class MockInventoryCache {
+    public static final String DIRECTORY_PROPERTY = "spring.modules.test.mock-inventory.dir";
+
+    public static final String IGNORE_PROPERTY = "spring.modules.test.mock-inventory.ignore";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MockInventoryCache.class);
+
+    private static final String DEFAULT_DIRECTORY = "target/spring-modules/mock-inventories";
+
+    private static final String HASH_KEY = "hash";
+
+    private static final String FILES_KEY = "files";
+
+    private static final String BEAN_KEY_PREFIX = "bean.";
+
+    private final Path directory;
+
+    private final ClassLoader classLoader;
+
+    private final ResourcePatternResolver resourcePatternResolver;
+
+    MockInventoryCache(Path directory, ClassLoader classLoader) {
+        this.directory = directory;
+        this.classLoader = classLoader;
+        this.resourcePatternResolver = new PathMatchingResourcePatternResolver(classLoader);
+    }
+
+    /**
+     * @return the cache configured by {@value #DIRECTORY_PROPERTY} or <tt>null</tt>, if caching is disabled
+     */
+    public static MockInventoryCache fromProperties() {
+        if (SpringProperties.getFlag(IGNORE_PROPERTY)) {
+            return null;
+        }
+
+        String directory = SpringProperties.getProperty(DIRECTORY_PROPERTY);
+        return new MockInventoryCache(Paths.get(StringUtils.hasText(directory) ? directory : DEFAULT_DIRECTORY),
+                ClassUtils.getDefaultClassLoader());
+    }
+
+    /**
+     * @return the inventory stored for the given configuration class, if its class files didn't change. Otherwise the
+     * inventory is discovered by the given function and stored.
+     */
+    public Map<String, String> get(Class<?> configurationClass,
+            Function<Class<?>, Map<String, String>> discovery) {
+        List<ClassFile> classFiles;
+        String files;
+        try {
+            classFiles = classFiles(configurationClass);
+            files = filesHash(classFiles);
+        } catch (IOException e) {
+            LOGGER.debug("could not resolve class files of {}", configurationClass.getName(), e);
+            return discovery.apply(configurationClass);
+        }
+
+        Path file = directory.resolve(configurationClass.getName() + ".properties");
+        Properties stored = read(file);
+        if (stored != null && files.equals(stored.getProperty(FILES_KEY))) {
+            LOGGER.debug("read beans to mock for {} from {}", configurationClass.getName(), file);
+            return inventory(stored);
+        }
+
+        String hash;
+        try {
+            hash = hash(classFiles);
+        } catch (IOException e) {
+            LOGGER.debug("could not hash class files of {}", configurationClass.getName(), e);
+            return discovery.apply(configurationClass);
+        }
+        Map<String, String> inventory;
+        if (stored != null && hash.equals(stored.getProperty(HASH_KEY))) {
+            LOGGER.debug("class files of {} rewritten without changes", configurationClass.getName());
+            inventory = inventory(stored);
+        } else {
+            inventory = discovery.apply(configurationClass);
+        }
+        write(file, files, hash, inventory);
+        return inventory;
+    }
+
+    private static Properties read(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        Properties ret = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            ret.load(in);
+        } catch (IOException e) {
+            LOGGER.debug("could not read {}", file, e);
+            return null;
+        }
+        return ret;
+    }
+
+    private static Map<String, String> inventory(Properties properties) {
+        Map<String, String> ret = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(BEAN_KEY_PREFIX)) {
+                ret.put(key.substring(BEAN_KEY_PREFIX.length()), properties.getProperty(key));
+            }
+        }
+        return ret;
+    }
+
+    private void write(Path file, String files, String hash, Map<String, String> inventory) {
+        Properties properties = new Properties();
+        properties.setProperty(FILES_KEY, files);
+        properties.setProperty(HASH_KEY, hash);
+        for (Entry<String, String> entry : inventory.entrySet()) {
+            properties.setProperty(BEAN_KEY_PREFIX + entry.getKey(), entry.getValue());
+        }
+
+        try {
+            Files.createDirectories(directory);
+            // forked JVMs may write the same inventory concurrently, so it is moved into place as a whole
+            Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                properties.store(out, null);
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LOGGER.debug("could not write {}", file, e);
+        }
+    }
+
+    String hash(Class<?> configurationClass) throws IOException {
+        return hash(classFiles(configurationClass));
+    }
+
+    /**
+     * @return the class files of the given configuration class, its super classes and the packages scanned for it
+     */
+    private List<ClassFile> classFiles(Class<?> configurationClass) throws IOException {
+        List<ClassFile> ret = new ArrayList<>();
+        for (Class<?> type = configurationClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            String path = ClassUtils.convertClassNameToResourcePath(type.getName()) + ClassUtils.CLASS_FILE_SUFFIX;
+            URL url = classLoader.getResource(path);
+            if (url != null) {
+                ret.add(new ClassFile(path, new UrlResource(url)));
+            }
+        }
+
+        for (String packageName : scannedPackages(configurationClass)) {
+            String path = ClassUtils.convertClassNameToResourcePath(packageName) + "/";
+            List<ClassFile> classFiles = new ArrayList<>();
+            for (Resource resource : resourcePatternResolver
+                    .getResources(ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX + path + "**/*.class")) {
+                classFiles.add(new ClassFile(relativePath(resource, path), resource));
+            }
+            classFiles.sort(Comparator.comparing(classFile -> classFile.path));
+            ret.addAll(classFiles);
+        }
+        return ret;
+    }
+
+    /**
+     * @return hash of the location, size and modification time of the given class files, without reading them
+     */
+    private static String filesHash(List<ClassFile> classFiles) throws IOException {
+        MessageDigest digest = newDigest();
+        for (ClassFile classFile : classFiles) {
+            digest.update((classFile.resource.getURL() + "|" + classFile.resource.contentLength() + "|"
+                    + classFile.resource.lastModified() + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * @return hash of the contents of the given class files, independent of the location of the classpath
+     */
+    private static String hash(List<ClassFile> classFiles) throws IOException {
+        MessageDigest digest = newDigest();
+        for (ClassFile classFile : classFiles) {
+            try (InputStream in = classFile.resource.getInputStream()) {
+                digest.update(classFile.path.getBytes(StandardCharsets.UTF_8));
+                digest.update(StreamUtils.copyToByteArray(in));
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder ret = new StringBuilder();
+        for (byte b : bytes) {
+            ret.append(String.format("%02x", b));
+        }
+        return ret.toString();
+    }
+
+    /**
+     * @return the path of the given class file starting at the given package path, so the hash doesn't depend on the
+     * location of the classpath
+     */
+    private static String relativePath(Resource resource, String packagePath) {
+        String location;
+        try {
+            location = resource.getURL().toString();
+        } catch (IOException e) {
+            location = resource.getDescription();
+        }
+        return location.substring(Math.max(location.lastIndexOf(packagePath), 0));
+    }
+
+    private static Set<String> scannedPackages(Class<?> configurationClass) {
+        Set<String> ret = new LinkedHashSet<>();
+        ret.add(ClassUtils.getPackageName(configurationClass));
+        ComponentScan componentScan = AnnotatedElementUtils.findMergedAnnotation(configurationClass,
+                ComponentScan.class);
+        if (componentScan != null) {
+            for (String basePackage : componentScan.basePackages()) {
+                for (String packageName : StringUtils.tokenizeToStringArray(basePackage, ",; \t\n")) {
+                    ret.add(packageName);
+                }
+            }
+            for (Class<?> basePackageClass : componentScan.basePackageClasses()) {
+                ret.add(ClassUtils.getPackageName(basePackageClass));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * class file hashed for an inventory
+     */
+    private static final class ClassFile {
+        /**
+         * path of the class file relative to the root of the classpath
+         */
+        private final String path;
+
+        private final Resource resource;
+
+        private ClassFile(String path, Resource resource) {
+            this.path = path;
+            this.resource = resource;
+        }
+    }
+}
@@ -21,18 +21,22 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
-import org.springframework.beans.BeanUtils;
 import org.springframework.core.annotation.AnnotationAttributes;
 import org.springframework.core.type.AnnotationMetadata;
 
 import com.werum.springmodules.definition.DependenciesResolvedBy;
 import com.werum.springmodules.definition.DependencyResolverStrategy;
 import com.werum.springmodules.definition.ModuleDefinition;
-import com.werum.springmodules.definition.TreePrinter;
+import com.werum.springmodules.definition.ModuleGraph;
+import com.werum.springmodules.definition.ModuleGraph.Node;
+import com.werum.springmodules.jfr.ModuleEvents;
+import com.werum.springmodules.jfr.ModuleEvents.Span;
 
 /**
  * {@link DependencyResolverStrategy} responsible to find all the Component configurations for a given component, but cut off mocked components
@@ -43,8 +47,7 @@ public class MockTheseModulesDependencyResolver extends DependencyResolverStrate
 
     @SuppressWarnings({"unchecked", "rawtypes"})
     @Override
-    public Set<Class<?>> resolveDependency(ModuleDefinition bcs, AnnotationMetadata importingClassMetadata,
-            TreePrinter<String> treePrinter) {
+    public Set<Class<?>> resolveDependency(ModuleGraph moduleGraph, AnnotationMetadata importingClassMetadata) {
         Set<Class<?>> componentsToMock = Collections.emptySet();
         if (importingClassMetadata != null) {
             AnnotationAttributes annotationAttributes = AnnotationAttributes.fromMap(
@@ -52,33 +55,32 @@ public class MockTheseModulesDependencyResolver extends DependencyResolverStrate
             componentsToMock = (Set) new HashSet<Class>(Arrays.asList(annotationAttributes.getClassArray("value")));
         }
 
-        Set<Class<?>> resolvedDependency = resolveDependency(bcs, componentsToMock, new HashSet<>(), treePrinter);
+        Set<Class<?>> resolvedDependency = new LinkedHashSet<>();
+        BitSet alreadyHandled = new BitSet(moduleGraph.size());
+        for (Node root : moduleGraph.getRoots()) {
+            resolveDependency(root, componentsToMock, alreadyHandled, resolvedDependency);
+        }
         resolvedDependency.add(MockTheseModulesRegistrar.class);
         return resolvedDependency;
     }
 
-    private Set<Class<?>> resolveDependency(ModuleDefinition bcs, Set<Class<?>> componentsToMock,
-            Set<Class<?>> alreadyHandled, TreePrinter<String> treePrinter) {
-        if (!alreadyHandled.contains(bcs.getClass())) {
-            alreadyHandled.add(bcs.getClass());
-            Set<Class<?>> ret = new HashSet<>();
-            if (componentsToMock.contains(bcs.getClass())) {
-                treePrinter.getChildren()
-                        .add(new TreePrinter<>(bcs.getComponentConfiguration().getSimpleName() + "Mock"));
-            } else {
-                TreePrinter<String> newChild = new TreePrinter<>(bcs.getComponentConfiguration().getSimpleName());
-                treePrinter.getChildren().add(newChild);
-                ret.add(bcs.getComponentConfiguration());
-                for (Class<? extends ModuleDefinition> child : bcs.getDependendComponents()) {
-                    ret.addAll(resolveDependency(BeanUtils.instantiateClass(child), componentsToMock, alreadyHandled,
-                            newChild));
-                }
-            }
+    private void resolveDependency(Node node, Set<Class<?>> componentsToMock, BitSet alreadyHandled,
+            Set<Class<?>> ret) {
+        if (alreadyHandled.get(node.getIndex())) {
+            return;
+        }
+        alreadyHandled.set(node.getIndex());
+        Span span = ModuleEvents.beginDependencyResolution();
+        int configurationCount = ret.size();
 
-            return ret;
-        } else {
-            return Collections.emptySet();
+        Class<?> componentConfiguration = node.getComponentConfiguration();
+        if (!componentsToMock.contains(node.getType())) {
+            ret.add(componentConfiguration);
+            for (Node child : node.getDependencies()) {
+                resolveDependency(child, componentsToMock, alreadyHandled, ret);
+            }
         }
+        span.end(node.toString(), ret.size() - configurationCount);
     }
 
     /**
@@ -91,5 +93,11 @@ public class MockTheseModulesDependencyResolver extends DependencyResolverStrate
     @DependenciesResolvedBy(MockTheseModulesDependencyResolver.class)
     public @interface MockTheseComponents {
         Class<? extends ModuleDefinition>[] value();
+
+        /**
+         * @return true, if mocked interfaces should be provided as placeholders creating the mock when they are called
+         * for the first time, see {@link com.werum.springmodules.testsupport.MockitoFactoryBean}
+         */
+        boolean placeholders() default false;
     }
 }
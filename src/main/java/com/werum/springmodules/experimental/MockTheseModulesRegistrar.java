@@ -17,6 +17,7 @@ package com.werum.springmodules.experimental;
 
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
@@ -34,8 +35,14 @@ import com.werum.springmodules.testsupport.MockitoFactoryBean;
  * {@link ImportBeanDefinitionRegistrar} responsible to add all the mocks to {@link ApplicationContext} provided by
  * {@link  MockTheseComponents}
  *
+ * If a mocked module declares the types it exports (see {@link ModuleDefinition#getExportedTypes()}), only the beans
+ * of these types are mocked, since no module outside of the mocked one can depend on its other beans.
  */
 public class MockTheseModulesRegistrar implements ImportBeanDefinitionRegistrar {
+    private final MockConfigurationCreator mockConfigurationCreator = new MockConfigurationCreator();
+
+    private final ClasspathIndex classpathIndex = ClasspathIndex.getInstance();
+
     @Override
     public void registerBeanDefinitions(AnnotationMetadata importingClassMetadata, BeanDefinitionRegistry registry) {
         MockTheseComponents mockThisComponents = AnnotationUtils.synthesizeAnnotation(
@@ -44,13 +51,35 @@ public class MockTheseModulesRegistrar implements ImportBeanDefinitionRegistrar
 
         for (Class<?> classFromMockThese : mockThisComponents.value()) {
             ModuleDefinition selector = BeanUtils.instantiateClass(classFromMockThese, ModuleDefinition.class);
-            Map<String, Class<?>> classesToMock = new MockConfigurationCreator()
+            Map<String, String> classesToMock = mockConfigurationCreator
                     .beansFromConfiguration(selector.getComponentConfiguration());
-            for (Entry<String, Class<?>> entry : classesToMock.entrySet()) {
+            Set<Class<?>> exportedTypes = selector.getExportedTypes();
+            for (Entry<String, String> entry : classesToMock.entrySet()) {
+                if (!isExported(entry.getValue(), exportedTypes)) {
+                    continue;
+                }
+                // the type is passed by name, so it isn't loaded before the factory bean is created
                 RootBeanDefinition beanDefinition = new RootBeanDefinition(MockitoFactoryBean.class);
-                beanDefinition.getConstructorArgumentValues().addGenericArgumentValue(entry.getValue());
+                beanDefinition.getConstructorArgumentValues().addIndexedArgumentValue(0, entry.getValue(),
+                        Class.class.getName());
+                beanDefinition.getConstructorArgumentValues().addIndexedArgumentValue(1,
+                        mockThisComponents.placeholders() && isInterface(entry.getValue()), "boolean");
                 registry.registerBeanDefinition(entry.getKey(), beanDefinition);
             }
         }
     }
+
+    private boolean isExported(String typeName, Set<Class<?>> exportedTypes) {
+        if (exportedTypes.isEmpty()) {
+            return true;
+        }
+
+        return exportedTypes.stream()
+                .anyMatch(exportedType -> classpathIndex.isAssignable(typeName, exportedType.getName()));
+    }
+
+    private boolean isInterface(String typeName) {
+        AnnotationMetadata metadata = classpathIndex.getMetadata(typeName);
+        return metadata != null && metadata.isInterface();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import com.werum.springmodules.jfr.ModuleEvents.Span;
+
+/**
+ * The flight recorder events emitted by {@link ModuleEvents}. This is the only class referencing <tt>jdk.jfr</tt>, it
+ * is loaded only if flight recorder is available.
+ */
+final class FlightRecorderEvents {
+    private FlightRecorderEvents() {
+    }
+
+    static Span moduleResolution() {
+        return new EventSpan(new ModuleResolutionEvent());
+    }
+
+    static Span dependencyResolution() {
+        return new EventSpan(new DependencyResolutionEvent());
+    }
+
+    static Span mockConfigurationScan() {
+        return new EventSpan(new MockConfigurationScanEvent());
+    }
+
+    static Span beanInitialization(String beanName) {
+        BeanInitializationEvent event = new BeanInitializationEvent();
+        event.beanName = beanName;
+        return new EventSpan(event);
+    }
+
+    private static class EventSpan implements Span {
+        private final ModuleEvent event;
+
+        EventSpan(ModuleEvent event) {
+            this.event = event;
+            event.begin();
+        }
+
+        @Override
+        public void end(String moduleName, int beanCount) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.moduleName = moduleName;
+                event.beanCount = beanCount;
+                event.commit();
+            }
+        }
+    }
+
+    @Category("Spring Modules")
+    abstract static class ModuleEvent extends Event {
+        @Label("Module")
+        String moduleName;
+
+        @Label("Bean Count")
+        int beanCount;
+    }
+
+    @Name("com.werum.springmodules.ModuleResolution")
+    @Label("Module Resolution")
+    @Description("Resolution of the modules imported by a class, counting the imported configurations")
+    static class ModuleResolutionEvent extends ModuleEvent {
+    }
+
+    @Name("com.werum.springmodules.DependencyResolution")
+    @Label("Dependency Resolution")
+    @Description("Resolution of a module and its dependencies by a dependency resolver strategy")
+    static class DependencyResolutionEvent extends ModuleEvent {
+    }
+
+    @Name("com.werum.springmodules.MockConfigurationScan")
+    @Label("Mock Configuration Scan")
+    @Description("Scan of a module configuration for beans to mock")
+    static class MockConfigurationScanEvent extends ModuleEvent {
+    }
+
+    @Name("com.werum.springmodules.BeanInitialization")
+    @Label("Bean Initialization")
+    @Description("Creation of a bean belonging to a module, including the creation of the beans it depends on")
+    static class BeanInitializationEvent extends ModuleEvent {
+        @Label("Bean Name")
+        String beanName;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.jfr;
+
+import org.springframework.util.ClassUtils;
+
+/**
+ * Emits JDK Flight Recorder events for the resolution of modules, the scans of mock configurations and the creation of
+ * the beans of each module, so startup can be profiled per module with i.e. <tt>jcmd &lt;pid&gt; JFR.start</tt>. Each
+ * event carries the module name, a bean count and its duration.
+ *
+ * On JVMs without flight recorder all methods return a span doing nothing.
+ */
+public final class ModuleEvents {
+    private static final boolean AVAILABLE = ClassUtils.isPresent("jdk.jfr.Event",
+            ModuleEvents.class.getClassLoader());
+
+    private static final Span NOOP = (moduleName, beanCount) -> {
+    };
+
+    private ModuleEvents() {
+    }
+
+    /**
+     * @return true, if flight recorder events can be emitted on this JVM
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * begins the resolution of the modules imported by a class, ended with the number of imported configurations
+     */
+    public static Span beginModuleResolution() {
+        return AVAILABLE ? FlightRecorderEvents.moduleResolution() : NOOP;
+    }
+
+    /**
+     * begins the resolution of a single module by a dependency resolver strategy, ended with the number of imported
+     * configurations
+     */
+    public static Span beginDependencyResolution() {
+        return AVAILABLE ? FlightRecorderEvents.dependencyResolution() : NOOP;
+    }
+
+    /**
+     * begins the scan of a configuration for beans to mock, ended with the number of beans found
+     */
+    public static Span beginMockConfigurationScan() {
+        return AVAILABLE ? FlightRecorderEvents.mockConfigurationScan() : NOOP;
+    }
+
+    /**
+     * begins the creation of a bean, ended with the module the bean belongs to and a bean count of 1
+     */
+    public static Span beginBeanInitialization(String beanName) {
+        return AVAILABLE ? FlightRecorderEvents.beanInitialization(beanName) : NOOP;
+    }
+
+    /**
+     * A started event, committed when it is ended
+     */
+    @FunctionalInterface
+    public interface Span {
+        void end(String moduleName, int beanCount);
+    }
+}
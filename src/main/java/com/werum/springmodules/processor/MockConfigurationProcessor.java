@@ -0,0 +1,407 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.processor;
+
+import java.beans.Introspector;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * Annotation processor writing a mock configuration for every <tt>ModuleDefinition</tt> of a compilation, enabled by
+ * the processor option <tt>-Aspring.modules.mocks=true</tt>.
+ *
+ * The mock configuration of a module <tt>CourseServiceModule</tt> is written as
+ * <tt>GeneratedCourseServiceModuleMock</tt> to the package of the module. It replaces the module's configuration (see
+ * <tt>com.werum.springmodules.definition.ReplacesConfigurationClass</tt>) by a <tt>MockitoFactoryBean</tt> for each
+ * bean the configuration would define:
+ * <ul>
+ * <li>the <tt>@Bean</tt> methods of the configuration and its super classes</li>
+ * <li>the components found by its <tt>@ComponentScan</tt> (the default filters only) among the types of the
+ * compilation, configurations excluded</li>
+ * <li>the Spring Data repositories in the package of the configuration and its sub packages</li>
+ * </ul>
+ * If the configuration declares exported types (<tt>@ModuleConfiguration(exports = ...)</tt>), only beans of these
+ * types are mocked.
+ *
+ * The configuration of a module is read from its constructor like for the module index (see
+ * {@link ModuleIndexProcessor}), modules whose configuration can't be determined or whose component scan declares
+ * filters get no mock configuration. The mock configurations are abstract, so component scans of the module's package
+ * don't pick them up.
+ */
+@SupportedAnnotationTypes("*")
+@SupportedOptions(MockConfigurationProcessor.ENABLED_OPTION)
+public class MockConfigurationProcessor extends AbstractProcessor {
+    static final String ENABLED_OPTION = "spring.modules.mocks";
+
+    private static final String BEAN = "org.springframework.context.annotation.Bean";
+
+    private static final String COMPONENT = "org.springframework.stereotype.Component";
+
+    private static final String COMPONENT_SCAN = "org.springframework.context.annotation.ComponentScan";
+
+    private static final String CONFIGURATION = "org.springframework.context.annotation.Configuration";
+
+    private static final String MODULE_CONFIGURATION = "com.werum.springmodules.definition.ModuleConfiguration";
+
+    private static final String REPLACES_CONFIGURATION_CLASS =
+            "com.werum.springmodules.definition.ReplacesConfigurationClass";
+
+    private static final String MOCKITO_FACTORY_BEAN = "com.werum.springmodules.testsupport.MockitoFactoryBean";
+
+    private static final String REPOSITORY = "org.springframework.data.repository.Repository";
+
+    private static final String NO_REPOSITORY_BEAN = "org.springframework.data.repository.NoRepositoryBean";
+
+    private final List<TypeElement> types = new ArrayList<>();
+
+    private ModuleDefinitionReader reader;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (!Boolean.parseBoolean(processingEnv.getOptions().get(ENABLED_OPTION)) || roundEnv.processingOver()) {
+            return false;
+        }
+
+        if (reader == null) {
+            reader = ModuleDefinitionReader.of(processingEnv, ModuleDefinitionReader.trees(processingEnv));
+            if (reader == null) {
+                processingEnv.getMessager().printMessage(Kind.NOTE,
+                        "compiler tree api or spring-modules not available, no mock configurations will be created");
+                return false;
+            }
+        }
+
+        List<TypeElement> roundTypes = new ArrayList<>();
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            collect(type, roundTypes);
+        }
+        types.addAll(roundTypes);
+        for (TypeElement type : roundTypes) {
+            if (reader.isModuleDefinition(processingEnv, type)) {
+                generate(type);
+            }
+        }
+
+        return false;
+    }
+
+    private void collect(TypeElement type, List<TypeElement> ret) {
+        ret.add(type);
+        for (TypeElement nestedType : ElementFilter.typesIn(type.getEnclosedElements())) {
+            collect(nestedType, ret);
+        }
+    }
+
+    private void generate(TypeElement module) {
+        List<TypeElement> classLiterals = reader.superConstructorClassLiterals(module);
+        if (classLiterals == null || classLiterals.isEmpty()) {
+            processingEnv.getMessager().printMessage(Kind.NOTE,
+                    "configuration of " + module + " can't be determined, no mock configuration will be created",
+                    module);
+            return;
+        }
+
+        TypeElement configuration = classLiterals.get(0);
+        Map<String, TypeMirror> beans = new TreeMap<>();
+        collectFactoryMethods(configuration, beans);
+        if (!collectComponents(configuration, beans)) {
+            processingEnv.getMessager().printMessage(Kind.NOTE, "component scan of " + configuration
+                    + " declares filters, no mock configuration will be created", module);
+            return;
+        }
+        collectRepositories(configuration, beans);
+        retainExported(configuration, beans);
+
+        String packageName = processingEnv.getElementUtils().getPackageOf(module).getQualifiedName().toString();
+        beans.entrySet().removeIf(bean -> !isAccessible(bean.getValue(), packageName));
+        write(module, packageName, beans);
+    }
+
+    private void collectFactoryMethods(TypeElement configuration, Map<String, TypeMirror> beans) {
+        for (TypeElement type = configuration; type != null; type = superClass(type)) {
+            for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+                AnnotationMirror bean = annotation(method, BEAN);
+                if (bean == null || method.getReturnType().getKind() != TypeKind.DECLARED) {
+                    continue;
+                }
+                List<String> names = stringValues(bean, "name");
+                if (names.isEmpty()) {
+                    names = stringValues(bean, "value");
+                }
+                if (names.isEmpty()) {
+                    names = Collections.singletonList(method.getSimpleName().toString());
+                }
+                names.forEach(name -> beans.putIfAbsent(name, erasure(method.getReturnType())));
+            }
+        }
+    }
+
+    /**
+     * @return false, if the component scan of the given configuration can't be evaluated at compile time
+     */
+    private boolean collectComponents(TypeElement configuration, Map<String, TypeMirror> beans) {
+        AnnotationMirror componentScan = annotation(configuration, COMPONENT_SCAN);
+        if (componentScan == null) {
+            return true;
+        }
+        Object useDefaultFilters = value(componentScan, "useDefaultFilters");
+        if (!listValue(componentScan, "includeFilters").isEmpty()
+                || !listValue(componentScan, "excludeFilters").isEmpty() || Boolean.FALSE.equals(useDefaultFilters)) {
+            return false;
+        }
+
+        Set<String> basePackages = new HashSet<>(stringValues(componentScan, "value"));
+        basePackages.addAll(stringValues(componentScan, "basePackages"));
+        for (AnnotationValue basePackageClass : listValue(componentScan, "basePackageClasses")) {
+            TypeMirror type = (TypeMirror) basePackageClass.getValue();
+            basePackages.add(packageOf(processingEnv.getTypeUtils().asElement(type)));
+        }
+        if (basePackages.isEmpty()) {
+            basePackages.add(packageOf(configuration));
+        }
+
+        for (TypeElement type : types) {
+            if (type.getKind() == ElementKind.CLASS && !type.getModifiers().contains(Modifier.ABSTRACT)
+                    && isIndependent(type) && isIn(type, basePackages) && isAnnotated(type, COMPONENT, new HashSet<>())
+                    && !isAnnotated(type, CONFIGURATION, new HashSet<>())) {
+                beans.putIfAbsent(beanName(type), erasure(type.asType()));
+            }
+        }
+        return true;
+    }
+
+    private void collectRepositories(TypeElement configuration, Map<String, TypeMirror> beans) {
+        TypeElement repository = processingEnv.getElementUtils().getTypeElement(REPOSITORY);
+        if (repository == null) {
+            return;
+        }
+
+        Set<String> packages = Collections.singleton(packageOf(configuration));
+        for (TypeElement type : types) {
+            if (type.getKind() == ElementKind.INTERFACE && isIn(type, packages)
+                    && processingEnv.getTypeUtils().isAssignable(erasure(type.asType()), erasure(repository.asType()))
+                    && annotation(type, NO_REPOSITORY_BEAN) == null) {
+                beans.putIfAbsent(beanName(type), erasure(type.asType()));
+            }
+        }
+    }
+
+    private void retainExported(TypeElement configuration, Map<String, TypeMirror> beans) {
+        AnnotationMirror moduleConfiguration = annotation(configuration, MODULE_CONFIGURATION);
+        List<AnnotationValue> exports = moduleConfiguration == null ? Collections.emptyList()
+                : listValue(moduleConfiguration, "exports");
+        if (exports.isEmpty()) {
+            return;
+        }
+
+        Types typeUtils = processingEnv.getTypeUtils();
+        beans.values().removeIf(type -> exports.stream()
+                .noneMatch(export -> typeUtils.isAssignable(type, erasure((TypeMirror) export.getValue()))));
+    }
+
+    private void write(TypeElement module, String packageName, Map<String, TypeMirror> beans) {
+        String moduleName = module.getQualifiedName().toString();
+        String simpleName = "Generated" + processingEnv.getElementUtils().getBinaryName(module).toString()
+                .substring(packageName.isEmpty() ? 0 : packageName.length() + 1).replace('$', '_') + "Mock";
+        String name = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+
+        Set<String> methodNames = new HashSet<>();
+        try (Writer writer = processingEnv.getFiler().createSourceFile(name, module).openWriter()) {
+            if (!packageName.isEmpty()) {
+                writer.write("package " + packageName + ";\n\n");
+            }
+            writer.write("/**\n * Mock configuration of {@link " + moduleName + "}, generated by "
+                    + getClass().getSimpleName() + "\n */\n");
+            writer.write("@" + REPLACES_CONFIGURATION_CLASS + "(" + moduleName + ".class)\n");
+            writer.write("@SuppressWarnings(\"rawtypes\")\n");
+            writer.write("public abstract class " + simpleName + " {\n");
+            for (Map.Entry<String, TypeMirror> bean : beans.entrySet()) {
+                String type = bean.getValue().toString();
+                if (!methodNames.isEmpty()) {
+                    writer.write("\n");
+                }
+                writer.write("    @" + BEAN + "(\"" + escape(bean.getKey()) + "\")\n");
+                writer.write("    public " + MOCKITO_FACTORY_BEAN + "<" + type + "> "
+                        + methodName(bean.getKey(), methodNames) + "() {\n");
+                writer.write("        return new " + MOCKITO_FACTORY_BEAN + "<>(" + type + ".class);\n");
+                writer.write("    }\n");
+            }
+            writer.write("}\n");
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Kind.WARNING,
+                    "could not write mock configuration " + name + ": " + e.getMessage(), module);
+        }
+    }
+
+    /**
+     * @return the name of the bean of the given component like <tt>AnnotationBeanNameGenerator</tt> derives it
+     */
+    private String beanName(TypeElement type) {
+        for (AnnotationMirror annotation : type.getAnnotationMirrors()) {
+            Element annotationType = annotation.getAnnotationType().asElement();
+            if (isAnnotated(annotationType, COMPONENT, new HashSet<>())
+                    || ((TypeElement) annotationType).getQualifiedName().contentEquals(COMPONENT)) {
+                Object value = value(annotation, "value");
+                if (value instanceof String && !((String) value).isEmpty()) {
+                    return (String) value;
+                }
+            }
+        }
+
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        return Introspector.decapitalize(binaryName.substring(binaryName.lastIndexOf('.') + 1).replace('$', '.'));
+    }
+
+    private static String methodName(String beanName, Set<String> methodNames) {
+        StringBuilder ret = new StringBuilder();
+        for (char c : beanName.toCharArray()) {
+            ret.append(ret.length() == 0 ? (Character.isJavaIdentifierStart(c) ? c : '_')
+                    : (Character.isJavaIdentifierPart(c) ? c : '_'));
+        }
+        String methodName = SourceVersion.isName(ret) ? ret.toString() : ret + "Mock";
+        for (int i = 2; !methodNames.add(methodName); i++) {
+            methodName = ret.toString() + i;
+        }
+        return methodName;
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private boolean isAccessible(TypeMirror type, String packageName) {
+        Element element = processingEnv.getTypeUtils().asElement(type);
+        for (Element e = element; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            if (e.getModifiers().contains(Modifier.PRIVATE)
+                    || (!e.getModifiers().contains(Modifier.PUBLIC) && !packageOf(e).equals(packageName))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isIndependent(TypeElement type) {
+        return type.getNestingKind() == NestingKind.TOP_LEVEL
+                || (type.getNestingKind() == NestingKind.MEMBER && type.getModifiers().contains(Modifier.STATIC));
+    }
+
+    private boolean isIn(TypeElement type, Set<String> packages) {
+        String packageName = packageOf(type);
+        return packages.stream().anyMatch(p -> packageName.equals(p) || packageName.startsWith(p + "."));
+    }
+
+    private String packageOf(Element element) {
+        return processingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString();
+    }
+
+    private TypeElement superClass(TypeElement type) {
+        TypeMirror superClass = type.getSuperclass();
+        if (superClass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        TypeElement ret = (TypeElement) ((DeclaredType) superClass).asElement();
+        return ret.getQualifiedName().contentEquals(Object.class.getName()) ? null : ret;
+    }
+
+    private TypeMirror erasure(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type);
+    }
+
+    /**
+     * @return true, if the given element is annotated by the given annotation or by an annotation meta-annotated by it
+     */
+    private static boolean isAnnotated(Element element, String annotationName, Set<String> visited) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            String name = annotationType.getQualifiedName().toString();
+            if (name.equals(annotationName)
+                    || (visited.add(name) && isAnnotated(annotationType, annotationName, visited))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static AnnotationMirror annotation(Element element, String annotationName) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName()
+                    .contentEquals(annotationName)) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    private static Object value(AnnotationMirror annotation, String attribute) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation.getElementValues()
+                .entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(attribute)) {
+                return entry.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<AnnotationValue> listValue(AnnotationMirror annotation, String attribute) {
+        Object value = value(annotation, attribute);
+        return value instanceof List ? (List<AnnotationValue>) value : Collections.emptyList();
+    }
+
+    private static List<String> stringValues(AnnotationMirror annotation, String attribute) {
+        List<String> ret = new ArrayList<>();
+        for (AnnotationValue value : listValue(annotation, attribute)) {
+            ret.add((String) value.getValue());
+        }
+        Object value = value(annotation, attribute);
+        if (value instanceof String) {
+            ret.add((String) value);
+        }
+        return ret;
+    }
+}
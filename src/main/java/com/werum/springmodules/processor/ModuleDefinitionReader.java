@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.ExpressionStatementTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.StatementTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.Trees;
+
+/**
+ * Reads the <tt>ModuleDefinition</tt>s of a compilation by the compiler tree api of javac
+ */
+class ModuleDefinitionReader {
+    static final String MODULE_DEFINITION = "com.werum.springmodules.definition.ModuleDefinition";
+
+    private final Trees trees;
+
+    private final TypeMirror moduleDefinitionType;
+
+    private ModuleDefinitionReader(Trees trees, TypeMirror moduleDefinitionType) {
+        this.trees = trees;
+        this.moduleDefinitionType = moduleDefinitionType;
+    }
+
+    /**
+     * @return a reader for the given compilation or null, if the compiler tree api is not available or spring-modules
+     * is not on the classpath of the compilation
+     */
+    static ModuleDefinitionReader of(ProcessingEnvironment processingEnv, Trees trees) {
+        TypeElement moduleDefinition = processingEnv.getElementUtils().getTypeElement(MODULE_DEFINITION);
+        if (trees == null || moduleDefinition == null) {
+            return null;
+        }
+
+        return new ModuleDefinitionReader(trees, moduleDefinition.asType());
+    }
+
+    /**
+     * @return the compiler tree api of the given compilation or null, if it is not compiled by javac
+     */
+    static Trees trees(ProcessingEnvironment processingEnv) {
+        try {
+            return Trees.instance(processingEnv);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return true, if the given type is a concrete direct sub class of <tt>ModuleDefinition</tt>
+     */
+    boolean isModuleDefinition(ProcessingEnvironment processingEnv, TypeElement type) {
+        return type.getKind() == ElementKind.CLASS && !type.getModifiers().contains(Modifier.ABSTRACT)
+                && processingEnv.getTypeUtils().isSameType(type.getSuperclass(), moduleDefinitionType);
+    }
+
+    /**
+     * @return the types of the class literals handed to the super constructor by the default constructor of the given
+     * type, null if they can't be determined
+     */
+    List<TypeElement> superConstructorClassLiterals(TypeElement type) {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (!constructor.getParameters().isEmpty()) {
+                continue;
+            }
+
+            TreePath constructorPath = trees.getPath(constructor);
+            if (constructorPath == null || constructorPath.getLeaf().getKind() != Tree.Kind.METHOD) {
+                return null;
+            }
+            MethodTree constructorTree = (MethodTree) constructorPath.getLeaf();
+            List<? extends StatementTree> statements = constructorTree.getBody().getStatements();
+            if (statements.isEmpty() || !(statements.get(0) instanceof ExpressionStatementTree)) {
+                return null;
+            }
+            ExpressionTree expression = ((ExpressionStatementTree) statements.get(0)).getExpression();
+            if (!(expression instanceof MethodInvocationTree)) {
+                return null;
+            }
+            MethodInvocationTree superCall = (MethodInvocationTree) expression;
+            if (!(superCall.getMethodSelect() instanceof IdentifierTree)
+                    || !((IdentifierTree) superCall.getMethodSelect()).getName().contentEquals("super")) {
+                return null;
+            }
+
+            CompilationUnitTree compilationUnit = constructorPath.getCompilationUnit();
+            List<TypeElement> ret = new ArrayList<>();
+            for (ExpressionTree argument : superCall.getArguments()) {
+                if (!(argument instanceof MemberSelectTree)
+                        || !((MemberSelectTree) argument).getIdentifier().contentEquals("class")) {
+                    return null;
+                }
+                Element referenced = trees
+                        .getElement(TreePath.getPath(compilationUnit, ((MemberSelectTree) argument).getExpression()));
+                if (!(referenced instanceof TypeElement)) {
+                    return null;
+                }
+                ret.add((TypeElement) referenced);
+            }
+
+            return ret;
+        }
+
+        return null;
+    }
+}
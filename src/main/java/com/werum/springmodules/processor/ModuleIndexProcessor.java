@@ -0,0 +1,266 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import com.sun.source.util.Trees;
+
+/**
+ * Annotation processor writing the module index (<tt>META-INF/spring-modules.idx</tt>) read by
+ * <tt>com.werum.springmodules.definition.ModuleIndex</tt>.
+ *
+ * For every concrete <tt>ModuleDefinition</tt> the processor reads the class literals passed to <tt>super(...)</tt> in
+ * its default constructor, so the configuration class and the dependencies of a module are known without
+ * instantiating it at runtime. Modules whose constructor can't be analyzed this way (i.e. dependencies not provided as
+ * class literals) or overriding one of the methods describing a module (<tt>getComponentConfiguration()</tt>,
+ * <tt>getDependendComponents()</tt>, <tt>isLazy()</tt> or <tt>getExportedTypes()</tt>) are left out of the index and
+ * will be resolved reflectively.
+ *
+ * The attributes <tt>lazy</tt> and <tt>exports</tt> of the <tt>@ModuleConfiguration</tt> of the configuration class are
+ * indexed, too. Configurations inheriting that annotation or declaring it by a composed annotation are read at runtime,
+ * which merges their attributes.
+ *
+ * Module definitions aren't annotated, so the processor looks at all types of a compilation. It only runs if it is
+ * enabled by the processor option <tt>-Aspring.modules.index=true</tt>, so compilations of projects just using
+ * spring-modules aren't slowed down by it. Reading constructor bodies requires the compiler tree api of javac. On other
+ * compilers no index is written.
+ */
+@SupportedAnnotationTypes("*")
+@SupportedOptions(ModuleIndexProcessor.ENABLED_OPTION)
+public class ModuleIndexProcessor extends AbstractProcessor {
+    static final String ENABLED_OPTION = "spring.modules.index";
+
+    static final String INDEX_LOCATION = "META-INF/spring-modules.idx";
+
+    /**
+     * suffixes of the index keys holding the attributes of the <tt>@ModuleConfiguration</tt> of a module
+     */
+    static final String LAZY_KEY = "#lazy";
+
+    static final String EXPORTS_KEY = "#exports";
+
+    private static final String MODULE_CONFIGURATION = "com.werum.springmodules.definition.ModuleConfiguration";
+
+    /**
+     * methods of <tt>ModuleDefinition</tt> describing a module, which are answered by the index for modules not
+     * overriding them
+     */
+    private static final Set<String> DESCRIBING_METHODS = new HashSet<>(
+            Arrays.asList("getComponentConfiguration", "getDependendComponents", "isLazy", "getExportedTypes"));
+
+    private final Map<String, String> entries = new TreeMap<>();
+
+    private Trees trees;
+
+    private ModuleDefinitionReader reader;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        if (!Boolean.parseBoolean(processingEnv.getOptions().get(ENABLED_OPTION))) {
+            return;
+        }
+
+        trees = ModuleDefinitionReader.trees(processingEnv);
+        if (trees == null) {
+            processingEnv.getMessager().printMessage(Kind.NOTE,
+                    "compiler tree api not available, no module index will be created");
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (trees == null) {
+            return false;
+        }
+
+        if (reader == null) {
+            reader = ModuleDefinitionReader.of(processingEnv, trees);
+            if (reader == null) {
+                // spring-modules is not on the classpath of this compilation
+                return false;
+            }
+        }
+
+        if (roundEnv.processingOver()) {
+            writeIndex();
+        } else {
+            for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+                collect(type);
+            }
+        }
+
+        return false;
+    }
+
+    private void collect(TypeElement type) {
+        if (reader.isModuleDefinition(processingEnv, type) && !overridesDescribingMethod(type)) {
+            List<TypeElement> classLiterals = reader.superConstructorClassLiterals(type);
+            if (classLiterals != null && !classLiterals.isEmpty()) {
+                String moduleName = binaryName(type);
+                entries.put(moduleName,
+                        classLiterals.stream().map(this::binaryName).collect(Collectors.joining(",")));
+                collectModuleConfiguration(moduleName, classLiterals.get(0));
+            }
+        }
+
+        for (TypeElement nestedType : ElementFilter.typesIn(type.getEnclosedElements())) {
+            collect(nestedType);
+        }
+    }
+
+    /**
+     * the index only knows the class literals handed to the super constructor, so a module describing itself by
+     * overriding methods must be instantiated
+     */
+    private boolean overridesDescribingMethod(TypeElement type) {
+        return ElementFilter.methodsIn(type.getEnclosedElements()).stream().anyMatch(this::isDescribingMethod);
+    }
+
+    private boolean isDescribingMethod(ExecutableElement method) {
+        return DESCRIBING_METHODS.contains(method.getSimpleName().toString()) && method.getParameters().isEmpty();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void collectModuleConfiguration(String moduleName, TypeElement configuration) {
+        if (inheritsModuleConfiguration(configuration.asType())) {
+            return;
+        }
+
+        AnnotationMirror moduleConfiguration = null;
+        for (AnnotationMirror annotation : configuration.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            if (annotationType.getQualifiedName().contentEquals(MODULE_CONFIGURATION)) {
+                moduleConfiguration = annotation;
+            } else if (isModuleConfiguration(annotationType, new HashSet<>())) {
+                return;
+            }
+        }
+
+        boolean lazy = false;
+        List<String> exports = new ArrayList<>();
+        if (moduleConfiguration != null) {
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> attribute : processingEnv
+                    .getElementUtils().getElementValuesWithDefaults(moduleConfiguration).entrySet()) {
+                Object value = attribute.getValue().getValue();
+                if (attribute.getKey().getSimpleName().contentEquals("lazy")) {
+                    lazy = Boolean.TRUE.equals(value);
+                } else if (attribute.getKey().getSimpleName().contentEquals("exports")) {
+                    for (AnnotationValue export : (List<? extends AnnotationValue>) value) {
+                        TypeMirror exportedType = (TypeMirror) export.getValue();
+                        if (exportedType.getKind() != TypeKind.DECLARED) {
+                            // i.e. array types, left to the runtime
+                            return;
+                        }
+                        exports.add(binaryName((TypeElement) ((DeclaredType) exportedType).asElement()));
+                    }
+                }
+            }
+        }
+
+        entries.put(moduleName + LAZY_KEY, String.valueOf(lazy));
+        entries.put(moduleName + EXPORTS_KEY, String.join(",", exports));
+    }
+
+    /**
+     * the runtime finds <tt>@ModuleConfiguration</tt> on super classes and interfaces, too
+     */
+    private boolean inheritsModuleConfiguration(TypeMirror type) {
+        for (TypeMirror supertype : processingEnv.getTypeUtils().directSupertypes(type)) {
+            Element element = processingEnv.getTypeUtils().asElement(supertype);
+            if (element != null && isModuleConfiguration(element, new HashSet<>())
+                    || inheritsModuleConfiguration(supertype)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true, if the element is annotated with <tt>@ModuleConfiguration</tt> directly or by a composed
+     * annotation
+     */
+    private boolean isModuleConfiguration(Element element, Set<Element> visited) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            if (annotationType.getQualifiedName().contentEquals(MODULE_CONFIGURATION)
+                    || visited.add(annotationType) && isModuleConfiguration(annotationType, visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String binaryName(TypeElement type) {
+        return processingEnv.getElementUtils().getBinaryName(type).toString();
+    }
+
+    private void writeIndex() {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        try {
+            FileObject index = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                    INDEX_LOCATION);
+            try (Writer writer = index.openWriter()) {
+                writer.write("# module class = configuration class, dependencies\n");
+                writer.write("# module class" + LAZY_KEY + ", module class" + EXPORTS_KEY
+                        + " = attributes of @ModuleConfiguration\n");
+                for (Map.Entry<String, String> entry : entries.entrySet()) {
+                    writer.write(entry.getKey() + "=" + entry.getValue() + "\n");
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Kind.WARNING,
+                    "could not write module index " + INDEX_LOCATION + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.runtime;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.PriorityOrdered;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+
+/**
+ * Opt-in bootstrap of the JPA entity manager factories of module persistence units (see
+ * {@link com.werum.springmodules.definition.ModulePersistence}) in the background, enabled by
+ * <tt>spring.modules.background-jpa-bootstrap.enabled=true</tt>. Their bootstrap is moved to a fork-join pool and
+ * proceeds while the following beans are created.
+ *
+ * This doesn't make the startup of an application parallel: Spring creates the singletons of a bean factory under a
+ * factory wide lock, and the entity manager factory configured by Spring Boot stays synchronous. It obtains beans
+ * through Hibernate's <tt>SpringBeanContainer</tt>, so its background bootstrap would wait for the singleton lock held
+ * by the thread waiting for the bootstrap to complete. Entity manager factories using a bean container are left
+ * untouched for that reason. Where the startup time goes is shown by the {@link CriticalPathReporter}.
+ */
+public class BackgroundJpaBootstrap implements BeanPostProcessor, DisposableBean, PriorityOrdered {
+    private ForkJoinPool bootstrapPool;
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+        if (bean instanceof AbstractEntityManagerFactoryBean) {
+            AbstractEntityManagerFactoryBean entityManagerFactoryBean = (AbstractEntityManagerFactoryBean) bean;
+            if (entityManagerFactoryBean.getBootstrapExecutor() == null
+                    && !entityManagerFactoryBean.getJpaPropertyMap().containsKey(AvailableSettings.BEAN_CONTAINER)) {
+                entityManagerFactoryBean.setBootstrapExecutor(new ConcurrentTaskExecutor(getBootstrapPool()));
+            }
+        }
+
+        return bean;
+    }
+
+    private synchronized ForkJoinPool getBootstrapPool() {
+        if (bootstrapPool == null) {
+            bootstrapPool = new ForkJoinPool();
+        }
+
+        return bootstrapPool;
+    }
+
+    @Override
+    public void destroy() {
+        if (bootstrapPool != null) {
+            bootstrapPool.shutdown();
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return PriorityOrdered.HIGHEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.runtime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.werum.springmodules.definition.ModuleDefinition;
+import com.werum.springmodules.definition.ResolvedModules.ResolvedModule;
+
+/**
+ * The chain of dependent modules with the highest summed up startup time. It is the lower bound for the startup time of
+ * the modules if all independent modules were started concurrently.
+ */
+public final class CriticalPath {
+    private final List<ResolvedModule> modules;
+
+    private final long durationNanos;
+
+    private CriticalPath(List<ResolvedModule> modules, long durationNanos) {
+        this.modules = Collections.unmodifiableList(modules);
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * @param modules all modules to consider
+     * @param durationNanos startup time of each module, modules without entry are counted with 0
+     * @return the critical path, never null
+     */
+    public static CriticalPath of(List<ResolvedModule> modules, Map<ResolvedModule, Long> durationNanos) {
+        Map<Class<? extends ModuleDefinition>, ResolvedModule> modulesByType = new HashMap<>();
+        modules.forEach(module -> modulesByType.put(module.getType(), module));
+
+        List<ResolvedModule> byTier = new ArrayList<>(modules);
+        byTier.sort(Comparator.comparingInt(ResolvedModule::getTier));
+
+        Map<ResolvedModule, Long> pathDuration = new HashMap<>();
+        Map<ResolvedModule, ResolvedModule> predecessor = new HashMap<>();
+        ResolvedModule last = null;
+        for (ResolvedModule module : byTier) {
+            long longestDependency = 0;
+            for (Class<? extends ModuleDefinition> dependencyType : module.getDependencies()) {
+                ResolvedModule dependency = modulesByType.get(dependencyType);
+                // dependencies inside the same tier are part of a cycle and can't extend the path
+                if (dependency != null && dependency.getTier() < module.getTier()
+                        && pathDuration.get(dependency) >= longestDependency) {
+                    longestDependency = pathDuration.get(dependency);
+                    predecessor.put(module, dependency);
+                }
+            }
+
+            long duration = longestDependency + durationNanos.getOrDefault(module, 0L);
+            pathDuration.put(module, duration);
+            if (last == null || duration > pathDuration.get(last)) {
+                last = module;
+            }
+        }
+
+        List<ResolvedModule> path = new ArrayList<>();
+        for (ResolvedModule module = last; module != null; module = predecessor.get(module)) {
+            path.add(0, module);
+        }
+
+        return new CriticalPath(path, last == null ? 0 : pathDuration.get(last));
+    }
+
+    /**
+     * @return the modules of the path, starting with the module without dependencies
+     */
+    public List<ResolvedModule> getModules() {
+        return modules;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return a report of the startup of the given modules, listing the critical path and the modules of each tier
+     */
+    static String report(List<ResolvedModule> modules, Map<ResolvedModule, Long> durationNanos, long totalNanos) {
+        CriticalPath criticalPath = of(modules, durationNanos);
+
+        StringBuilder ret = new StringBuilder();
+        ret.append("started ").append(modules.size()).append(" modules in ").append(millis(totalNanos))
+                .append(" ms, critical path ").append(millis(criticalPath.getDurationNanos())).append(" ms: ")
+                .append(criticalPath);
+        Map<Integer, List<ResolvedModule>> tiers = modules.stream()
+                .collect(Collectors.groupingBy(ResolvedModule::getTier, TreeMap::new, Collectors.toList()));
+        tiers.forEach((tier, modulesOfTier) -> ret.append("\ntier ").append(tier).append(": ")
+                .append(modulesOfTier.stream()
+                        .map(module -> module.getName() + " (" + millis(durationNanos.getOrDefault(module, 0L))
+                                + " ms)")
+                        .collect(Collectors.joining(", "))));
+        return ret.toString();
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    @Override
+    public String toString() {
+        return modules.stream().map(ResolvedModule::getName).collect(Collectors.joining(" -> "));
+    }
+}
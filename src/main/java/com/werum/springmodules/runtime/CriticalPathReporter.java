@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.runtime;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import com.werum.springmodules.definition.ResolvedModules;
+import com.werum.springmodules.definition.ResolvedModules.ResolvedModule;
+
+/**
+ * Opt-in report of the startup of the modules, enabled by <tt>spring.modules.critical-path-report.enabled=true</tt>.
+ * Once the context has been refreshed the tiers of the modules (see
+ * {@link com.werum.springmodules.definition.ModuleGraph#getTiers()}), the time spent in the beans of each module (see
+ * {@link ResolvedModule#getInitializationNanos()}) and the {@link CriticalPath} through them are logged.
+ *
+ * The modules are still started one after another. The critical path tells how much their startup could gain if
+ * independent modules were started concurrently.
+ */
+public class CriticalPathReporter implements ApplicationListener<ContextRefreshedEvent>, BeanFactoryAware {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CriticalPathReporter.class);
+
+    private BeanFactory beanFactory;
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        ResolvedModules resolvedModules = ResolvedModules.get(beanFactory);
+        if (resolvedModules == null || event.getApplicationContext().getAutowireCapableBeanFactory() != beanFactory) {
+            return;
+        }
+
+        Map<ResolvedModule, Long> durationNanos = resolvedModules.getInitializationNanos();
+        long total = durationNanos.values().stream().mapToLong(Long::longValue).sum();
+        LOGGER.info(CriticalPath.report(resolvedModules.getModules(), durationNanos, total));
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.runtime;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+
+import com.werum.springmodules.definition.ModuleDefinition;
+import com.werum.springmodules.definition.ResolvedModules;
+import com.werum.springmodules.definition.ResolvedModules.ResolvedModule;
+
+/**
+ * Starts each module imported by a class (i.e. <tt>@Import(StudentControllerModule.class)</tt>) in an application
+ * context of its own instead of flattening all modules into one application context.
+ *
+ * The context of a module sees its own beans, the beans exported by the modules it directly depends on (see
+ * {@link com.werum.springmodules.definition.ModuleConfiguration#exports()}) and the beans of the optional parent
+ * context, which is meant to provide the infrastructure shared by all modules (i.e. data sources and entity manager
+ * factories). Spring allows only one parent per context, so the exported beans of the dependencies are collected in an
+ * intermediate context between the parent and the context of the module.
+ *
+ * Exports aren't transitive: a module doesn't see the beans exported by the dependencies of its dependencies. A module
+ * using beans of another module has to depend on it directly.
+ *
+ * Contexts are refreshed tier by tier (see {@link com.werum.springmodules.definition.ModuleGraph#getTiers()}), the
+ * contexts of one tier concurrently. They are refreshed with the context class loader of the thread creating the
+ * hierarchy. A single module can be restarted by {@link #restart(Class)}, which also restarts
+ * all modules depending on it, because they hold references to the beans of the old context.
+ *
+ * Modules depending on each other in a cycle can't be started in separate contexts.
+ */
+public class ModuleContextHierarchy implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ModuleContextHierarchy.class);
+
+    private final ApplicationContext parent;
+
+    private final ResolvedModules resolvedModules;
+
+    private final Map<Class<? extends ModuleDefinition>, ModuleContext> contexts = new ConcurrentHashMap<>();
+
+    private final Map<ResolvedModule, Long> durationNanos = new ConcurrentHashMap<>();
+
+    private final ForkJoinPool refreshPool;
+
+    /**
+     * @param importingClass class importing the root modules, alternative configurations declared at it are applied
+     * @param parent context providing the infrastructure shared by all modules, may be null
+     */
+    public ModuleContextHierarchy(Class<?> importingClass, ApplicationContext parent) {
+        this.parent = parent;
+        this.resolvedModules = ResolvedModules.resolve(importingClass);
+        this.refreshPool = refreshPool(Thread.currentThread().getContextClassLoader());
+
+        for (ResolvedModule module : resolvedModules.getModules()) {
+            for (Class<? extends ModuleDefinition> dependency : module.getDependencies()) {
+                ResolvedModule resolvedDependency = resolvedModules.getModule(dependency);
+                if (resolvedDependency != null && resolvedDependency.getTier() >= module.getTier()) {
+                    throw new IllegalStateException("modules " + module + " and " + resolvedDependency
+                            + " depend on each other and can't be started in separate contexts");
+                }
+            }
+        }
+    }
+
+    /**
+     * starts the contexts of all modules
+     */
+    public synchronized void start() {
+        long start = System.nanoTime();
+        start(resolvedModules.getModules());
+        LOGGER.info(CriticalPath.report(resolvedModules.getModules(), durationNanos, System.nanoTime() - start));
+    }
+
+    /**
+     * closes the context of the given module and of all modules depending on it and starts them again
+     */
+    public synchronized void restart(Class<? extends ModuleDefinition> type) {
+        ResolvedModule module = resolvedModules.getModule(type);
+        if (module == null) {
+            throw new IllegalArgumentException(type.getName() + " isn't part of the module hierarchy");
+        }
+
+        Set<ResolvedModule> affected = new LinkedHashSet<>();
+        affected.add(module);
+        for (ResolvedModule candidate : byTier(resolvedModules.getModules())) {
+            if (candidate.getDependencies().stream().map(resolvedModules::getModule).anyMatch(affected::contains)) {
+                affected.add(candidate);
+            }
+        }
+
+        LOGGER.info("restarting " + affected);
+        close(affected);
+        start(affected);
+    }
+
+    /**
+     * @return the context of the given module or null, if the module isn't started
+     */
+    public ConfigurableApplicationContext getContext(Class<? extends ModuleDefinition> type) {
+        ModuleContext moduleContext = contexts.get(type);
+        return moduleContext == null ? null : moduleContext.context;
+    }
+
+    /**
+     * @return the beans the given module exports to the modules depending on it, by bean name
+     */
+    public Map<String, Object> getExportedBeans(Class<? extends ModuleDefinition> type) {
+        ModuleContext moduleContext = contexts.get(type);
+        return moduleContext == null ? Collections.emptyMap() : moduleContext.exportedBeans;
+    }
+
+    public ResolvedModules getResolvedModules() {
+        return resolvedModules;
+    }
+
+    /**
+     * @return time spent refreshing the context of each module on its last start
+     */
+    public Map<ResolvedModule, Long> getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * closes the contexts of all modules, the parent context is left untouched
+     */
+    @Override
+    public synchronized void close() {
+        close(resolvedModules.getModules());
+        refreshPool.shutdown();
+    }
+
+    /**
+     * @return a pool whose threads use the given context class loader instead of the system class loader, which is set
+     *         for the threads of a fork-join pool since Java 9
+     */
+    private static ForkJoinPool refreshPool(ClassLoader contextClassLoader) {
+        return new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setContextClassLoader(contextClassLoader);
+            return thread;
+        }, null, false);
+    }
+
+    private void start(Collection<ResolvedModule> modules) {
+        Map<Integer, List<ResolvedModule>> tiers = modules.stream()
+                .collect(Collectors.groupingBy(ResolvedModule::getTier, TreeMap::new, Collectors.toList()));
+        for (List<ResolvedModule> tier : tiers.values()) {
+            List<ForkJoinTask<?>> refreshs = new ArrayList<>();
+            for (ResolvedModule module : tier) {
+                refreshs.add(refreshPool.submit(() -> start(module)));
+            }
+
+            RuntimeException failure = null;
+            for (ForkJoinTask<?> refresh : refreshs) {
+                try {
+                    refresh.join();
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            if (failure != null) {
+                close(modules);
+                throw failure;
+            }
+        }
+    }
+
+    private void start(ResolvedModule module) {
+        long start = System.nanoTime();
+
+        GenericApplicationContext imports = new GenericApplicationContext();
+        imports.setDisplayName(module.getName() + " imports");
+        imports.setParent(parent);
+        for (Class<? extends ModuleDefinition> dependency : module.getDependencies()) {
+            // dependencies cut off by an alternative configuration have no context, infrastructure beans registered by
+            // several dependencies (i.e. by @EnableJpaRepositories) are taken from the first one
+            getExportedBeans(dependency).forEach((beanName, bean) -> {
+                if (!imports.getBeanFactory().containsSingleton(beanName)) {
+                    imports.getBeanFactory().registerSingleton(beanName, bean);
+                }
+            });
+        }
+        imports.refresh();
+
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.setDisplayName(module.getName());
+        context.setParent(imports);
+        context.register(module.getConfiguration());
+        try {
+            context.refresh();
+        } catch (RuntimeException e) {
+            imports.close();
+            throw e;
+        }
+
+        contexts.put(module.getType(), new ModuleContext(imports, context, exportedBeans(module, context)));
+        durationNanos.put(module, System.nanoTime() - start);
+    }
+
+    private Map<String, Object> exportedBeans(ResolvedModule module, ConfigurableApplicationContext context) {
+        Map<String, Object> ret = new LinkedHashMap<>();
+        if (module.getExportedTypes().isEmpty()) {
+            ConfigurableListableBeanFactory beanFactory = context.getBeanFactory();
+            for (String beanName : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+                if (beanDefinition.getRole() == BeanDefinition.ROLE_APPLICATION && beanDefinition.isSingleton()
+                        && !beanDefinition.isAbstract()) {
+                    ret.put(beanName, context.getBean(beanName));
+                }
+            }
+        } else {
+            // getBeansOfType doesn't consider the parent contexts, so only beans of the module itself are exported
+            module.getExportedTypes().forEach(type -> ret.putAll(context.getBeansOfType(type)));
+        }
+
+        return Collections.unmodifiableMap(ret);
+    }
+
+    private void close(Collection<ResolvedModule> modules) {
+        List<ResolvedModule> reversed = byTier(modules);
+        Collections.reverse(reversed);
+        for (ResolvedModule module : reversed) {
+            ModuleContext moduleContext = contexts.remove(module.getType());
+            if (moduleContext != null) {
+                moduleContext.context.close();
+                moduleContext.imports.close();
+            }
+        }
+    }
+
+    private static List<ResolvedModule> byTier(Collection<ResolvedModule> modules) {
+        List<ResolvedModule> ret = new ArrayList<>(modules);
+        ret.sort(Comparator.comparingInt(ResolvedModule::getTier));
+        return ret;
+    }
+
+    private static class ModuleContext {
+        private final ConfigurableApplicationContext imports;
+
+        private final ConfigurableApplicationContext context;
+
+        private final Map<String, Object> exportedBeans;
+
+        ModuleContext(ConfigurableApplicationContext imports, ConfigurableApplicationContext context,
+                Map<String, Object> exportedBeans) {
+            this.imports = imports;
+            this.context = context;
+            this.exportedBeans = exportedBeans;
+        }
+    }
+}
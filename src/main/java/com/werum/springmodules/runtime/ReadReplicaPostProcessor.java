@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.runtime;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.werum.springmodules.definition.ModulePersistence;
+import com.werum.springmodules.definition.ResolvedModules;
+import com.werum.springmodules.definition.ResolvedModules.ResolvedModule;
+
+/**
+ * Opt-in read/write splitting, enabled by <tt>spring.modules.read-replica.url</tt>: the primary DataSource (the bean
+ * named by <tt>spring.modules.read-replica.data-source</tt>, <tt>dataSource</tt> by default) is wrapped by a
+ * {@link ReadReplicaRoutingDataSource}, which routes the read-only transactions started by beans of modules declaring
+ * {@link ModulePersistence#replicaReads()} to the replica.
+ *
+ * The replica is configured by the properties <tt>url</tt>, <tt>username</tt>, <tt>password</tt> and
+ * <tt>driver-class-name</tt> below <tt>spring.modules.read-replica</tt>. <tt>max-lag</tt> (default 5s) is the lag
+ * tolerated, checked every <tt>check-interval</tt> (default 5s) by the {@link ReplicaLagProbe} bean, the
+ * <tt>lag-query</tt> or, if neither is given, by validating a connection.
+ */
+public class ReadReplicaPostProcessor implements BeanPostProcessor, BeanFactoryAware, EnvironmentAware, DisposableBean {
+    public static final String PROPERTY_PREFIX = "spring.modules.read-replica.";
+
+    private ConfigurableListableBeanFactory beanFactory;
+
+    private Environment environment;
+
+    private DataSource replica;
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        this.beanFactory = (ConfigurableListableBeanFactory) beanFactory;
+    }
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (!(bean instanceof DataSource)
+                || !beanName.equals(environment.getProperty(PROPERTY_PREFIX + "data-source", "dataSource"))) {
+            return bean;
+        }
+
+        replica = DataSourceBuilder.create(beanFactory.getBeanClassLoader())
+                .url(environment.getRequiredProperty(PROPERTY_PREFIX + "url"))
+                .username(environment.getProperty(PROPERTY_PREFIX + "username"))
+                .password(environment.getProperty(PROPERTY_PREFIX + "password"))
+                .driverClassName(environment.getProperty(PROPERTY_PREFIX + "driver-class-name")).build();
+        String lagQuery = environment.getProperty(PROPERTY_PREFIX + "lag-query");
+        ReplicaLagProbe lagProbe = beanFactory.getBeanProvider(ReplicaLagProbe.class).getIfAvailable(
+                () -> lagQuery == null ? ReplicaLagProbe.connectionCheck() : ReplicaLagProbe.query(lagQuery));
+
+        return new LazyConnectionDataSourceProxy(new ReadReplicaRoutingDataSource((DataSource) bean, replica,
+                this::isRoutedTransaction, lagProbe, duration("max-lag"), duration("check-interval")));
+    }
+
+    private Duration duration(String property) {
+        return DurationStyle.detectAndParse(environment.getProperty(PROPERTY_PREFIX + property, "5s"));
+    }
+
+    /**
+     * @param transactionName qualified name of the method starting the transaction
+     */
+    private boolean isRoutedTransaction(String transactionName) {
+        ResolvedModules resolvedModules = ResolvedModules.get(beanFactory);
+        int methodSeparator = transactionName.lastIndexOf('.');
+        if (resolvedModules == null || methodSeparator < 0) {
+            return false;
+        }
+
+        ResolvedModule module = resolvedModules.getModuleOfClass(transactionName.substring(0, methodSeparator));
+        return module != null && module.getPersistence() != null && module.getPersistence().replicaReads();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (replica instanceof AutoCloseable) {
+            ((AutoCloseable) replica).close();
+        }
+    }
+}
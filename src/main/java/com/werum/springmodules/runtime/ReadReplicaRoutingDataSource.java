@@ -0,0 +1,167 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.runtime;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Routes the connections of read-only transactions to a read replica, all other connections to the primary.
+ * Transactions are only routed if the predicate given accepts their name, which is the qualified name of the
+ * <tt>@Transactional</tt> method starting them, i.e. to route the reads of selected modules only (see
+ * {@link ReadReplicaPostProcessor}).
+ *
+ * The transaction managers obtain connections before the transaction is marked read-only, so the data source has to be
+ * wrapped by a {@link LazyConnectionDataSourceProxy}.
+ *
+ * The replica is checked by a {@link ReplicaLagProbe} at most once per check interval. While it lags more than the
+ * tolerated lag, the probe fails or the replica doesn't hand out connections, the reads are served by the primary.
+ */
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadReplicaRoutingDataSource.class);
+
+    enum Target {
+        PRIMARY, REPLICA
+    }
+
+    private final DataSource primary;
+
+    private final DataSource replica;
+
+    private final Predicate<String> routedTransactions;
+
+    private final ReplicaLagProbe lagProbe;
+
+    private final Duration maxLag;
+
+    private final long checkIntervalNanos;
+
+    private volatile boolean replicaAvailable;
+
+    private volatile long nextCheckNanos = System.nanoTime();
+
+    /**
+     * @param routedTransactions accepts the names of the read-only transactions to route to the replica
+     * @param maxLag lag of the replica tolerated by the reads routed to it
+     * @param checkInterval time the result of the lag probe is reused
+     */
+    public ReadReplicaRoutingDataSource(DataSource primary, DataSource replica, Predicate<String> routedTransactions,
+            ReplicaLagProbe lagProbe, Duration maxLag, Duration checkInterval) {
+        this.primary = primary;
+        this.replica = replica;
+        this.routedTransactions = routedTransactions;
+        this.lagProbe = lagProbe;
+        this.maxLag = maxLag;
+        this.checkIntervalNanos = checkInterval.toNanos();
+
+        Map<Object, Object> targetDataSources = new HashMap<>();
+        targetDataSources.put(Target.PRIMARY, primary);
+        targetDataSources.put(Target.REPLICA, replica);
+        setTargetDataSources(targetDataSources);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return isRoutedTransaction() && isReplicaAvailable() ? Target.REPLICA : Target.PRIMARY;
+    }
+
+    private boolean isRoutedTransaction() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return false;
+        }
+
+        String transactionName = TransactionSynchronizationManager.getCurrentTransactionName();
+        return transactionName != null && routedTransactions.test(transactionName);
+    }
+
+    private boolean isReplicaAvailable() {
+        if (System.nanoTime() - nextCheckNanos >= 0) {
+            synchronized (this) {
+                if (System.nanoTime() - nextCheckNanos >= 0) {
+                    replicaAvailable = checkReplica();
+                    nextCheckNanos = System.nanoTime() + checkIntervalNanos;
+                }
+            }
+        }
+
+        return replicaAvailable;
+    }
+
+    private boolean checkReplica() {
+        try {
+            Duration lag = lagProbe.getLag(replica);
+            if (lag.compareTo(maxLag) > 0) {
+                LOGGER.info("replica lags {} behind, tolerated are {}, reading from primary", lag, maxLag);
+                return false;
+            }
+            return true;
+        } catch (SQLException | RuntimeException e) {
+            LOGGER.warn("replica unavailable, reading from primary: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        DataSource target = determineTargetDataSource();
+        try {
+            return target.getConnection();
+        } catch (SQLException e) {
+            if (target != replica) {
+                throw e;
+            }
+            replicaFailed(e);
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        DataSource target = determineTargetDataSource();
+        try {
+            return target.getConnection(username, password);
+        } catch (SQLException e) {
+            if (target != replica) {
+                throw e;
+            }
+            replicaFailed(e);
+            return primary.getConnection(username, password);
+        }
+    }
+
+    /**
+     * falls back to the primary until the next check of the replica
+     */
+    private synchronized void replicaFailed(SQLException e) {
+        LOGGER.warn("no connection to replica, reading from primary: {}", e.getMessage());
+        replicaAvailable = false;
+        nextCheckNanos = System.nanoTime() + checkIntervalNanos;
+    }
+}
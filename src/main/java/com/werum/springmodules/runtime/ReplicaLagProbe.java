@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.runtime;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+/**
+ * Determines how far a read replica lags behind its primary, see {@link ReadReplicaRoutingDataSource}. Declare a bean
+ * of this type to replace the probe configured by <tt>spring.modules.read-replica.lag-query</tt>.
+ */
+@FunctionalInterface
+public interface ReplicaLagProbe {
+    /**
+     * @return the current lag of the replica
+     * @throws SQLException if the replica is unavailable
+     */
+    Duration getLag(DataSource replica) throws SQLException;
+
+    /**
+     * @return a probe only checking that the replica hands out valid connections, assuming it doesn't lag
+     */
+    static ReplicaLagProbe connectionCheck() {
+        return replica -> {
+            try (Connection connection = replica.getConnection()) {
+                if (!connection.isValid(1)) {
+                    throw new SQLException("invalid connection to replica");
+                }
+            }
+            return Duration.ZERO;
+        };
+    }
+
+    /**
+     * @param lagQuery query run on the replica, returning the lag in milliseconds, i.e. on PostgreSQL
+     *        <tt>select extract(epoch from now() - pg_last_xact_replay_timestamp()) * 1000</tt>
+     */
+    static ReplicaLagProbe query(String lagQuery) {
+        return replica -> {
+            try (Connection connection = replica.getConnection();
+                    Statement statement = connection.createStatement();
+                    ResultSet resultSet = statement.executeQuery(lagQuery)) {
+                if (!resultSet.next()) {
+                    throw new SQLException("lag query returned no result: " + lagQuery);
+                }
+                return Duration.ofMillis(resultSet.getLong(1));
+            }
+        };
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.runtime;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Auto-configuration for the opt-in runtime features of spring-modules
+ */
+@Configuration
+public class SpringModulesAutoConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.modules.background-jpa-bootstrap", name = "enabled", havingValue = "true")
+    public static BackgroundJpaBootstrap backgroundJpaBootstrap() {
+        return new BackgroundJpaBootstrap();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.modules.critical-path-report", name = "enabled", havingValue = "true")
+    public CriticalPathReporter criticalPathReporter() {
+        return new CriticalPathReporter();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.modules.read-replica", name = "url")
+    public static ReadReplicaPostProcessor readReplicaPostProcessor() {
+        return new ReadReplicaPostProcessor();
+    }
+}
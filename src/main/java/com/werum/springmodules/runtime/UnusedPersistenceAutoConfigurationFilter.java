@@ -0,0 +1,187 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.runtime;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.autoconfigure.AutoConfigurationImportFilter;
+import org.springframework.boot.autoconfigure.AutoConfigurationMetadata;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.util.ClassUtils;
+
+import com.werum.springmodules.definition.ResolvedModules;
+
+/**
+ * Excludes the auto-configurations of DataSources, JPA and database migrations if the modules imported into the
+ * context don't need persistence, i.e. because all DAO modules have been replaced by mock configurations in a test of
+ * the web layer (see {@link ResolvedModules#isPersistenceRequired()}). Contexts without modules are left untouched.
+ *
+ * Modules are resolved before the auto-configurations are selected, so their {@link ResolvedModules} are already known
+ * when the filter is asked. Persistence defined outside of the modules is kept: if a bean definition known at that
+ * time is a DataSource, an EntityManagerFactory or a repository, declares one by a <tt>@Bean</tt> method, or enables
+ * JPA itself, and it doesn't belong to a module, nothing is excluded.
+ *
+ * The filter is disabled by default, since applications relying on the package scanning of Spring Boot or using plain
+ * JDBC aren't recognized by the modules. Set <tt>spring.modules.exclude-unused-persistence.enabled=true</tt> to enable
+ * it; {@link com.werum.springmodules.testsupport.ModuleTest module tests} enable it unless they set the property
+ * themselves.
+ */
+public class UnusedPersistenceAutoConfigurationFilter
+        implements AutoConfigurationImportFilter, BeanFactoryAware, EnvironmentAware {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UnusedPersistenceAutoConfigurationFilter.class);
+
+    public static final String ENABLED_PROPERTY = "spring.modules.exclude-unused-persistence.enabled";
+
+    static final Set<String> PERSISTENCE_AUTO_CONFIGURATIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration",
+            "org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration",
+            "org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration",
+            "org.springframework.boot.autoconfigure.jdbc.JndiDataSourceAutoConfiguration",
+            "org.springframework.boot.autoconfigure.jdbc.XADataSourceAutoConfiguration",
+            "org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration",
+            "org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration",
+            "org.springframework.boot.autoconfigure.data.jdbc.JdbcRepositoriesAutoConfiguration",
+            "org.springframework.boot.autoconfigure.flyway.FlywayAutoConfiguration",
+            "org.springframework.boot.autoconfigure.liquibase.LiquibaseAutoConfiguration",
+            "org.springframework.boot.autoconfigure.jooq.JooqAutoConfiguration",
+            "org.springframework.boot.autoconfigure.h2.H2ConsoleAutoConfiguration",
+            "org.springframework.boot.test.autoconfigure.jdbc.TestDatabaseAutoConfiguration",
+            "org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManagerAutoConfiguration")));
+
+    /**
+     * types of the beans defining persistence
+     */
+    private static final String[] PERSISTENCE_TYPES = {
+            "javax.sql.DataSource",
+            "javax.persistence.EntityManagerFactory",
+            "org.springframework.orm.jpa.AbstractEntityManagerFactoryBean",
+            "org.springframework.data.repository.Repository",
+            "org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport"};
+
+    private ConfigurableListableBeanFactory beanFactory;
+
+    private Environment environment;
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        if (beanFactory instanceof ConfigurableListableBeanFactory) {
+            this.beanFactory = (ConfigurableListableBeanFactory) beanFactory;
+        }
+    }
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public boolean[] match(String[] autoConfigurationClasses, AutoConfigurationMetadata autoConfigurationMetadata) {
+        boolean[] ret = new boolean[autoConfigurationClasses.length];
+        Arrays.fill(ret, true);
+        if (!isEnabled() || beanFactory == null) {
+            return ret;
+        }
+
+        ResolvedModules resolvedModules = ResolvedModules.get(beanFactory);
+        if (resolvedModules == null || resolvedModules.isPersistenceRequired()) {
+            return ret;
+        }
+        String beanName = findPersistenceOutsideOfModules(resolvedModules);
+        if (beanName != null) {
+            LOGGER.debug("keeping persistence auto-configurations, {} doesn't belong to a module", beanName);
+            return ret;
+        }
+
+        for (int i = 0; i < autoConfigurationClasses.length; i++) {
+            if (autoConfigurationClasses[i] != null
+                    && PERSISTENCE_AUTO_CONFIGURATIONS.contains(autoConfigurationClasses[i])) {
+                LOGGER.debug("excluding {}, no persistent module resolved", autoConfigurationClasses[i]);
+                ret[i] = false;
+            }
+        }
+
+        return ret;
+    }
+
+    private boolean isEnabled() {
+        return environment != null && environment.getProperty(ENABLED_PROPERTY, Boolean.class, false);
+    }
+
+    /**
+     * @return the name of a bean definition defining persistence that doesn't belong to one of the given modules or
+     * null, if there is none. <tt>@Bean</tt> methods and repositories aren't registered yet when the filter is asked,
+     * so the configurations declaring them are taken into account, too.
+     */
+    private String findPersistenceOutsideOfModules(ResolvedModules resolvedModules) {
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+            String className = beanDefinition.getBeanClassName();
+            if (className == null || resolvedModules.getModuleOfClass(className) != null) {
+                continue;
+            }
+
+            if (isPersistenceType(className)) {
+                return beanName;
+            }
+            if (beanDefinition instanceof AnnotatedBeanDefinition) {
+                AnnotatedBeanDefinition annotatedBeanDefinition = (AnnotatedBeanDefinition) beanDefinition;
+                MethodMetadata factoryMethod = annotatedBeanDefinition.getFactoryMethodMetadata();
+                if (factoryMethod != null && isPersistenceType(factoryMethod.getReturnTypeName())) {
+                    return beanName;
+                }
+
+                AnnotationMetadata metadata = annotatedBeanDefinition.getMetadata();
+                if (ResolvedModules.isPersistent(metadata) || metadata.getAnnotatedMethods(Bean.class.getName())
+                        .stream().anyMatch(method -> isPersistenceType(method.getReturnTypeName()))) {
+                    return beanName;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private boolean isPersistenceType(String className) {
+        ClassLoader classLoader = beanFactory.getBeanClassLoader();
+        try {
+            Class<?> type = ClassUtils.forName(className, classLoader);
+            for (String persistenceType : PERSISTENCE_TYPES) {
+                if (ClassUtils.isPresent(persistenceType, classLoader)
+                        && ClassUtils.forName(persistenceType, classLoader).isAssignableFrom(type)) {
+                    return true;
+                }
+            }
+        } catch (ClassNotFoundException | LinkageError e) {
+            LOGGER.trace("unable to load {}", className, e);
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.testsupport;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+/**
+ * Snapshot of an embedded H2 database, taken by <tt>SCRIPT</tt>. Restoring drops all objects of the database and runs
+ * the script, which takes a few milliseconds for the databases of module tests, so the schema doesn't have to be
+ * recreated and the data doesn't have to be seeded again for each test.
+ */
+final class DatabaseSnapshot {
+    private final List<String> statements;
+
+    private DatabaseSnapshot(List<String> statements) {
+        this.statements = statements;
+    }
+
+    static DatabaseSnapshot take(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            String databaseProduct = connection.getMetaData().getDatabaseProductName();
+            if (!"H2".equals(databaseProduct)) {
+                throw new IllegalStateException("database snapshots are supported for H2 only, not for "
+                        + databaseProduct);
+            }
+
+            List<String> statements = new ArrayList<>();
+            try (ResultSet script = statement.executeQuery("SCRIPT NOPASSWORDS NOSETTINGS")) {
+                while (script.next()) {
+                    statements.add(script.getString(1));
+                }
+            }
+            return new DatabaseSnapshot(statements);
+        } catch (SQLException e) {
+            throw new IllegalStateException("could not take snapshot of database", e);
+        }
+    }
+
+    void restore(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("could not restore snapshot of database", e);
+        }
+    }
+}
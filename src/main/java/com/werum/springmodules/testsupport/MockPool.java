@@ -0,0 +1,109 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.testsupport;
+
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of Mockito mocks shared by all application contexts of a test JVM. Generating a mock class and instantiating it
+ * is expensive compared to resetting an existing mock, so the mocks of {@link MockitoFactoryBean}s are handed back to
+ * the pool when their context is closed and handed out again to the next context needing a mock of the same type. A
+ * released mock is reset, so no stubbings or invocations of the previous context leak into the next one.
+ */
+public final class MockPool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MockPool.class);
+
+    private static final MockPool INSTANCE = new MockPool();
+
+    private final Map<Class<?>, Deque<Object>> releasedMocks = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong generationNanos = new AtomicLong();
+
+    MockPool() {
+    }
+
+    public static MockPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return a released mock of the given type or a new one, if there is none
+     */
+    public <T> T acquire(Class<T> type) {
+        Deque<Object> mocks = releasedMocks.get(type);
+        Object released = mocks == null ? null : mocks.poll();
+        if (released != null) {
+            hits.incrementAndGet();
+            return type.cast(released);
+        }
+
+        misses.incrementAndGet();
+        long start = System.nanoTime();
+        T ret = Mockito.mock(type);
+        generationNanos.addAndGet(System.nanoTime() - start);
+        return ret;
+    }
+
+    /**
+     * resets the given mock and makes it available to {@link #acquire(Class)}. It must not be used by the caller
+     * anymore.
+     */
+    public <T> void release(Class<T> type, T mock) {
+        Mockito.reset((Object) mock);
+        releasedMocks.computeIfAbsent(type, key -> new ConcurrentLinkedDeque<>()).push(mock);
+    }
+
+    /**
+     * @return number of mocks handed out again
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of mocks generated
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return time spent generating mocks
+     */
+    public long getGenerationNanos() {
+        return generationNanos.get();
+    }
+
+    void logStatistics() {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("mock pool statistics: hits = " + hits + ", misses = " + misses + ", generation time = "
+                    + TimeUnit.NANOSECONDS.toMillis(generationNanos.get()) + " ms");
+        }
+    }
+}
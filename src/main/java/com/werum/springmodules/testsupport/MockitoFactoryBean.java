@@ -15,37 +15,136 @@
  */
 package com.werum.springmodules.testsupport;
 
-import static org.mockito.Mockito.mock;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.FactoryBean;
+import org.springframework.util.Assert;
 
 /**
  * Factory class for mocks. Allows using mocks of components to be used in Applicatoin Context,
  * see http://www.jayway.com/2011/11/30/spring-integration-tests-part-i-creating-mock-objects/
  *
+ * The mock is created when it is requested for the first time, so mocks of beans no test touches don't cost the
+ * generation of a mock class at startup. Mocks of interfaces may be handed out as placeholder, a JDK proxy creating the
+ * mock and delegating to it when one of its methods is called for the first time, so the mock isn't even created for
+ * beans only injected somewhere. Stubbing a placeholder (<tt>when(placeholder.method())</tt>) works like stubbing the
+ * mock, but it must be unwrapped by {@link #mockOf(Object)} to be verified.
+ *
+ * Mocks are taken from the {@link MockPool} and released to it when the application context is closed.
+ *
  */
-public class MockitoFactoryBean<T> implements FactoryBean<T> {
+public class MockitoFactoryBean<T> implements FactoryBean<T>, DisposableBean {
+
+    private final Class<T> objectType;
+
+    private final boolean placeholder;
+
+    private final boolean pooled;
 
-    private T mockToReturn;
+    private volatile T mockToReturn;
 
-    private Class<T> objectType;
+    private volatile T placeholderToReturn;
 
     /**
      * Creates a Mockito mock instance of the provided class.
      * @param classToBeMocked The class to be mocked.
      */
     public MockitoFactoryBean(Class<T> classToBeMocked) {
-        this(classToBeMocked, mock(classToBeMocked));
+        this(classToBeMocked, false);
+    }
+
+    /**
+     * @param classToBeMocked The class to be mocked.
+     * @param placeholder true, if a placeholder should be returned instead of the mock, requires an interface
+     */
+    public MockitoFactoryBean(Class<T> classToBeMocked, boolean placeholder) {
+        Assert.isTrue(!placeholder || classToBeMocked.isInterface(),
+                () -> "placeholders can be created for interfaces only, not for " + classToBeMocked.getName());
+        this.objectType = classToBeMocked;
+        this.placeholder = placeholder;
+        this.pooled = true;
     }
 
     public MockitoFactoryBean(Class<T> objectType, T mock) {
         this.mockToReturn = mock;
         this.objectType = objectType;
+        this.placeholder = false;
+        this.pooled = false;
     }
 
     @Override
-    public T getObject() throws Exception {
-        return mockToReturn;
+    public T getObject() {
+        return placeholder ? getPlaceholder() : getMock();
+    }
+
+    /**
+     * @return the mock, created on first call
+     */
+    public T getMock() {
+        T ret = mockToReturn;
+        if (ret == null) {
+            synchronized (this) {
+                ret = mockToReturn;
+                if (ret == null) {
+                    ret = MockPool.getInstance().acquire(objectType);
+                    mockToReturn = ret;
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * @return true, if the mock has been created already
+     */
+    public boolean isMockCreated() {
+        return mockToReturn != null;
+    }
+
+    private T getPlaceholder() {
+        T ret = placeholderToReturn;
+        if (ret == null) {
+            synchronized (this) {
+                ret = placeholderToReturn;
+                if (ret == null) {
+                    ret = objectType.cast(Proxy.newProxyInstance(objectType.getClassLoader(),
+                            new Class<?>[] {objectType}, new PlaceholderHandler(this)));
+                    placeholderToReturn = ret;
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * @return the mock behind the given placeholder, the given object itself if it isn't a placeholder
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T mockOf(T object) {
+        if (object != null && Proxy.isProxyClass(object.getClass())
+                && Proxy.getInvocationHandler(object) instanceof PlaceholderHandler) {
+            return (T) ((PlaceholderHandler) Proxy.getInvocationHandler(object)).factoryBean.getMock();
+        }
+
+        return object;
+    }
+
+    /**
+     * releases the mock to the {@link MockPool}, if it has been taken from there
+     */
+    @Override
+    public synchronized void destroy() {
+        T mock = mockToReturn;
+        if (pooled && mock != null) {
+            mockToReturn = null;
+            MockPool.getInstance().release(objectType, mock);
+        }
     }
 
     @Override
@@ -57,4 +156,41 @@ public class MockitoFactoryBean<T> implements FactoryBean<T> {
     public boolean isSingleton() {
         return true;
     }
-}
\ No newline at end of file
+
+    private static class PlaceholderHandler implements InvocationHandler {
+        private final MockitoFactoryBean<?> factoryBean;
+
+        PlaceholderHandler(MockitoFactoryBean<?> factoryBean) {
+            this.factoryBean = factoryBean;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+            case "equals":
+                if (method.getParameterCount() == 1) {
+                    return proxy == args[0];
+                }
+                break;
+            case "hashCode":
+                if (method.getParameterCount() == 0) {
+                    return System.identityHashCode(proxy);
+                }
+                break;
+            case "toString":
+                if (method.getParameterCount() == 0) {
+                    return "Placeholder for mock of " + factoryBean.objectType.getSimpleName();
+                }
+                break;
+            default:
+                break;
+            }
+
+            try {
+                return method.invoke(factoryBean.getMock(), args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
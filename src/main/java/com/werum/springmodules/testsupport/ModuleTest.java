@@ -23,18 +23,56 @@ import java.lang.annotation.Target;
 
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.TestExecutionListeners.MergeMode;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 /**
  *
  * Annotation to be used for module tests
  *
+ * Test classes importing modules that resolve to the same configuration classes share their application context (see
+ * {@link com.werum.springmodules.definition.ModuleDefinition}). The contexts of module tests are closed by footprint,
+ * see {@link ModuleTestContextCache}. They are loaded the way Spring Boot loads the contexts of its tests, including
+ * <tt>application.properties</tt>, but without banner and without the persistence auto-configurations the modules don't
+ * need (see {@link ModuleTestContextLoader}).
+ *
+ * Instead of recreating the context (i.e. by <tt>@DirtiesContext</tt>) the state tests leave behind is reset after each
+ * test method, see {@link #reset()}. The test methods using the same context are serialized, so module tests may be
+ * executed in parallel (see {@link ModuleTestResetListener}).
+ *
  */
 @Inherited
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.TYPE)
 @ExtendWith(SpringExtension.class)
-@ContextConfiguration(classes = Object.class)
+@ContextConfiguration(classes = Object.class, loader = ModuleTestContextLoader.class)
+@TestExecutionListeners(listeners = {ModuleTestContextCacheListener.class, ModuleTestResetListener.class},
+        mergeMode = MergeMode.MERGE_WITH_DEFAULTS)
 public @interface ModuleTest {
+    /**
+     * @return the state to reset after each test method
+     */
+    Reset[] reset() default Reset.MOCKS;
+
+    enum Reset {
+        /**
+         * resets the mocks created by {@link MockitoFactoryBean}s and the mocks provided by alternative configurations
+         * (see {@link com.werum.springmodules.definition.ReplacesConfigurationClass})
+         */
+        MOCKS,
+
+        /**
+         * runs each test method in a transaction, which is rolled back afterwards. Tests managing transactions
+         * themselves (i.e. by <tt>@Transactional</tt> or <tt>@DataJpaTest</tt>) are left untouched.
+         */
+        DATABASE,
 
+        /**
+         * restores a snapshot of the embedded H2 database before each test method. The snapshot is taken when a test
+         * class uses its context for the first time, after the methods annotated with {@link DatabaseSeed} have been
+         * invoked.
+         */
+        DATABASE_SNAPSHOT
+    }
 }
\ No newline at end of file
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.testsupport;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.ClassDescriptor;
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.ClassOrdererContext;
+import org.springframework.beans.BeanUtils;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.StandardAnnotationMetadata;
+
+import com.werum.springmodules.definition.DependencyResolverStrategy.AlternativeComponentConfigurations;
+import com.werum.springmodules.definition.ModuleDefinition;
+
+/**
+ * {@link ClassOrderer} running {@link ModuleTest}s sharing an application context back to back. Test classes are
+ * grouped by the imports their modules determine for the key of the context cache (see {@link ModuleDefinition}) and
+ * by their remaining annotations, which together decide about the cached context they use. The last test class of each
+ * group closes the context when it has finished (see {@link ModuleTestContextCacheListener}), so only one context of
+ * module tests is open at a time.
+ *
+ * It is activated in <tt>junit-platform.properties</tt>:
+ *
+ * <pre>
+ * junit.jupiter.testclass.order.default=com.werum.springmodules.testsupport.ModuleTestClassOrderer
+ * </pre>
+ */
+public class ModuleTestClassOrderer implements ClassOrderer {
+    private static final Set<Class<?>> LAST_CLASSES_OF_CONTEXT = ConcurrentHashMap.newKeySet();
+
+    /**
+     * packages of annotations which don't influence the application context of a test class
+     */
+    private static final String[] NON_CONTEXT_ANNOTATION_PACKAGES = {"org.junit.",
+            "org.springframework.transaction.annotation."};
+
+    @Override
+    public void orderClasses(ClassOrdererContext context) {
+        List<? extends ClassDescriptor> classDescriptors = context.getClassDescriptors();
+        classDescriptors.sort(Comparator.comparing(classDescriptor -> classDescriptor.getTestClass().getName()));
+
+        Map<Object, List<ClassDescriptor>> groups = new LinkedHashMap<>();
+        for (ClassDescriptor classDescriptor : classDescriptors) {
+            groups.computeIfAbsent(fingerprint(classDescriptor.getTestClass()), key -> new ArrayList<>())
+                    .add(classDescriptor);
+        }
+
+        Map<ClassDescriptor, Integer> positions = new HashMap<>();
+        for (List<ClassDescriptor> group : groups.values()) {
+            group.forEach(classDescriptor -> positions.put(classDescriptor, positions.size()));
+            Class<?> lastClass = group.get(group.size() - 1).getTestClass();
+            if (AnnotatedElementUtils.hasAnnotation(lastClass, ModuleTest.class)) {
+                LAST_CLASSES_OF_CONTEXT.add(lastClass);
+            }
+        }
+        classDescriptors.sort(Comparator.comparing(positions::get));
+    }
+
+    /**
+     * @return true, if the given test class is the last one using its application context
+     */
+    static boolean isLastClassOfContext(Class<?> testClass) {
+        return LAST_CLASSES_OF_CONTEXT.contains(testClass);
+    }
+
+    /**
+     * Mirrors the key of the context cache of Spring Boot: each imported module contributes the imports it determines
+     * for the test class (see {@link ModuleDefinition#determineImports(AnnotationMetadata)}), other imported classes
+     * contribute themselves. The settings of {@link ModuleTest} (i.e. {@link ModuleTest#reset()}) as well as
+     * annotations of JUnit and transaction demarcation don't influence the context and are left out.
+     *
+     * @return an object equal for test classes using the same application context, the test class itself for tests not
+     * being module tests
+     */
+    static Object fingerprint(Class<?> testClass) {
+        if (!AnnotatedElementUtils.hasAnnotation(testClass, ModuleTest.class)) {
+            return testClass;
+        }
+
+        Set<Object> ret = new HashSet<>();
+        AnnotationMetadata metadata = new StandardAnnotationMetadata(testClass);
+        for (Annotation annotation : testClass.getAnnotations()) {
+            if (annotation instanceof Import) {
+                for (Class<?> imported : ((Import) annotation).value()) {
+                    if (ModuleDefinition.class.isAssignableFrom(imported)) {
+                        ret.addAll(BeanUtils.instantiateClass(imported, ModuleDefinition.class)
+                                .determineImports(metadata));
+                    } else {
+                        ret.add(imported);
+                    }
+                }
+            } else if (annotation instanceof ModuleTest) {
+                ret.add(ModuleTest.class);
+            } else if (!(annotation instanceof AlternativeComponentConfigurations)
+                    && !isNonContextAnnotation(annotation)) {
+                // the effect of alternative configurations is part of the determined imports
+                ret.add(annotation);
+            }
+        }
+
+        return ret;
+    }
+
+    private static boolean isNonContextAnnotation(Annotation annotation) {
+        String typeName = annotation.annotationType().getName();
+        return Stream.of(NON_CONTEXT_ANNOTATION_PACKAGES).anyMatch(typeName::startsWith);
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.testsupport;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.SpringProperties;
+import org.springframework.test.annotation.DirtiesContext.HierarchyMode;
+import org.springframework.test.context.CacheAwareContextLoaderDelegate;
+import org.springframework.test.context.MergedContextConfiguration;
+import org.springframework.test.context.cache.ContextCache;
+import org.springframework.test.context.cache.DefaultCacheAwareContextLoaderDelegate;
+
+import com.werum.springmodules.definition.ResolvedModules;
+
+/**
+ * Bounds the application contexts of module tests by their footprint instead of their number. Spring keeps up to
+ * {@value ContextCache#DEFAULT_MAX_CONTEXT_CACHE_SIZE} contexts, no matter whether they contain a single module with a
+ * mocked repository or the whole application. This cache sums up the bean definitions of all open contexts loaded by
+ * {@link ModuleTestContextLoader} and closes the least recently used ones, if that sum exceeds
+ * {@value #MAX_BEANS_PROPERTY} (default {@value #DEFAULT_MAX_BEANS}). Closed contexts are removed from the context
+ * cache of Spring as well, so they are loaded again if needed.
+ *
+ * Test classes may run in parallel, so each test class acquires its context before using it and releases it after its
+ * last test method. Contexts acquired by a test class are never closed by the cache.
+ *
+ * The limit of Spring still applies, so it may be raised by <tt>spring.test.context.cache.maxSize</tt> to let the
+ * footprint decide.
+ */
+final class ModuleTestContextCache {
+    static final String MAX_BEANS_PROPERTY = "spring.modules.test.context-cache.max-beans";
+
+    static final int DEFAULT_MAX_BEANS = 5000;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ModuleTestContextCache.class);
+
+    private static final ModuleTestContextCache INSTANCE = new ModuleTestContextCache(maxBeans());
+
+    private final int maxBeans;
+
+    private final Map<MergedContextConfiguration, ConfigurableApplicationContext> contexts = new LinkedHashMap<>(16,
+            0.75f, true);
+
+    /**
+     * number of test classes using a context
+     */
+    private final Map<ApplicationContext, Integer> references = new IdentityHashMap<>();
+
+    /**
+     * contexts about to be closed, which can't be acquired anymore
+     */
+    private final Set<ApplicationContext> closing = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * works on the context cache shared by all tests of the JVM
+     */
+    private final CacheAwareContextLoaderDelegate contextLoaderDelegate = new DefaultCacheAwareContextLoaderDelegate();
+
+    ModuleTestContextCache(int maxBeans) {
+        this.maxBeans = maxBeans;
+    }
+
+    static ModuleTestContextCache getInstance() {
+        return INSTANCE;
+    }
+
+    private static int maxBeans() {
+        String maxBeans = SpringProperties.getProperty(MAX_BEANS_PROPERTY);
+        return maxBeans == null ? DEFAULT_MAX_BEANS : Integer.parseInt(maxBeans.trim());
+    }
+
+    synchronized void put(MergedContextConfiguration config, ApplicationContext context) {
+        if (context instanceof ConfigurableApplicationContext) {
+            contexts.put(config, (ConfigurableApplicationContext) context);
+        }
+    }
+
+    /**
+     * marks the given context as most recently used
+     */
+    synchronized void touch(ApplicationContext context) {
+        MergedContextConfiguration used = null;
+        for (Entry<MergedContextConfiguration, ConfigurableApplicationContext> entry : contexts.entrySet()) {
+            if (entry.getValue() == context) {
+                used = entry.getKey();
+            }
+        }
+        if (used != null) {
+            // contexts are ordered by access
+            contexts.get(used);
+        }
+    }
+
+    /**
+     * marks the given context as most recently used and as used by one more test class
+     *
+     * @return false, if the context is being closed and has to be loaded again
+     */
+    synchronized boolean acquire(ApplicationContext context) {
+        if (closing.contains(context) || !isActive(context)) {
+            return false;
+        }
+
+        touch(context);
+        references.merge(context, 1, Integer::sum);
+        return true;
+    }
+
+    /**
+     * releases the given context for a test class, which doesn't use it anymore
+     *
+     * @param close true, if the context should be closed once no test class uses it
+     * @return true, if the caller has to close the context. It can't be acquired anymore.
+     */
+    synchronized boolean release(ApplicationContext context, boolean close) {
+        boolean unused = references.computeIfPresent(context, (key, count) -> count > 1 ? count - 1 : null) == null;
+        if (unused && close) {
+            closing.add(context);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * closes the least recently used contexts until the footprint of the remaining ones fits into the budget. The most
+     * recently used context and the contexts acquired by test classes are kept in any case.
+     */
+    void evict() {
+        // closed outside of the lock: Spring holds the lock of its context cache while loading a context, which is put
+        // into this cache then
+        for (Entry<MergedContextConfiguration, ConfigurableApplicationContext> evicted : selectEvicted()) {
+            ConfigurableApplicationContext context = evicted.getValue();
+            ResolvedModules resolvedModules = ResolvedModules.get(context.getBeanFactory());
+            LOGGER.info("closing test context " + (resolvedModules == null ? context.getDisplayName()
+                    : "of modules " + resolvedModules.getModules()) + " with " + footprint(context) + " beans");
+            contextLoaderDelegate.closeContext(evicted.getKey(), HierarchyMode.CURRENT_LEVEL);
+            if (context.isActive()) {
+                // not held by the context cache of Spring
+                context.close();
+            }
+        }
+    }
+
+    private synchronized List<Entry<MergedContextConfiguration, ConfigurableApplicationContext>> selectEvicted() {
+        // contexts closed by @DirtiesContext or by the context cache of Spring
+        contexts.values().removeIf(context -> !context.isActive());
+        closing.removeIf(context -> !isActive(context));
+
+        List<Entry<MergedContextConfiguration, ConfigurableApplicationContext>> ret = new ArrayList<>();
+        int footprint = contexts.values().stream().mapToInt(ModuleTestContextCache::footprint).sum();
+        Iterator<Entry<MergedContextConfiguration, ConfigurableApplicationContext>> iterator = contexts.entrySet()
+                .iterator();
+        // the most recently used context comes last
+        for (int candidates = contexts.size() - 1; footprint > maxBeans && candidates > 0; candidates--) {
+            Entry<MergedContextConfiguration, ConfigurableApplicationContext> eldest = iterator.next();
+            if (references.containsKey(eldest.getValue()) || closing.contains(eldest.getValue())) {
+                continue;
+            }
+            iterator.remove();
+            closing.add(eldest.getValue());
+            footprint -= footprint(eldest.getValue());
+            ret.add(new SimpleImmutableEntry<>(eldest));
+        }
+
+        return ret;
+    }
+
+    synchronized int size() {
+        return contexts.size();
+    }
+
+    private static boolean isActive(ApplicationContext context) {
+        return !(context instanceof ConfigurableApplicationContext)
+                || ((ConfigurableApplicationContext) context).isActive();
+    }
+
+    private static int footprint(ConfigurableApplicationContext context) {
+        return context.getBeanFactory().getBeanDefinitionCount();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.testsupport;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.annotation.DirtiesContext.HierarchyMode;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.support.AbstractTestExecutionListener;
+
+/**
+ * TestExecutionListener keeping {@link ModuleTestContextCache} up to date: the context of a test class is acquired and
+ * marked as used when a test instance is prepared, it is released and contexts exceeding the budget are closed after
+ * each test class. If the test classes are ordered by {@link ModuleTestClassOrderer}, the context is closed right after
+ * its last test class, unless test classes running in parallel still use it.
+ *
+ * The context is acquired before the test instance is injected, so it can't be closed while the test class uses it.
+ */
+public class ModuleTestContextCacheListener extends AbstractTestExecutionListener {
+    private static final String CONTEXT_ATTRIBUTE = ModuleTestContextCacheListener.class.getName() + ".context";
+
+    /**
+     * runs before the {@link org.springframework.test.context.support.DependencyInjectionTestExecutionListener}
+     */
+    @Override
+    public int getOrder() {
+        return 1900;
+    }
+
+    @Override
+    public void prepareTestInstance(TestContext testContext) {
+        ApplicationContext acquired = (ApplicationContext) testContext.getAttribute(CONTEXT_ATTRIBUTE);
+        if (acquired != null) {
+            // a further test instance of the same test class
+            ModuleTestContextCache.getInstance().touch(acquired);
+            return;
+        }
+
+        ApplicationContext context = testContext.getApplicationContext();
+        while (!ModuleTestContextCache.getInstance().acquire(context)) {
+            // being closed by another test class, the context cache of Spring loads it again once it has been removed
+            Thread.yield();
+            context = testContext.getApplicationContext();
+        }
+        testContext.setAttribute(CONTEXT_ATTRIBUTE, context);
+    }
+
+    @Override
+    public void afterTestClass(TestContext testContext) {
+        ApplicationContext context = (ApplicationContext) testContext.removeAttribute(CONTEXT_ATTRIBUTE);
+        if (context != null && ModuleTestContextCache.getInstance().release(context,
+                ModuleTestClassOrderer.isLastClassOfContext(testContext.getTestClass()))) {
+            testContext.markApplicationContextDirty(HierarchyMode.CURRENT_LEVEL);
+        }
+        // the context of the test class can't be asked for here, it would be loaded again if it has been dirtied
+        ModuleTestContextCache.getInstance().evict();
+        MockPool.getInstance().logStatistics();
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.testsupport;
+
+import org.springframework.boot.test.context.SpringBootContextLoader;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.MergedContextConfiguration;
+
+import com.werum.springmodules.definition.ModulePersistenceRegistrar;
+import com.werum.springmodules.runtime.UnusedPersistenceAutoConfigurationFilter;
+
+/**
+ * {@link SpringBootContextLoader} used by {@link ModuleTest}. The contexts loaded by it are registered at
+ * {@link ModuleTestContextCache}, which closes the least recently used ones when their footprint exceeds a budget.
+ *
+ * Like any Spring Boot test the contexts see <tt>application.properties</tt> and the other property sources of Spring
+ * Boot. The banner is turned off, persistence auto-configurations not needed by the modules are excluded (see
+ * {@link UnusedPersistenceAutoConfigurationFilter}) and module persistence units without url use an in-memory database
+ * (see {@link ModulePersistenceRegistrar}), unless a test sets these properties itself.
+ */
+public class ModuleTestContextLoader extends SpringBootContextLoader {
+    static final String BANNER_OFF = "spring.main.banner-mode=off";
+
+    static final String EXCLUDE_UNUSED_PERSISTENCE =
+            UnusedPersistenceAutoConfigurationFilter.ENABLED_PROPERTY + "=true";
+
+    static final String IN_MEMORY_FALLBACK = ModulePersistenceRegistrar.IN_MEMORY_FALLBACK_PROPERTY + "=true";
+
+    private static final String[] DEFAULT_PROPERTIES = {BANNER_OFF, EXCLUDE_UNUSED_PERSISTENCE, IN_MEMORY_FALLBACK};
+
+    @Override
+    public ApplicationContext loadContext(MergedContextConfiguration config) throws Exception {
+        ApplicationContext context = super.loadContext(config);
+        ModuleTestContextCache.getInstance().put(config, context);
+        return context;
+    }
+
+    @Override
+    protected String[] getInlinedProperties(MergedContextConfiguration config) {
+        String[] inlinedProperties = super.getInlinedProperties(config);
+        String[] ret = new String[DEFAULT_PROPERTIES.length + inlinedProperties.length];
+        // properties of the test come later and win
+        System.arraycopy(DEFAULT_PROPERTIES, 0, ret, 0, DEFAULT_PROPERTIES.length);
+        System.arraycopy(inlinedProperties, 0, ret, DEFAULT_PROPERTIES.length, inlinedProperties.length);
+        return ret;
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.testsupport;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.sql.DataSource;
+
+import org.mockito.Mockito;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.support.AbstractTestExecutionListener;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.util.ReflectionUtils;
+
+import com.werum.springmodules.definition.ResolvedModules;
+import com.werum.springmodules.definition.ResolvedModules.ResolvedModule;
+import com.werum.springmodules.testsupport.ModuleTest.Reset;
+
+/**
+ * TestExecutionListener resetting the state of the application context of a {@link ModuleTest} after each test method,
+ * see {@link ModuleTest#reset()}.
+ *
+ * Mocks are singletons of the application context, so stubbings and recorded invocations of a test method running
+ * concurrently with another one using the same context would interfere. Each test method holds a lock of its context
+ * from before its <tt>@BeforeEach</tt> methods until the state has been reset, so the mocks of a context are bound to
+ * the thread of one test at a time. Tests using different contexts run in parallel.
+ *
+ * Database snapshots are kept per context and test class, so the schema is created once per context (i.e. per set of
+ * resolved modules) and the data is seeded once per test class.
+ */
+public class ModuleTestResetListener extends AbstractTestExecutionListener {
+    private static final String LOCK_ATTRIBUTE = ModuleTestResetListener.class.getName() + ".lock";
+
+    private static final String TRANSACTION_ATTRIBUTE = ModuleTestResetListener.class.getName() + ".transaction";
+
+    private static final Map<ApplicationContext, ReentrantLock> LOCKS = Collections
+            .synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * snapshots by context and test class, the snapshot taken before the first test class has seeded the database is
+     * stored for <tt>Object.class</tt>
+     */
+    private static final Map<ApplicationContext, Map<Class<?>, DatabaseSnapshot>> SNAPSHOTS = Collections
+            .synchronizedMap(new WeakHashMap<>());
+
+    @Override
+    public void beforeTestMethod(TestContext testContext) {
+        ApplicationContext context = testContext.getApplicationContext();
+        ReentrantLock lock = LOCKS.computeIfAbsent(context, key -> new ReentrantLock());
+        lock.lock();
+        testContext.setAttribute(LOCK_ATTRIBUTE, lock);
+
+        if (resets(testContext, Reset.DATABASE_SNAPSHOT)) {
+            restoreSnapshot(testContext);
+        }
+        if (resets(testContext, Reset.DATABASE) && !isTransactional(testContext)) {
+            PlatformTransactionManager transactionManager = context.getBeanProvider(PlatformTransactionManager.class)
+                    .getIfUnique();
+            if (transactionManager != null) {
+                testContext.setAttribute(TRANSACTION_ATTRIBUTE, new TestTransaction(transactionManager));
+            }
+        }
+    }
+
+    @Override
+    public void afterTestMethod(TestContext testContext) {
+        ReentrantLock lock = (ReentrantLock) testContext.removeAttribute(LOCK_ATTRIBUTE);
+        try {
+            TestTransaction transaction = (TestTransaction) testContext.removeAttribute(TRANSACTION_ATTRIBUTE);
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            if (resets(testContext, Reset.MOCKS)) {
+                resetMocks(testContext.getApplicationContext());
+            }
+        } finally {
+            if (lock != null && lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * restores the snapshot of the test class, takes it if the test class uses its context for the first time
+     */
+    private static void restoreSnapshot(TestContext testContext) {
+        ApplicationContext context = testContext.getApplicationContext();
+        DataSource dataSource = context.getBeanProvider(DataSource.class).getIfUnique();
+        if (dataSource == null) {
+            throw new IllegalStateException(
+                    "database snapshots require a single DataSource in the context of " + testContext.getTestClass());
+        }
+
+        // only accessed by the thread holding the lock of the context
+        Map<Class<?>, DatabaseSnapshot> snapshots = SNAPSHOTS.computeIfAbsent(context, key -> new HashMap<>());
+        DatabaseSnapshot snapshot = snapshots.get(testContext.getTestClass());
+        if (snapshot != null) {
+            snapshot.restore(dataSource);
+            return;
+        }
+
+        DatabaseSnapshot unseeded = snapshots.get(Object.class);
+        if (unseeded == null) {
+            unseeded = DatabaseSnapshot.take(dataSource);
+            snapshots.put(Object.class, unseeded);
+        } else {
+            // remove data left behind by other test classes
+            unseeded.restore(dataSource);
+        }
+
+        boolean seeded = false;
+        for (Method method : testContext.getTestClass().getMethods()) {
+            if (method.isAnnotationPresent(DatabaseSeed.class)) {
+                ReflectionUtils.invokeMethod(method, testContext.getTestInstance());
+                seeded = true;
+            }
+        }
+        snapshots.put(testContext.getTestClass(), seeded ? DatabaseSnapshot.take(dataSource) : unseeded);
+    }
+
+    private static boolean resets(TestContext testContext, Reset reset) {
+        ModuleTest moduleTest = AnnotatedElementUtils.findMergedAnnotation(testContext.getTestClass(),
+                ModuleTest.class);
+        return moduleTest != null && Arrays.asList(moduleTest.reset()).contains(reset);
+    }
+
+    private static boolean isTransactional(TestContext testContext) {
+        return AnnotatedElementUtils.hasAnnotation(testContext.getTestClass(), Transactional.class)
+                || AnnotatedElementUtils.hasAnnotation(testContext.getTestMethod(), Transactional.class);
+    }
+
+    private static void resetMocks(ApplicationContext context) {
+        if (!(context instanceof ConfigurableApplicationContext)) {
+            return;
+        }
+
+        ConfigurableListableBeanFactory beanFactory = ((ConfigurableApplicationContext) context).getBeanFactory();
+        for (MockitoFactoryBean<?> factoryBean : beanFactory.getBeansOfType(MockitoFactoryBean.class, false, false)
+                .values()) {
+            // mocks not created yet have no state
+            if (factoryBean.isMockCreated()) {
+                Mockito.reset(factoryBean.getMock());
+            }
+        }
+
+        ResolvedModules resolvedModules = ResolvedModules.get(beanFactory);
+        if (resolvedModules == null) {
+            return;
+        }
+        for (ResolvedModule module : resolvedModules.getModules()) {
+            if (!module.isReplaced()) {
+                continue;
+            }
+            for (String beanName : module.getBeanNames()) {
+                // beans not created yet (i.e. of lazy modules) have no state, MockitoFactoryBeans are reset above
+                if (beanFactory.containsSingleton(beanName) && !beanFactory.isFactoryBean(beanName)) {
+                    Object bean = beanFactory.getBean(beanName);
+                    if (Mockito.mockingDetails(bean).isMock()) {
+                        Mockito.reset(bean);
+                    }
+                }
+            }
+        }
+    }
+
+    private static class TestTransaction {
+        private final PlatformTransactionManager transactionManager;
+
+        private final TransactionStatus status;
+
+        TestTransaction(PlatformTransactionManager transactionManager) {
+            this.transactionManager = transactionManager;
+            this.status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        }
+
+        void rollback() {
+            transactionManager.rollback(status);
+        }
+    }
+}
@@ -92,7 +92,9 @@ public class StudentServiceModuleTest {
     public void shouldLoadOnlyRelevantPartsIntoApplicationContext() {
         assertBeanDoesNotExist(context, StudentController.class);
         assertBeanDoesNotExist(context, CourseController.class);
-        assertTrue(MockUtil.isMock(context.getBean(CourseServiceLogger.class)));
+        assertTrue(MockUtil.isMock(context.getBean(CourseService.class)));
+        // internal to the mocked module, so it isn't mocked
+        assertBeanDoesNotExist(context, CourseServiceLogger.class);
     }
 
     public static void assertBeanDoesNotExist(ApplicationContext context, Class<?> beanClass) {
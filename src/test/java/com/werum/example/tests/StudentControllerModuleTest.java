@@ -24,6 +24,9 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import java.util.Arrays;
 
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
@@ -55,7 +58,7 @@ import com.werum.springmodules.testsupport.ModuleTest;
 @ModuleTest
 @Import(StudentControllerModule.class)
 @AlternativeComponentConfigurations(StudentServiceMockConfiguration.class)
-@EnableAutoConfiguration // how to start MockMvc without Jpa?
+@EnableAutoConfiguration
 @AutoConfigureMockMvc
 public class StudentControllerModuleTest {
     @Autowired
@@ -91,6 +94,12 @@ public class StudentControllerModuleTest {
         assertBeanDoesNotExist(context, CourseRepository.class);
     }
 
+    @Test
+    public void shouldNotStartPersistenceWithoutDaoModule() {
+        assertBeanDoesNotExist(context, DataSource.class);
+        assertBeanDoesNotExist(context, EntityManagerFactory.class);
+    }
+
     public static void assertBeanDoesNotExist(ApplicationContext context, Class<?> beanClass) {
         try {
             context.getBean(beanClass);
@@ -21,7 +21,6 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,10 +30,6 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Import;
-import org.springframework.test.annotation.DirtiesContext;
-import org.springframework.test.annotation.DirtiesContext.ClassMode;
-import org.springframework.test.annotation.DirtiesContext.MethodMode;
-import org.springframework.test.annotation.Rollback;
 import org.springframework.test.web.servlet.MockMvc;
 
 import com.werum.example.course.controller.CourseController;
@@ -45,18 +40,18 @@ import com.werum.example.student.dao.Student;
 import com.werum.example.student.dao.StudentRepository;
 import com.werum.example.tests.mockconfigurations.CourseServiceMockConfiguration;
 import com.werum.springmodules.definition.DependencyResolverStrategy.AlternativeComponentConfigurations;
+import com.werum.springmodules.testsupport.DatabaseSeed;
 import com.werum.springmodules.testsupport.ModuleTest;
+import com.werum.springmodules.testsupport.ModuleTest.Reset;
 
 /**
  * Testcase testing all layers of student domain isolated from other domains via MockMvc
  */
 @SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
-@ModuleTest
+@ModuleTest(reset = {Reset.MOCKS, Reset.DATABASE_SNAPSHOT})
 @Import(StudentControllerModule.class)
 @AlternativeComponentConfigurations(CourseServiceMockConfiguration.class)
-@EnableAutoConfiguration // TODO: how to start MockMvc without Jpa?
-@Rollback // TODO: why doesn't this work?
-@DirtiesContext(classMode = ClassMode.AFTER_EACH_TEST_METHOD, methodMode = MethodMode.AFTER_METHOD)
+@EnableAutoConfiguration
 @AutoConfigureMockMvc
 public class StudentEndToEndModuleTest {
     @Autowired
@@ -66,8 +61,8 @@ public class StudentEndToEndModuleTest {
     @Autowired
     private MockMvc mockMvc;
 
-    @BeforeEach
-    public void setup() {
+    @DatabaseSeed
+    public void seed() {
         studentRepository.save(new Student("1", "Michael", new Course("TestCourse", 2.0f)));
     }
 
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.example.tests;
+
+import static com.werum.example.tests.StudentServiceModuleTest.assertBeanDoesNotExist;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.mockito.internal.util.MockUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Import;
+
+import com.werum.example.course.dao.Course;
+import com.werum.example.course.service.CourseService;
+import com.werum.example.course.service.CourseServiceLogger;
+import com.werum.example.course.service.GeneratedCourseServiceModuleMock;
+import com.werum.example.student.dao.GeneratedStudentDaoModuleMock;
+import com.werum.example.student.dao.Student;
+import com.werum.example.student.dao.StudentRepository;
+import com.werum.example.student.service.StudentService;
+import com.werum.example.student.service.StudentServiceModule;
+import com.werum.springmodules.definition.DependencyResolverStrategy.AlternativeComponentConfigurations;
+import com.werum.springmodules.testsupport.ModuleTest;
+
+/**
+ * Testcase testing the service layer of student domain isolated from all other components by the mock configurations
+ * generated at compile time
+ */
+@ModuleTest
+@Import(StudentServiceModule.class)
+@AlternativeComponentConfigurations({GeneratedCourseServiceModuleMock.class, GeneratedStudentDaoModuleMock.class})
+public class StudentServiceGeneratedMocksModuleTest {
+    @Autowired
+    private StudentService testee;
+    @Autowired
+    private ApplicationContext context;
+    @Autowired
+    private StudentRepository studentRepositoryMock;
+    @Autowired
+    private CourseService courseServiceMock;
+
+    @Test
+    public void shouldCreateStudents() {
+        when(courseServiceMock.getCourse(Mockito.any())).thenReturn(new Course("TestCourse", 2.0f));
+
+        testee.createStudent("Michael", 1.0f, "TestCourse");
+        verify(studentRepositoryMock).save(Mockito.any(Student.class));
+    }
+
+    @Test
+    public void shouldMockExportedTypesOnly() {
+        assertTrue(MockUtil.isMock(courseServiceMock));
+        assertBeanDoesNotExist(context, CourseServiceLogger.class);
+    }
+}
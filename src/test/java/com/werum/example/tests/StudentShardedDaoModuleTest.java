@@ -0,0 +1,254 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.example.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.werum.example.course.dao.Course;
+import com.werum.example.course.dao.CourseRepository;
+import com.werum.example.course.service.CourseService;
+import com.werum.example.student.dao.Student;
+import com.werum.example.student.dao.StudentDaoModule;
+import com.werum.example.student.dao.StudentRepository;
+import com.werum.example.student.service.StudentService;
+import com.werum.example.student.service.StudentServiceModule;
+import com.werum.example.tests.mockconfigurations.CourseServiceMockConfiguration;
+import com.werum.springmodules.definition.DependencyResolverStrategy.AlternativeComponentConfigurations;
+import com.werum.springmodules.definition.ModulePersistenceRegistrar;
+import com.werum.springmodules.definition.ResolvedModules;
+import com.werum.springmodules.definition.ShardedRepositoryFactoryBean;
+import com.werum.springmodules.definition.ShardedSequenceGenerator;
+import com.werum.springmodules.testsupport.ModuleTest;
+
+/**
+ * Testcase testing the service layer of student domain with the students spread across three in-memory databases
+ */
+@ModuleTest
+@DataJpaTest
+@Import(StudentServiceModule.class)
+@AlternativeComponentConfigurations(CourseServiceMockConfiguration.class)
+@TestPropertySource(properties = "spring.modules.persistence.StudentDaoModule.shards="
+        + StudentShardedDaoModuleTest.SHARDS)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class StudentShardedDaoModuleTest {
+    static final int SHARDS = 3;
+
+    @Autowired
+    private StudentService testee;
+    @Autowired
+    private StudentRepository studentRepository;
+    @Autowired
+    private CourseRepository courseRepository;
+    @Autowired
+    private CourseService courseServiceMock;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ApplicationContext context;
+
+    private Course exampleCourse;
+
+    @BeforeEach
+    public void setup() {
+        exampleCourse = courseRepository.save(new Course("TestCourse", 2.0f));
+        when(courseServiceMock.getCourse(Mockito.any())).thenReturn(exampleCourse);
+    }
+
+    @AfterEach
+    public void clearShards() {
+        inShards(entityManager -> {
+            entityManager.createQuery("delete from Student").executeUpdate();
+            entityManager.createQuery("delete from Course").executeUpdate();
+        });
+        courseRepository.deleteAll();
+    }
+
+    @Test
+    public void shouldStoreStudentsInOwningShardOnly() {
+        for (int i = 0; i < 10; i++) {
+            testee.createStudent("Student" + i, 1.0f, "TestCourse");
+        }
+
+        List<Student> students = testee.getAll();
+        assertEquals(10, students.size());
+        Set<Integer> usedShards = new HashSet<>();
+        for (Student student : students) {
+            int owningShard = ShardedRepositoryFactoryBean.shardOf(student.getMatrikelNo(), SHARDS);
+            for (int shard = 0; shard < SHARDS; shard++) {
+                assertEquals(shard == owningShard ? 1L : 0L, countInShard(shard, student.getMatrikelNo()));
+            }
+            usedShards.add(owningShard);
+        }
+        assertEquals(SHARDS, usedShards.size());
+        assertEquals(10, studentRepository.count());
+    }
+
+    @Test
+    public void shouldFindStudentInOwningShardWithCopiedCourse() {
+        testee.createStudent("Michael", 1.0f, "TestCourse");
+        testee.createStudent("Anna", 1.5f, "TestCourse");
+        String matrikelNo = testee.getAll().stream().filter(student -> student.getName().equals("Anna")).findFirst()
+                .get().getMatrikelNo();
+
+        Student loaded = studentRepository.findByMatrikelNo(matrikelNo);
+        assertEquals("Anna", loaded.getName());
+        assertEquals("TestCourse", loaded.getCourse().getName());
+        assertEquals(exampleCourse.getId(), loaded.getCourse().getId());
+    }
+
+    @Test
+    public void shouldRouteIdsToOwningShard() {
+        Map<Integer, Student> studentsByShard = new HashMap<>();
+        for (int i = 0; studentsByShard.size() < 2; i++) {
+            Student student = studentRepository.save(new Student("M" + i, "Student" + i, exampleCourse));
+            studentsByShard.putIfAbsent(ShardedRepositoryFactoryBean.shardOf(student.getMatrikelNo(), SHARDS),
+                    student);
+        }
+        List<Student> students = new ArrayList<>(studentsByShard.values());
+        Student first = students.get(0);
+        Student second = students.get(1);
+        assertNotEquals(first.getId(), second.getId());
+        for (Map.Entry<Integer, Student> entry : studentsByShard.entrySet()) {
+            assertEquals(entry.getKey().intValue(),
+                    ShardedSequenceGenerator.shardOf(entry.getValue().getId(), SHARDS));
+        }
+
+        assertEquals(second.getName(), studentRepository.findById(second.getId()).get().getName());
+        studentRepository.deleteById(first.getId());
+        assertFalse(studentRepository.existsById(first.getId()));
+        assertEquals(0L, countInShard(ShardedRepositoryFactoryBean.shardOf(first.getMatrikelNo(), SHARDS),
+                first.getMatrikelNo()));
+        assertEquals(1L, countInShard(ShardedRepositoryFactoryBean.shardOf(second.getMatrikelNo(), SHARDS),
+                second.getMatrikelNo()));
+        assertEquals(second.getName(), studentRepository.findById(second.getId()).get().getName());
+    }
+
+    @Test
+    public void shouldQueryAllShardsByOtherNumbers() {
+        for (int i = 0; i < 10; i++) {
+            studentRepository.save(new Student("M" + i, "Student" + i, exampleCourse));
+        }
+
+        assertEquals(10L, studentRepository.countByCourseId(exampleCourse.getId()));
+    }
+
+    @Test
+    public void shouldMergeSortedResultsOfShards() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Student student = studentRepository.save(new Student("M" + i, "Student" + i, exampleCourse));
+            names.add(student.getName());
+        }
+        Collections.sort(names);
+
+        assertEquals(names, studentRepository.findByCourseId(exampleCourse.getId(), Sort.by("name")).stream()
+                .map(Student::getName).collect(Collectors.toList()));
+        Collections.reverse(names);
+        assertEquals(names, studentRepository.findByCourseIdOrderByNameDesc(exampleCourse.getId()).stream()
+                .map(Student::getName).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void shouldReadCourseFromSharedPersistenceUnit() {
+        testee.createStudent("Michael", 1.0f, "TestCourse");
+        String matrikelNo = testee.getAll().get(0).getMatrikelNo();
+        exampleCourse.setName("RenamedCourse");
+        courseRepository.save(exampleCourse);
+
+        assertEquals("RenamedCourse", studentRepository.findByMatrikelNo(matrikelNo).getCourse().getName());
+        assertEquals("RenamedCourse", studentRepository.findAll().iterator().next().getCourse().getName());
+    }
+
+    @Test
+    public void shouldRejectUnsavedCourse() {
+        assertThrows(IllegalArgumentException.class,
+                () -> studentRepository.save(new Student("M1", "Michael", new Course("NewCourse", 1.0f))));
+    }
+
+    @Test
+    public void shouldRejectSaveInCallerTransaction() {
+        assertThrows(IllegalTransactionStateException.class, () -> new TransactionTemplate(transactionManager)
+                .execute(status -> studentRepository.save(new Student("M1", "Michael", exampleCourse))));
+    }
+
+    @Test
+    public void shouldLeaveStudentsOutOfSharedPersistenceUnit() {
+        assertThrows(IllegalArgumentException.class, () -> entityManagerFactory.getMetamodel().entity(Student.class));
+    }
+
+    private long countInShard(int shard, String matrikelNo) {
+        EntityManager entityManager = shardEntityManagerFactory(shard).createEntityManager();
+        try {
+            return entityManager.createQuery("select count(s) from Student s where s.matrikelNo = :matrikelNo",
+                    Long.class).setParameter("matrikelNo", matrikelNo).getSingleResult();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private void inShards(Consumer<EntityManager> action) {
+        for (int shard = 0; shard < SHARDS; shard++) {
+            EntityManager entityManager = shardEntityManagerFactory(shard).createEntityManager();
+            try {
+                entityManager.getTransaction().begin();
+                action.accept(entityManager);
+                entityManager.getTransaction().commit();
+            } finally {
+                entityManager.close();
+            }
+        }
+    }
+
+    private EntityManagerFactory shardEntityManagerFactory(int shard) {
+        return context.getBean(ModulePersistenceRegistrar.entityManagerFactoryBeanName(
+                ResolvedModules.get(context).getModule(StudentDaoModule.class), shard), EntityManagerFactory.class);
+    }
+}
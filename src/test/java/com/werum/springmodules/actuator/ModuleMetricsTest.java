@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.actuator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.werum.springmodules.actuator.ModulesEndpointTest.StudentServiceWithMockedDependencies;
+import com.werum.springmodules.definition.ResolvedModules;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Testcase for {@link ModuleMetrics}
+ */
+public class ModuleMetricsTest {
+
+    @Test
+    public void shouldPublishBeanCountAndInitializationTime() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.register(StudentServiceWithMockedDependencies.class, MetricsConfiguration.class);
+            context.refresh();
+            context.getBean(ModuleMetrics.class).bindTo(registry);
+
+            int beanCount = ResolvedModules.get(context.getBeanFactory()).getModules().get(0).getBeanNames().size();
+            assertEquals(beanCount,
+                    registry.get("spring.modules.beans").tag("module", "StudentServiceModule").gauge().value());
+            long initializationNanos = ResolvedModules.get(context.getBeanFactory()).getModules().get(0)
+                    .getInitializationNanos();
+            assertEquals(initializationNanos, registry.get("spring.modules.initialization")
+                    .tag("module", "StudentServiceModule").tag("replaced", "false").timeGauge()
+                    .value(TimeUnit.NANOSECONDS), 1);
+        }
+    }
+
+    @Configuration
+    static class MetricsConfiguration {
+        @Bean
+        public ModuleMetrics moduleMetrics(ApplicationContext context) {
+            return new ModuleMetrics(context);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.actuator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Import;
+
+import com.werum.example.course.service.CourseServiceModule;
+import com.werum.example.student.dao.StudentDaoModule;
+import com.werum.example.student.service.StudentServiceModule;
+import com.werum.example.tests.mockconfigurations.CourseServiceMockConfiguration;
+import com.werum.example.tests.mockconfigurations.StudentDaoMockConfiguration;
+import com.werum.springmodules.actuator.ModulesEndpoint.ContextModules;
+import com.werum.springmodules.actuator.ModulesEndpoint.ModuleDescriptor;
+import com.werum.springmodules.definition.DependencyResolverStrategy.AlternativeComponentConfigurations;
+
+/**
+ * Testcase for {@link ModulesEndpoint}
+ */
+public class ModulesEndpointTest {
+
+    @Test
+    public void shouldDescribeResolvedModules() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(
+                StudentServiceWithMockedDependencies.class)) {
+            ContextModules contextModules = new ModulesEndpoint(context).modules().getContexts().get(context.getId());
+
+            assertEquals(Arrays.asList("StudentServiceModule", "StudentDaoModule", "CourseServiceModule"),
+                    Arrays.asList(contextModules.getModules().keySet().toArray()));
+            ModuleDescriptor studentService = contextModules.getModules().get("StudentServiceModule");
+            assertEquals(Arrays.asList(StudentDaoModule.class.getName(), CourseServiceModule.class.getName()),
+                    studentService.getDependencies());
+            assertNull(studentService.getReplacedConfiguration());
+            assertTrue(studentService.getBeanCount() > 1);
+            ModuleDescriptor studentDao = contextModules.getModules().get("StudentDaoModule");
+            assertEquals(StudentDaoMockConfiguration.class.getName(), studentDao.getConfiguration());
+            assertEquals(new StudentDaoModule().getComponentConfiguration().getName(),
+                    studentDao.getReplacedConfiguration());
+        }
+    }
+
+    @Import(StudentServiceModule.class)
+    @AlternativeComponentConfigurations({CourseServiceMockConfiguration.class, StudentDaoMockConfiguration.class})
+    static class StudentServiceWithMockedDependencies {
+
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.definition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+/**
+ * Testcase for {@link BeanCreationTracker}
+ */
+public class BeanCreationTrackerTest {
+
+    @Test
+    public void shouldTrackNestedCreations() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        TrackingPostProcessor postProcessor = new TrackingPostProcessor(beanFactory);
+        beanFactory.addBeanPostProcessor(postProcessor);
+        beanFactory.registerBeanDefinition("inner", new RootBeanDefinition(Inner.class));
+        beanFactory.registerBeanDefinition("outer",
+                new RootBeanDefinition(Outer.class, AbstractBeanDefinition.AUTOWIRE_CONSTRUCTOR, false));
+
+        beanFactory.getBean("outer");
+
+        assertEquals(2, postProcessor.finished.size());
+        assertEquals("inner created within outer", postProcessor.finished.get(0));
+        assertEquals("outer", postProcessor.finished.get(1));
+        assertTrue(postProcessor.tracker.isIdle());
+    }
+
+    @Test
+    public void shouldDropFailedCreations() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        TrackingPostProcessor postProcessor = new TrackingPostProcessor(beanFactory);
+        beanFactory.addBeanPostProcessor(postProcessor);
+        beanFactory.registerBeanDefinition("failing", new RootBeanDefinition(Failing.class));
+        beanFactory.registerBeanDefinition("inner", new RootBeanDefinition(Inner.class));
+
+        assertThrows(BeanCreationException.class, () -> beanFactory.getBean("failing"));
+        assertTrue(postProcessor.tracker.isIdle());
+
+        beanFactory.getBean("inner");
+
+        assertEquals("inner", postProcessor.finished.get(0));
+        assertTrue(postProcessor.tracker.isIdle());
+        assertNull(postProcessor.tracker.current());
+    }
+
+    private static class TrackingPostProcessor implements InstantiationAwareBeanPostProcessor {
+        private final BeanCreationTracker<String> tracker;
+
+        private final List<String> finished = new ArrayList<>();
+
+        TrackingPostProcessor(DefaultListableBeanFactory beanFactory) {
+            tracker = new BeanCreationTracker<>(beanFactory);
+        }
+
+        @Override
+        public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) {
+            String outer = tracker.current();
+            tracker.started(beanName, outer == null ? beanName : beanName + " created within " + outer);
+            return null;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            finished.add(tracker.finished(beanName));
+            return bean;
+        }
+    }
+
+    static class Inner {
+
+    }
+
+    static class Outer {
+        Outer(Inner inner) {
+        }
+    }
+
+    static class Failing {
+        Failing() {
+            throw new IllegalStateException("failing on purpose");
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.definition;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Testcase for lazy modules, see {@link LazyModuleActivator}
+ */
+public class LazyModuleTest {
+
+    @Test
+    public void shouldActivateLazyModuleOnFirstAccess() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(
+                ImportingLazyModule.class)) {
+            ConfigurableListableBeanFactory beanFactory = context.getBeanFactory();
+            assertTrue(beanFactory.containsSingleton("directory"));
+            assertFalse(beanFactory.containsSingleton("reportService"));
+            assertFalse(beanFactory.containsSingleton("reportRepository"));
+
+            context.getBean(ReportService.class);
+
+            assertTrue(beanFactory.containsSingleton("reportFormatter"));
+            assertTrue(beanFactory.containsSingleton("reportRepository"));
+            assertTrue(beanFactory.containsSingleton("reportArchive"));
+        }
+    }
+
+    @Import({DirectoryModule.class, ReportModule.class})
+    static class ImportingLazyModule {
+
+    }
+
+    public static class DirectoryModule extends ModuleDefinition {
+        public DirectoryModule() {
+            super(DirectoryConfiguration.class);
+        }
+    }
+
+    public static class ReportModule extends ModuleDefinition {
+        public ReportModule() {
+            super(ReportConfiguration.class, ReportDaoModule.class);
+        }
+    }
+
+    public static class ReportDaoModule extends ModuleDefinition {
+        public ReportDaoModule() {
+            super(ReportDaoConfiguration.class);
+        }
+    }
+
+    @ModuleConfiguration
+    static class DirectoryConfiguration {
+        @Bean
+        public Object directory() {
+            return new Object();
+        }
+    }
+
+    @ModuleConfiguration(lazy = true)
+    static class ReportConfiguration {
+        @Bean
+        public ReportService reportService(ReportRepository reportRepository) {
+            return new ReportService();
+        }
+
+        @Bean
+        public Object reportFormatter() {
+            return new Object();
+        }
+    }
+
+    @ModuleConfiguration(lazy = true)
+    static class ReportDaoConfiguration {
+        @Bean
+        public ReportRepository reportRepository() {
+            return new ReportRepository();
+        }
+
+        @Bean
+        public Object reportArchive() {
+            return new Object();
+        }
+    }
+
+    static class ReportService {
+
+    }
+
+    static class ReportRepository {
+
+    }
+}
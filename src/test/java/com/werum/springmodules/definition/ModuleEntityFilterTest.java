@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.definition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.EntityType;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import com.werum.example.course.dao.Course;
+import com.werum.example.course.dao.CourseDaoModule;
+import com.werum.example.student.dao.Student;
+import com.werum.springmodules.testsupport.ModuleTest;
+
+/**
+ * Testcase for {@link ModuleEntityFilter}. The test class scans the entities of {@link Student} too, but these belong
+ * to the student dao module, which isn't imported.
+ */
+@ModuleTest
+@DataJpaTest
+@Import(CourseDaoModule.class)
+@EntityScan(basePackageClasses = {Course.class, Student.class})
+public class ModuleEntityFilterTest {
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    public void shouldManageOnlyEntitiesOfImportedModules() {
+        Set<Class<?>> entities = entityManagerFactory.getMetamodel().getEntities().stream()
+                .map(EntityType::getJavaType).collect(Collectors.toSet());
+
+        assertEquals(1, entities.size());
+        assertEquals(Course.class, entities.iterator().next());
+    }
+}
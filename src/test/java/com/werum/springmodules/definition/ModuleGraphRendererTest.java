@@ -0,0 +1,100 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.definition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.werum.example.course.dao.CourseDaoModule;
+import com.werum.example.student.dao.StudentDaoModule;
+import com.werum.example.student.service.StudentServiceModule;
+import com.werum.example.tests.mockconfigurations.CourseServiceMockConfiguration;
+
+/**
+ * Testcase for {@link ModuleGraphRenderer}
+ */
+public class ModuleGraphRendererTest {
+    private final ModuleGraph graph = ModuleGraph.of(new StudentServiceModule());
+
+    private final Set<Class<?>> importedConfigurations = new LinkedHashSet<>(Arrays.asList(
+            configurationOf(StudentServiceModule.class), configurationOf(StudentDaoModule.class),
+            configurationOf(CourseDaoModule.class), CourseServiceMockConfiguration.class));
+
+    @Test
+    public void shouldRenderTree() throws IOException {
+        StringBuilder tree = new StringBuilder();
+        ModuleGraphRenderer.of(graph, importedConfigurations).renderTree(tree);
+
+        assertEquals("StudentServiceComponentConfiguration\n"
+                + "+-> StudentDaoComponentConfiguration\n"
+                + "|   +-> CourseDaoComponentConfiguration\n"
+                + "+-> CourseServiceMockConfiguration\n", tree.toString());
+    }
+
+    @Test
+    public void shouldMarkModulesNotImported() throws IOException {
+        StringBuilder tree = new StringBuilder();
+        ModuleGraphRenderer.of(graph, Arrays.asList(configurationOf(StudentServiceModule.class),
+                configurationOf(StudentDaoModule.class), configurationOf(CourseDaoModule.class))).renderTree(tree);
+
+        assertEquals("StudentServiceComponentConfiguration\n"
+                + "+-> StudentDaoComponentConfiguration\n"
+                + "|   +-> CourseDaoComponentConfiguration\n"
+                + "+-> CourseServiceComponentConfiguration (not imported)\n", tree.toString());
+    }
+
+    @Test
+    public void shouldRenderDot() throws IOException {
+        StringBuilder dot = new StringBuilder();
+        ModuleGraphRenderer.of(graph, importedConfigurations).renderDot(dot);
+
+        assertTrue(dot.toString().startsWith("digraph modules {\n"));
+        assertTrue(dot.toString().contains(
+                "  \"CourseServiceModule\" [label=\"CourseServiceMockConfiguration\", style=dashed];\n"));
+        assertTrue(dot.toString().contains("  \"StudentDaoModule\" -> \"CourseDaoModule\";\n"));
+        assertTrue(dot.toString().contains("  \"CourseServiceModule\" -> \"CourseDaoModule\";\n"));
+    }
+
+    @Test
+    public void shouldRenderJson() throws IOException {
+        StringBuilder json = new StringBuilder();
+        ModuleGraphRenderer.of(graph, importedConfigurations).renderJson(json);
+
+        JsonNode root = new ObjectMapper().readTree(json.toString());
+        assertEquals("StudentServiceModule", root.get("roots").get(0).asText());
+        assertEquals(graph.size(), root.get("modules").size());
+        for (JsonNode module : root.get("modules")) {
+            if (module.get("name").asText().equals("CourseServiceModule")) {
+                assertTrue(module.get("replaced").asBoolean());
+                assertEquals(CourseServiceMockConfiguration.class.getName(), module.get("configuration").asText());
+                assertEquals("CourseDaoModule", module.get("dependencies").get(0).asText());
+            }
+        }
+    }
+
+    private Class<?> configurationOf(Class<? extends ModuleDefinition> moduleType) {
+        return graph.getNode(moduleType).getComponentConfiguration();
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.definition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.type.AnnotationMetadata;
+
+import com.werum.example.course.dao.CourseDaoModule;
+import com.werum.example.course.service.CourseServiceModule;
+import com.werum.example.student.dao.StudentDaoModule;
+import com.werum.example.student.service.StudentServiceModule;
+import com.werum.springmodules.definition.ModuleGraph.Node;
+
+/**
+ * Testcase for {@link ModuleGraph} and its usage by {@link DependencyResolverStrategy}
+ */
+public class ModuleGraphTest {
+
+    @Test
+    public void shouldCreateOneNodePerModule() {
+        ModuleGraph graph = ModuleGraph.of(new StudentServiceModule());
+
+        assertEquals(4, graph.size());
+        Node courseDao = graph.getNode(CourseDaoModule.class);
+        assertSame(courseDao, graph.getNode(StudentDaoModule.class).getDependencies().get(0));
+        assertSame(courseDao, graph.getNode(CourseServiceModule.class).getDependencies().get(0));
+    }
+
+    @Test
+    public void shouldCalculateTransitiveClosure() {
+        ModuleGraph graph = ModuleGraph.of(new StudentServiceModule());
+        Node studentService = graph.getNode(StudentServiceModule.class);
+        Node courseService = graph.getNode(CourseServiceModule.class);
+        Node courseDao = graph.getNode(CourseDaoModule.class);
+
+        assertEquals(graph.getNodes(), graph.getClosure(studentService));
+        assertEquals(Arrays.asList(courseService, courseDao), graph.getClosure(courseService));
+        assertTrue(studentService.dependsOn(courseDao));
+        assertFalse(courseDao.dependsOn(studentService));
+        assertFalse(courseDao.dependsOn(courseDao));
+    }
+
+    @Test
+    public void shouldSplitModulesIntoTiers() {
+        ModuleGraph graph = ModuleGraph.of(new StudentServiceModule());
+
+        assertEquals(Arrays.asList(Arrays.asList(graph.getNode(CourseDaoModule.class)),
+                Arrays.asList(graph.getNode(StudentDaoModule.class), graph.getNode(CourseServiceModule.class)),
+                Arrays.asList(graph.getNode(StudentServiceModule.class))), graph.getTiers());
+    }
+
+    @Test
+    public void shouldTolerateCycles() {
+        ModuleGraph graph = ModuleGraph.of(new CycleStartModule());
+        Node start = graph.getNode(CycleStartModule.class);
+        Node a = graph.getNode(CycleAModule.class);
+        Node b = graph.getNode(CycleBModule.class);
+
+        assertEquals(3, graph.size());
+        assertTrue(a.dependsOn(b));
+        assertTrue(b.dependsOn(a));
+        assertFalse(a.dependsOn(start));
+        assertEquals(a.getTier(), b.getTier());
+        assertEquals(a.getTier() + 1, start.getTier());
+
+        Set<Class<?>> resolved = new DependencyResolverStrategy().resolveDependency(graph, null);
+        assertEquals(3, resolved.size());
+    }
+
+    @Test
+    public void shouldCallStrategiesOverridingModuleApiPerRoot() {
+        ModuleGraph graph = ModuleGraph.of(new StudentServiceModule(), new CourseDaoModule());
+
+        Set<Class<?>> resolved = new ModuleApiStrategy().resolveDependency(graph, null);
+
+        Set<Class<?>> expected = new DependencyResolverStrategy().resolveDependency(graph, null);
+        expected.add(Runnable.class);
+        assertEquals(expected, resolved);
+    }
+
+    @Test
+    public void shouldTakeExportedTypesFromModuleInstance() {
+        ModuleGraph graph = ModuleGraph.of(Collections.singletonList(new ExportingRootModule()), ModuleIndex.empty());
+
+        Set<Class<?>> exportedTypes = Collections.singleton(Runnable.class);
+        assertEquals(exportedTypes, graph.getNode(ExportingRootModule.class).getExportedTypes());
+        assertEquals(exportedTypes, graph.getNode(ExportingModule.class).getExportedTypes());
+        assertTrue(graph.getNode(CycleBModule.class).getExportedTypes().isEmpty());
+    }
+
+    public static class CycleStartModule extends ModuleDefinition {
+        public CycleStartModule() {
+            super(CycleStartConfiguration.class, CycleAModule.class);
+        }
+    }
+
+    public static class CycleAModule extends ModuleDefinition {
+        public CycleAModule() {
+            super(CycleAConfiguration.class, CycleBModule.class);
+        }
+    }
+
+    public static class CycleBModule extends ModuleDefinition {
+        public CycleBModule() {
+            super(CycleBConfiguration.class, CycleAModule.class);
+        }
+    }
+
+    public static class ExportingRootModule extends ModuleDefinition {
+        public ExportingRootModule() {
+            super(CycleStartConfiguration.class, ExportingModule.class);
+        }
+
+        @Override
+        public Set<Class<?>> getExportedTypes() {
+            return Collections.singleton(Runnable.class);
+        }
+    }
+
+    public static class ExportingModule extends ModuleDefinition {
+        public ExportingModule() {
+            super(CycleAConfiguration.class, CycleBModule.class);
+        }
+
+        @Override
+        public Set<Class<?>> getExportedTypes() {
+            return Collections.singleton(Runnable.class);
+        }
+    }
+
+    static class CycleStartConfiguration {
+
+    }
+
+    static class CycleAConfiguration {
+
+    }
+
+    static class CycleBConfiguration {
+
+    }
+
+    /**
+     * strategy written against the per module API, adding a configuration for each root
+     */
+    @SuppressWarnings("deprecation")
+    static class ModuleApiStrategy extends DependencyResolverStrategy {
+        @Override
+        public Set<Class<?>> resolveDependency(ModuleDefinition bcs, AnnotationMetadata importingClassMetadata,
+                TreePrinter<String> treePrinter) {
+            Set<Class<?>> ret = super.resolveDependency(bcs, importingClassMetadata, treePrinter);
+            ret.add(Runnable.class);
+            return ret;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.definition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.DeferredImportSelector.Group.Entry;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.StandardAnnotationMetadata;
+
+import com.werum.example.course.controller.CourseControllerModule;
+import com.werum.example.course.dao.CourseDaoModule;
+import com.werum.example.course.service.CourseServiceModule;
+import com.werum.example.student.controller.StudentControllerModule;
+import com.werum.example.student.dao.StudentDaoModule;
+import com.werum.example.student.service.StudentServiceModule;
+
+/**
+ * Testcase for {@link ModuleImportGroup}
+ */
+public class ModuleImportGroupTest {
+
+    @Test
+    public void shouldResolveModulesOfOneImportingClassTogether() {
+        AnnotationMetadata metadata = new StandardAnnotationMetadata(ImportingBothControllers.class);
+        ModuleImportGroup group = new ModuleImportGroup();
+        group.process(metadata, new StudentControllerModule());
+        group.process(metadata, new CourseControllerModule());
+
+        List<Entry> entries = StreamSupport.stream(group.selectImports().spliterator(), false)
+                .collect(Collectors.toList());
+
+        entries.forEach(entry -> assertSame(metadata, entry.getMetadata()));
+        assertEquals(Arrays.asList(configurationOf(new StudentControllerModule()),
+                configurationOf(new StudentServiceModule()), configurationOf(new StudentDaoModule()),
+                configurationOf(new CourseDaoModule()), configurationOf(new CourseServiceModule()),
+                configurationOf(new CourseControllerModule())),
+                entries.stream().map(Entry::getImportClassName).collect(Collectors.toList()));
+    }
+
+    private String configurationOf(ModuleDefinition module) {
+        return module.getComponentConfiguration().getName();
+    }
+
+    @Import({StudentControllerModule.class, CourseControllerModule.class})
+    static class ImportingBothControllers {
+
+    }
+}
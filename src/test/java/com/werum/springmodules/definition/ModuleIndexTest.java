@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.definition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.werum.example.course.service.CourseService;
+import com.werum.example.course.service.CourseServiceModule;
+import com.werum.example.student.dao.StudentDaoModule;
+import com.werum.example.student.service.StudentServiceModule;
+import com.werum.springmodules.definition.ModuleGraph.Node;
+
+/**
+ * Testcase for the {@link ModuleIndex} written by the module index processor at compile time
+ */
+public class ModuleIndexTest {
+
+    @Test
+    public void shouldIndexModulesAtCompileTime() {
+        ModuleIndex.Entry entry = ModuleIndex.load(getClass().getClassLoader())
+                .getEntry(StudentServiceModule.class.getName());
+
+        assertNotNull(entry);
+        StudentServiceModule module = new StudentServiceModule();
+        assertEquals(module.getComponentConfiguration().getName(), entry.getComponentConfiguration());
+        assertEquals(Arrays.asList(StudentDaoModule.class.getName(), CourseServiceModule.class.getName()),
+                entry.getDependendComponents());
+    }
+
+    @Test
+    public void shouldIndexModuleConfigurations() {
+        ModuleIndex index = ModuleIndex.load(getClass().getClassLoader());
+
+        ModuleIndex.Entry courseService = index.getEntry(CourseServiceModule.class.getName());
+        assertEquals(Boolean.FALSE, courseService.isLazy());
+        assertEquals(Collections.singletonList(CourseService.class.getName()), courseService.getExportedTypes());
+        ModuleIndex.Entry report = index.getEntry(LazyModuleTest.ReportModule.class.getName());
+        assertEquals(Boolean.TRUE, report.isLazy());
+        assertEquals(Collections.emptyList(), report.getExportedTypes());
+    }
+
+    @Test
+    public void shouldLeaveModulesDescribingThemselvesOutOfIndex() {
+        ModuleIndex index = ModuleIndex.load(getClass().getClassLoader());
+
+        assertNull(index.getEntry(ModuleGraphTest.ExportingModule.class.getName()));
+        assertNotNull(index.getEntry(ModuleGraphTest.CycleAModule.class.getName()));
+        assertEquals(Collections.singleton(Runnable.class),
+                ModuleGraph.of(new ModuleGraphTest.ExportingRootModule()).getNode(ModuleGraphTest.ExportingModule.class)
+                        .getExportedTypes());
+    }
+
+    @Test
+    public void shouldBuildSameGraphWithAndWithoutIndex() {
+        ModuleGraph indexed = ModuleGraph.of(new StudentServiceModule(), new LazyModuleTest.ReportModule());
+        ModuleGraph reflective = ModuleGraph.of(
+                Arrays.asList(new StudentServiceModule(), new LazyModuleTest.ReportModule()), ModuleIndex.empty());
+
+        assertEquals(describe(reflective), describe(indexed));
+    }
+
+    private String describe(ModuleGraph graph) {
+        return graph.getNodes().stream()
+                .map(node -> node + ":" + node.getComponentConfiguration().getSimpleName() + "->"
+                        + node.getDependencies().stream().map(Node::toString).collect(Collectors.joining(","))
+                        + " lazy=" + node.isLazy() + " exports=" + node.getExportedTypes())
+                .collect(Collectors.joining("\n"));
+    }
+}
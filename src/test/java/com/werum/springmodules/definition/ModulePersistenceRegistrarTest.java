@@ -0,0 +1,102 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.definition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.werum.example.course.dao.CourseDaoModule;
+import com.werum.springmodules.definition.ResolvedModules.ResolvedModule;
+import com.werum.springmodules.definition.isolated.Grade;
+import com.werum.springmodules.definition.isolated.GradeDaoModule;
+import com.werum.springmodules.definition.isolated.GradeRepository;
+import com.werum.springmodules.testsupport.ModuleTest;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Testcase for {@link ModulePersistenceRegistrar}, the {@link GradeDaoModule} uses an H2 database of its own, the
+ * {@link CourseDaoModule} the embedded database of the test
+ */
+@ModuleTest
+@DataJpaTest
+@Import({CourseDaoModule.class, GradeDaoModule.class})
+public class ModulePersistenceRegistrarTest {
+    @Autowired
+    private ApplicationContext context;
+    @Autowired
+    private DataSource sharedDataSource;
+    @Autowired
+    private GradeRepository gradeRepository;
+
+    @Test
+    public void shouldStoreEntitiesOfIsolatedModuleInItsOwnDatabase() {
+        ResolvedModule module = ResolvedModules.get(context).getModule(GradeDaoModule.class);
+        DataSource moduleDataSource = context.getBean(ModulePersistenceRegistrar.dataSourceBeanName(module),
+                DataSource.class);
+
+        gradeRepository.deleteAll();
+        gradeRepository.save(new Grade(1.3f));
+
+        assertEquals(1, count(moduleDataSource, "select count(*) from grade"));
+        assertEquals(0, count(moduleDataSource, tableCount("COURSE")));
+        assertEquals(1, count(sharedDataSource, tableCount("COURSE")));
+        assertEquals(0, count(sharedDataSource, tableCount("GRADE")));
+    }
+
+    @Test
+    public void shouldApplyPoolAndBatchSizeOfModule() {
+        ResolvedModule module = ResolvedModules.get(context).getModule(GradeDaoModule.class);
+
+        assertEquals(3, context.getBean(ModulePersistenceRegistrar.dataSourceBeanName(module), HikariDataSource.class)
+                .getMaximumPoolSize());
+        assertEquals("25", context.getBean(ModulePersistenceRegistrar.entityManagerFactoryBeanName(module),
+                EntityManagerFactory.class).getProperties().get("hibernate.jdbc.batch_size"));
+    }
+
+    @Test
+    public void shouldFailWithoutUrlOutsideOfModuleTests() {
+        AnnotationConfigApplicationContext applicationContext = new AnnotationConfigApplicationContext();
+        applicationContext.register(ImportingGradeDaoModule.class);
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, applicationContext::refresh);
+        assertTrue(exception.getMessage().contains(ModulePersistenceRegistrar.PROPERTY_PREFIX + "GradeDaoModule.url"));
+    }
+
+    private static String tableCount(String table) {
+        return "select count(*) from information_schema.tables where table_name = '" + table + "'";
+    }
+
+    private static int count(DataSource dataSource, String sql) {
+        return new JdbcTemplate(dataSource).queryForObject(sql, Integer.class);
+    }
+
+    @Import(GradeDaoModule.class)
+    static class ImportingGradeDaoModule {
+
+    }
+}
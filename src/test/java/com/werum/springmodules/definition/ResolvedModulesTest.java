@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.definition;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import com.werum.example.student.controller.StudentControllerModule;
+import com.werum.example.student.dao.StudentDaoModule;
+import com.werum.example.tests.mockconfigurations.StudentServiceMockConfiguration;
+import com.werum.springmodules.definition.DependencyResolverStrategy.AlternativeComponentConfigurations;
+
+/**
+ * Testcase for {@link ResolvedModules}
+ */
+public class ResolvedModulesTest {
+
+    @Test
+    public void shouldRequirePersistenceWithDaoModule() {
+        ResolvedModules modules = ResolvedModules.resolve(ImportingController.class);
+
+        assertTrue(modules.isPersistenceRequired());
+        assertTrue(modules.getModule(StudentDaoModule.class).isPersistent());
+        assertFalse(modules.getModule(StudentControllerModule.class).isPersistent());
+    }
+
+    @Test
+    public void shouldNotRequirePersistenceWithoutDaoModule() {
+        assertFalse(ResolvedModules.resolve(ImportingControllerWithMockedService.class).isPersistenceRequired());
+    }
+
+    @Test
+    public void shouldRequirePersistenceIfImportingClassAsksForIt() {
+        assertTrue(ResolvedModules.resolve(ImportingControllerWithDataJpa.class).isPersistenceRequired());
+    }
+
+    @Import(StudentControllerModule.class)
+    static class ImportingController {
+
+    }
+
+    @Import(StudentControllerModule.class)
+    @AlternativeComponentConfigurations(StudentServiceMockConfiguration.class)
+    static class ImportingControllerWithMockedService {
+
+    }
+
+    @DataJpaTest
+    @Import(StudentControllerModule.class)
+    @AlternativeComponentConfigurations(StudentServiceMockConfiguration.class)
+    static class ImportingControllerWithDataJpa {
+
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.definition.isolated;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+
+/**
+ * Entity stored in the database of the {@link GradeDaoModule}
+ */
+@Entity
+public class Grade {
+    @Id
+    @GeneratedValue
+    private long id;
+
+    private float mark;
+
+    Grade() {
+
+    }
+
+    public Grade(float mark) {
+        this.mark = mark;
+    }
+
+    public float getMark() {
+        return mark;
+    }
+}
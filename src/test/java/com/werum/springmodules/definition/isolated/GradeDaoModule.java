@@ -0,0 +1,40 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.definition.isolated;
+
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import com.werum.springmodules.definition.ModuleConfiguration;
+import com.werum.springmodules.definition.ModuleDefinition;
+import com.werum.springmodules.definition.ModulePersistence;
+
+/**
+ * Module with a database of its own
+ */
+public class GradeDaoModule extends ModuleDefinition {
+
+    public GradeDaoModule() {
+        super(GradeDaoComponentConfiguration.class);
+    }
+
+    @ModuleConfiguration(persistence = @ModulePersistence(isolated = true, poolSize = 3, batchSize = 25))
+    @EnableJpaRepositories
+    @EntityScan
+    static class GradeDaoComponentConfiguration {
+
+    }
+}
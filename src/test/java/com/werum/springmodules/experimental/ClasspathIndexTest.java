@@ -0,0 +1,132 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.experimental;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Opcodes;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import com.werum.example.course.service.CourseService;
+import com.werum.example.course.service.CourseServiceLogger;
+import com.werum.example.course.service.CourseServiceModule;
+import com.werum.example.student.controller.StudentController;
+import com.werum.example.student.dao.StudentRepository;
+
+/**
+ * Testcase for {@link ClasspathIndex}
+ */
+public class ClasspathIndexTest {
+    private final ClasspathIndex index = new ClasspathIndex(ClassUtils.getDefaultClassLoader());
+
+    @Test
+    public void shouldScanClassFoldersOnce() {
+        assertTrue(index.getTypes("com.werum.example.course").contains(CourseService.class.getName()));
+        int scans = index.getScanCount();
+
+        assertTrue(index.getTypes("com.werum.example.student").contains(StudentController.class.getName()));
+        assertFalse(index.getTypes("com.werum.example.student").contains(CourseService.class.getName()));
+        assertEquals(scans, index.getScanCount());
+    }
+
+    @Test
+    public void shouldFindSubTypesAndAnnotatedTypes() {
+        assertEquals(StudentRepository.class.getName(),
+                index.getSubTypesOf("com.werum.example.student", Repository.class.getName()).iterator().next());
+        assertTrue(index.getTypesAnnotatedWith("com.werum.example", Component.class.getName())
+                .contains(StudentController.class.getName()));
+        assertFalse(index.isAnnotated(StudentRepository.class.getName(), Component.class.getName()));
+    }
+
+    @Test
+    public void shouldScanPackagesInJarsOnFirstQuery() {
+        index.getTypes("com.werum.example");
+        int scans = index.getScanCount();
+
+        assertTrue(index.getTypes("org.springframework.data.repository").contains(Repository.class.getName()));
+        assertTrue(index.getTypes("org.springframework.data.repository.query").size() > 0);
+        assertEquals(scans + 1, index.getScanCount());
+    }
+
+    @Test
+    public void shouldScanJarPartOfSplitPackage(@TempDir Path directory) throws IOException {
+        String splitType = "com.werum.example.course.service.SplitPackageType";
+        Path jar = directory.resolve("split.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (String folder : new String[] {"com/", "com/werum/", "com/werum/example/", "com/werum/example/course/",
+                    "com/werum/example/course/service/"}) {
+                out.putNextEntry(new JarEntry(folder));
+            }
+            out.putNextEntry(new JarEntry(ClassUtils.convertClassNameToResourcePath(splitType) + ".class"));
+            out.write(emptyClass(splitType));
+        }
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {jar.toUri().toURL()},
+                ClassUtils.getDefaultClassLoader())) {
+            ClasspathIndex splitIndex = new ClasspathIndex(classLoader);
+            Set<String> types = splitIndex.getTypes("com.werum.example.course");
+
+            assertTrue(types.contains(CourseService.class.getName()));
+            assertTrue(types.contains(splitType));
+        }
+    }
+
+    private static byte[] emptyClass(String className) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, ClassUtils.convertClassNameToResourcePath(className), null,
+                "java/lang/Object", null);
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    @Test
+    public void shouldResolveComponentScanResourcesFromIndex() throws IOException {
+        ResourcePatternResolver resolver = (ResourcePatternResolver) index.getResourceLoader();
+        assertEquals(index.getTypes("com.werum.example.course.service").size(),
+                resolver.getResources("classpath*:com/werum/example/course/service/**/*.class").length);
+    }
+
+    @Test
+    public void shouldCreateMockConfigurationsFromIndex() {
+        MockConfigurationCreator creator = new MockConfigurationCreator(index, null);
+        Map<String, String> beans = creator
+                .beansFromConfiguration(new CourseServiceModule().getComponentConfiguration());
+        int scans = index.getScanCount();
+
+        assertTrue(beans.containsValue(CourseService.class.getName()));
+        assertTrue(beans.containsValue(CourseServiceLogger.class.getName()));
+        creator.beansFromConfiguration(new CourseServiceModule().getComponentConfiguration());
+        assertEquals(scans, index.getScanCount());
+    }
+}
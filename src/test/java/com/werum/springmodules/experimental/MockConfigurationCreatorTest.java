@@ -0,0 +1,49 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.experimental;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.internal.util.MockUtil;
+
+import com.werum.springmodules.experimental.scanned.ScannedConfiguration;
+
+/**
+ * Testcase for {@link MockConfigurationCreator}
+ */
+public class MockConfigurationCreatorTest {
+    private final MockConfigurationCreator creator = new MockConfigurationCreator(ClasspathIndex.getInstance(), null);
+
+    @Test
+    public void shouldDiscoverBeansWithoutInitializingTheirClasses() {
+        Map<String, String> beans = creator.beansFromConfiguration(ScannedConfiguration.class);
+
+        assertTrue(beans.containsValue("com.werum.springmodules.experimental.scanned.ScannedFactoryMethodType"));
+        assertTrue(beans.containsValue("com.werum.springmodules.experimental.scanned.ScannedComponent"));
+        assertFalse(ScannedConfiguration.componentInitialized);
+        assertFalse(ScannedConfiguration.factoryMethodTypeInitialized);
+
+        Map<String, Object> mocks = creator.createMocksForConfiguration(ScannedConfiguration.class,
+                Collections.emptyMap());
+        assertTrue(MockUtil.isMock(mocks.get("com.werum.springmodules.experimental.scanned.ScannedFactoryMethodType")));
+        assertTrue(ScannedConfiguration.factoryMethodTypeInitialized);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.experimental;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.ClassUtils;
+
+import com.werum.example.course.service.CourseService;
+import com.werum.example.course.service.CourseServiceModule;
+import com.werum.example.student.service.StudentServiceModule;
+
+/**
+ * Testcase for {@link MockInventoryCache}
+ */
+public class MockInventoryCacheTest {
+    private static final Map<String, String> INVENTORY = Collections.singletonMap("courseService",
+            CourseService.class.getName());
+
+    @TempDir
+    Path directory;
+
+    private final AtomicInteger discoveries = new AtomicInteger();
+
+    private final Function<Class<?>, Map<String, String>> discovery = configurationClass -> {
+        discoveries.incrementAndGet();
+        return INVENTORY;
+    };
+
+    @Test
+    public void shouldReadInventoryStoredByOtherJvm() {
+        Class<?> configurationClass = new CourseServiceModule().getComponentConfiguration();
+        assertEquals(INVENTORY, newCache().get(configurationClass, discovery));
+        assertEquals(INVENTORY, newCache().get(configurationClass, discovery));
+        assertEquals(1, discoveries.get());
+    }
+
+    @Test
+    public void shouldDiscoverInventoryAgainIfClassFilesChanged() throws IOException {
+        Class<?> configurationClass = new CourseServiceModule().getComponentConfiguration();
+        newCache().get(configurationClass, discovery);
+
+        replaceStored(configurationClass, "files=\\w+", "files=outdated");
+        replaceStored(configurationClass, "hash=\\w+", "hash=outdated");
+
+        newCache().get(configurationClass, discovery);
+        assertEquals(2, discoveries.get());
+    }
+
+    @Test
+    public void shouldHashContentsOnlyIfFilesChanged() throws IOException {
+        Class<?> configurationClass = new CourseServiceModule().getComponentConfiguration();
+        newCache().get(configurationClass, discovery);
+        String files = storedProperty(configurationClass, "files");
+
+        // size and modification time unchanged, so the contents aren't compared
+        replaceStored(configurationClass, "hash=\\w+", "hash=outdated");
+        newCache().get(configurationClass, discovery);
+        assertEquals(1, discoveries.get());
+
+        // class files rewritten with the same contents
+        replaceStored(configurationClass, "hash=\\w+", "hash=" + newCache().hash(configurationClass));
+        replaceStored(configurationClass, "files=\\w+", "files=outdated");
+        newCache().get(configurationClass, discovery);
+        assertEquals(1, discoveries.get());
+        assertEquals(files, storedProperty(configurationClass, "files"));
+    }
+
+    @Test
+    public void shouldHashClassFilesOfScannedPackages() throws IOException {
+        MockInventoryCache cache = newCache();
+        Class<?> configurationClass = new CourseServiceModule().getComponentConfiguration();
+        assertEquals(cache.hash(configurationClass), cache.hash(configurationClass));
+        assertNotEquals(cache.hash(configurationClass),
+                cache.hash(new StudentServiceModule().getComponentConfiguration()));
+    }
+
+    private void replaceStored(Class<?> configurationClass, String regex, String replacement) throws IOException {
+        Path file = directory.resolve(configurationClass.getName() + ".properties");
+        String stored = new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1);
+        Files.write(file, stored.replaceAll(regex, replacement).getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private String storedProperty(Class<?> configurationClass, String key) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(directory.resolve(configurationClass.getName() + ".properties"))) {
+            properties.load(in);
+        }
+        return properties.getProperty(key);
+    }
+
+    private MockInventoryCache newCache() {
+        return new MockInventoryCache(directory, ClassUtils.getDefaultClassLoader());
+    }
+}
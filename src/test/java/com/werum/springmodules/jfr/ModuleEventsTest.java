@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.jfr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Import;
+
+import com.werum.example.student.service.StudentServiceModule;
+import com.werum.example.tests.mockconfigurations.CourseServiceMockConfiguration;
+import com.werum.example.tests.mockconfigurations.StudentDaoMockConfiguration;
+import com.werum.springmodules.definition.DependencyResolverStrategy.AlternativeComponentConfigurations;
+
+/**
+ * Testcase for {@link ModuleEvents}
+ */
+public class ModuleEventsTest {
+
+    @Test
+    public void shouldRecordResolutionAndBeanInitialization() throws Exception {
+        assumeTrue(ModuleEvents.isAvailable());
+
+        Path dump = Files.createTempFile("spring-modules", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.werum.springmodules.ModuleResolution");
+            recording.enable("com.werum.springmodules.DependencyResolution");
+            recording.enable("com.werum.springmodules.BeanInitialization");
+            recording.start();
+            new AnnotationConfigApplicationContext(StudentServiceWithMockedDependencies.class).close();
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        Files.delete(dump);
+
+        RecordedEvent resolution = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.werum.springmodules.ModuleResolution"))
+                .findFirst().get();
+        assertEquals("StudentServiceModule", resolution.getString("moduleName"));
+        assertEquals(3, resolution.getInt("beanCount"));
+        assertTrue(events.stream()
+                .anyMatch(event -> event.getEventType().getName().equals("com.werum.springmodules.BeanInitialization")
+                        && "studentService".equals(event.getString("beanName"))
+                        && "StudentServiceModule".equals(event.getString("moduleName"))));
+    }
+
+    @Import(StudentServiceModule.class)
+    @AlternativeComponentConfigurations({CourseServiceMockConfiguration.class, StudentDaoMockConfiguration.class})
+    static class StudentServiceWithMockedDependencies {
+
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+import org.springframework.test.context.TestPropertySource;
+
+import com.werum.example.course.dao.CourseDaoModule;
+import com.werum.springmodules.definition.ModulePersistenceRegistrar;
+import com.werum.springmodules.definition.ResolvedModules;
+import com.werum.springmodules.definition.isolated.Grade;
+import com.werum.springmodules.definition.isolated.GradeDaoModule;
+import com.werum.springmodules.definition.isolated.GradeRepository;
+import com.werum.springmodules.testsupport.ModuleTest;
+
+/**
+ * Testcase for {@link BackgroundJpaBootstrap}, the {@link GradeDaoModule} uses an entity manager factory of its own,
+ * the {@link CourseDaoModule} the one configured by Spring Boot
+ */
+@ModuleTest
+@DataJpaTest
+@Import({CourseDaoModule.class, GradeDaoModule.class})
+@ImportAutoConfiguration(SpringModulesAutoConfiguration.class)
+@TestPropertySource(properties = {"spring.modules.background-jpa-bootstrap.enabled=true",
+        "spring.modules.critical-path-report.enabled=true"})
+public class BackgroundJpaBootstrapTest {
+    @Autowired
+    private ApplicationContext context;
+    @Autowired
+    private GradeRepository gradeRepository;
+
+    @Test
+    public void shouldBootstrapEntityManagerFactoryOfModuleInBackground() {
+        String beanName = ModulePersistenceRegistrar
+                .entityManagerFactoryBeanName(ResolvedModules.get(context).getModule(GradeDaoModule.class));
+        assertNotNull(entityManagerFactoryBean(beanName).getBootstrapExecutor());
+
+        gradeRepository.deleteAll();
+        gradeRepository.save(new Grade(2.0f));
+        assertEquals(1, gradeRepository.count());
+    }
+
+    @Test
+    public void shouldReportCriticalPath() {
+        assertNotNull(context.getBean(CriticalPathReporter.class));
+    }
+
+    @Test
+    public void shouldBootstrapEntityManagerFactoryUsingSpringBeanContainerSynchronously() {
+        assertNull(entityManagerFactoryBean("entityManagerFactory").getBootstrapExecutor());
+    }
+
+    private AbstractEntityManagerFactoryBean entityManagerFactoryBean(String beanName) {
+        return context.getBean(BeanFactory.FACTORY_BEAN_PREFIX + beanName, AbstractEntityManagerFactoryBean.class);
+    }
+}
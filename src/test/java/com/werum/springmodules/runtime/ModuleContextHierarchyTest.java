@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Import;
+
+import com.werum.example.course.dao.CourseDaoModule;
+import com.werum.example.course.service.CourseService;
+import com.werum.example.course.service.CourseServiceModule;
+import com.werum.example.student.dao.StudentDaoModule;
+import com.werum.example.student.dao.StudentRepository;
+import com.werum.example.student.service.StudentService;
+import com.werum.example.student.service.StudentServiceModule;
+import com.werum.example.tests.mockconfigurations.CourseServiceMockConfiguration;
+import com.werum.example.tests.mockconfigurations.StudentDaoMockConfiguration;
+import com.werum.springmodules.definition.DependencyResolverStrategy.AlternativeComponentConfigurations;
+
+/**
+ * Testcase for {@link ModuleContextHierarchy}
+ */
+public class ModuleContextHierarchyTest {
+    private ModuleContextHierarchy testee;
+
+    @BeforeEach
+    public void startHierarchy() {
+        testee = new ModuleContextHierarchy(StudentServiceWithMockedDependencies.class, null);
+        testee.start();
+    }
+
+    @AfterEach
+    public void closeHierarchy() {
+        testee.close();
+    }
+
+    @Test
+    public void shouldStartEachModuleInItsOwnContext() {
+        ApplicationContext studentService = testee.getContext(StudentServiceModule.class);
+        ApplicationContext studentDao = testee.getContext(StudentDaoModule.class);
+
+        assertNotNull(studentService.getBean(StudentService.class));
+        assertSame(studentDao.getBean(StudentRepository.class), studentService.getBean(StudentRepository.class));
+        assertSame(testee.getContext(CourseServiceModule.class).getBean(CourseService.class),
+                studentService.getBean(CourseService.class));
+        assertNull(testee.getContext(CourseDaoModule.class));
+    }
+
+    @Test
+    public void shouldNotSeeBeansOfDependentModules() {
+        assertFalse(testee.getContext(StudentDaoModule.class).containsBean("studentService"));
+        assertFalse(testee.getContext(StudentDaoModule.class).containsBean("courseService"));
+        assertTrue(testee.getContext(StudentServiceModule.class).containsBean("studentService"));
+    }
+
+    @Test
+    public void shouldRestartModuleAndDependentModules() {
+        ApplicationContext studentService = testee.getContext(StudentServiceModule.class);
+        ApplicationContext studentDao = testee.getContext(StudentDaoModule.class);
+        ApplicationContext courseService = testee.getContext(CourseServiceModule.class);
+
+        testee.restart(StudentDaoModule.class);
+
+        assertNotSame(studentDao, testee.getContext(StudentDaoModule.class));
+        assertNotSame(studentService, testee.getContext(StudentServiceModule.class));
+        assertSame(courseService, testee.getContext(CourseServiceModule.class));
+        assertSame(testee.getContext(StudentDaoModule.class).getBean(StudentRepository.class),
+                testee.getContext(StudentServiceModule.class).getBean(StudentRepository.class));
+    }
+
+    @Test
+    public void shouldRefreshContextsWithContextClassLoaderOfCaller() throws IOException {
+        Thread thread = Thread.currentThread();
+        ClassLoader original = thread.getContextClassLoader();
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[0], original)) {
+            thread.setContextClassLoader(classLoader);
+            try (ModuleContextHierarchy hierarchy = new ModuleContextHierarchy(
+                    StudentServiceWithMockedDependencies.class, null)) {
+                hierarchy.start();
+
+                assertSame(classLoader, hierarchy.getContext(StudentServiceModule.class).getClassLoader());
+            } finally {
+                thread.setContextClassLoader(original);
+            }
+        }
+    }
+
+    @Import(StudentServiceModule.class)
+    @AlternativeComponentConfigurations({CourseServiceMockConfiguration.class, StudentDaoMockConfiguration.class})
+    static class StudentServiceWithMockedDependencies {
+
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.werum.example.course.dao.Course;
+import com.werum.example.course.dao.CourseRepository;
+import com.werum.example.course.service.CourseService;
+import com.werum.example.course.service.CourseServiceModule;
+import com.werum.springmodules.testsupport.ModuleTest;
+
+/**
+ * Testcase for {@link ReadReplicaRoutingDataSource}. The replica is a second H2 database, which is synchronized with
+ * the primary before each test method and then gets a course of its own, so reads served by it can be told apart.
+ */
+@ModuleTest
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CourseServiceModule.class, ReadReplicaRoutingDataSourceTest.LagProbeConfiguration.class})
+@ImportAutoConfiguration(SpringModulesAutoConfiguration.class)
+@TestPropertySource(properties = {"spring.modules.read-replica.url=" + ReadReplicaRoutingDataSourceTest.REPLICA_URL,
+        "spring.modules.read-replica.max-lag=10s", "spring.modules.read-replica.check-interval=0s"})
+public class ReadReplicaRoutingDataSourceTest {
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+
+    private static final AtomicReference<Duration> LAG = new AtomicReference<>();
+
+    @Autowired
+    private CourseService courseService;
+    @Autowired
+    private CourseRepository courseRepository;
+    @Autowired
+    private DataSource dataSource;
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL));
+
+    @BeforeEach
+    public void setup() {
+        courseRepository.deleteAll();
+        courseRepository.save(new Course("Primary Course", 2.0f));
+
+        replica.execute("DROP ALL OBJECTS");
+        new JdbcTemplate(dataSource).queryForList("SCRIPT", String.class).forEach(replica::execute);
+        replica.update("insert into course (id, name, nc) values (4711, 'Replica Course', 1.0)");
+        LAG.set(Duration.ZERO);
+    }
+
+    @Test
+    public void shouldReadFromReplicaInReadOnlyTransactionsOfSelectedModule() {
+        assertEquals(Arrays.asList("Primary Course", "Replica Course"), names(courseService.getAll()));
+    }
+
+    @Test
+    public void shouldReadFromPrimaryInTransactionsOfOtherClasses() {
+        assertEquals(Arrays.asList("Primary Course"), names(courseRepository.findAll()));
+    }
+
+    @Test
+    public void shouldWriteToPrimary() {
+        courseRepository.save(new Course("New Course", 1.5f));
+
+        assertEquals(1, count(new JdbcTemplate(dataSource)));
+        assertEquals(0, count(replica));
+    }
+
+    @Test
+    public void shouldReadFromPrimaryIfReplicaLagsTooMuch() {
+        LAG.set(Duration.ofMinutes(1));
+
+        assertEquals(Arrays.asList("Primary Course"), names(courseService.getAll()));
+    }
+
+    @Test
+    public void shouldReadFromPrimaryIfReplicaIsUnavailable() {
+        LAG.set(null);
+
+        assertEquals(Arrays.asList("Primary Course"), names(courseService.getAll()));
+    }
+
+    private static List<String> names(Iterable<Course> courses) {
+        return StreamSupport.stream(courses.spliterator(), false).map(Course::getName).sorted()
+                .collect(Collectors.toList());
+    }
+
+    private static int count(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("select count(*) from course where name = 'New Course'", Integer.class);
+    }
+
+    @Configuration
+    static class LagProbeConfiguration {
+        @Bean
+        public ReplicaLagProbe replicaLagProbe() {
+            return replica -> {
+                if (LAG.get() == null) {
+                    throw new SQLException("replica down");
+                }
+                return LAG.get();
+            };
+        }
+    }
+}
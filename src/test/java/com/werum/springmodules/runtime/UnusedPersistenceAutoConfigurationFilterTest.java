@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.AnnotatedGenericBeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.env.MockEnvironment;
+
+import com.werum.springmodules.definition.ResolvedModules;
+
+/**
+ * Testcase for {@link UnusedPersistenceAutoConfigurationFilter}
+ */
+public class UnusedPersistenceAutoConfigurationFilterTest {
+    private static final String[] AUTO_CONFIGURATIONS = {
+            "org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration",
+            "org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration"};
+
+    private DefaultListableBeanFactory beanFactory;
+
+    private MockEnvironment environment;
+
+    private UnusedPersistenceAutoConfigurationFilter filter;
+
+    @BeforeEach
+    public void setup() {
+        beanFactory = new DefaultListableBeanFactory();
+        ResolvedModules.register(beanFactory);
+        environment = new MockEnvironment();
+        filter = new UnusedPersistenceAutoConfigurationFilter();
+        filter.setBeanFactory(beanFactory);
+        filter.setEnvironment(environment);
+    }
+
+    @Test
+    public void shouldBeDisabledByDefault() {
+        assertArrayEquals(new boolean[] {true, true}, filter.match(AUTO_CONFIGURATIONS, null));
+    }
+
+    @Test
+    public void shouldExcludePersistenceIfEnabled() {
+        environment.setProperty(UnusedPersistenceAutoConfigurationFilter.ENABLED_PROPERTY, "true");
+
+        assertArrayEquals(new boolean[] {false, true}, filter.match(AUTO_CONFIGURATIONS, null));
+    }
+
+    @Test
+    public void shouldKeepPersistenceForDataSourceOutsideOfModules() {
+        environment.setProperty(UnusedPersistenceAutoConfigurationFilter.ENABLED_PROPERTY, "true");
+        beanFactory.registerBeanDefinition("dataSource", new RootBeanDefinition(DriverManagerDataSource.class));
+
+        assertArrayEquals(new boolean[] {true, true}, filter.match(AUTO_CONFIGURATIONS, null));
+    }
+
+    @Test
+    public void shouldKeepPersistenceForConfigurationDeclaringDataSource() {
+        environment.setProperty(UnusedPersistenceAutoConfigurationFilter.ENABLED_PROPERTY, "true");
+        beanFactory.registerBeanDefinition("dataSourceConfiguration",
+                new AnnotatedGenericBeanDefinition(DataSourceConfiguration.class));
+
+        assertArrayEquals(new boolean[] {true, true}, filter.match(AUTO_CONFIGURATIONS, null));
+    }
+
+    @Configuration
+    static class DataSourceConfiguration {
+        @Bean
+        public DataSource dataSource() {
+            return new DriverManagerDataSource();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.testsupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+/**
+ * Testcase for {@link DatabaseSnapshot}
+ */
+public class DatabaseSnapshotTest {
+    private final EmbeddedDatabase database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true).build();
+
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+
+    @AfterEach
+    public void shutdown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void shouldRestoreSchemaAndData() {
+        jdbcTemplate.execute("CREATE TABLE course (id BIGINT PRIMARY KEY, name VARCHAR(255))");
+        jdbcTemplate.execute("CREATE SEQUENCE course_seq");
+        jdbcTemplate.update("INSERT INTO course VALUES (NEXT VALUE FOR course_seq, 'TestCourse')");
+        DatabaseSnapshot snapshot = DatabaseSnapshot.take(database);
+
+        jdbcTemplate.update("INSERT INTO course VALUES (NEXT VALUE FOR course_seq, 'OtherCourse')");
+        jdbcTemplate.execute("CREATE TABLE student (id BIGINT PRIMARY KEY)");
+        snapshot.restore(database);
+
+        assertEquals(Integer.valueOf(1), jdbcTemplate.queryForObject("SELECT COUNT(*) FROM course", Integer.class));
+        assertEquals(Long.valueOf(2), jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR course_seq", Long.class));
+        assertEquals(Integer.valueOf(0), jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = 'STUDENT'", Integer.class));
+    }
+}
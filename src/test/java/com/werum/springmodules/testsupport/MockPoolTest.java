@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.testsupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+
+import com.werum.example.student.dao.StudentRepository;
+
+/**
+ * Testcase for {@link MockPool}
+ */
+public class MockPoolTest {
+    private final MockPool pool = new MockPool();
+
+    @Test
+    public void shouldHandOutReleasedMocksAgain() {
+        StudentRepository first = pool.acquire(StudentRepository.class);
+        StudentRepository second = pool.acquire(StudentRepository.class);
+        assertNotSame(first, second);
+
+        when(first.count()).thenReturn(3L);
+        first.count();
+        pool.release(StudentRepository.class, first);
+
+        StudentRepository reused = pool.acquire(StudentRepository.class);
+        assertSame(first, reused);
+        verifyZeroInteractions(reused);
+        assertEquals(0L, reused.count());
+        assertEquals(1, pool.getHits());
+        assertEquals(2, pool.getMisses());
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.testsupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.werum.example.course.service.CourseService;
+import com.werum.example.student.dao.StudentRepository;
+
+/**
+ * Testcase for {@link MockitoFactoryBean}
+ */
+public class MockitoFactoryBeanTest {
+
+    @Test
+    public void shouldCreateMockOnFirstRequest() {
+        MockitoFactoryBean<CourseService> factoryBean = new MockitoFactoryBean<>(CourseService.class);
+        assertFalse(factoryBean.isMockCreated());
+
+        CourseService mock = factoryBean.getObject();
+        assertTrue(Mockito.mockingDetails(mock).isMock());
+        assertSame(mock, factoryBean.getObject());
+    }
+
+    @Test
+    public void shouldCreateMockBehindPlaceholderOnFirstCall() {
+        MockitoFactoryBean<StudentRepository> factoryBean = new MockitoFactoryBean<>(StudentRepository.class, true);
+        StudentRepository placeholder = factoryBean.getObject();
+        placeholder.toString();
+        assertFalse(factoryBean.isMockCreated());
+
+        when(placeholder.count()).thenReturn(3L);
+        assertTrue(factoryBean.isMockCreated());
+        assertEquals(3L, placeholder.count());
+        verify(MockitoFactoryBean.mockOf(placeholder)).count();
+    }
+
+    @Test
+    public void shouldRejectPlaceholderForClass() {
+        assertThrows(IllegalArgumentException.class, () -> new MockitoFactoryBean<>(CourseService.class, true));
+    }
+}
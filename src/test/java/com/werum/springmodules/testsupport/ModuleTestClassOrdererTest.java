@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.testsupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.ClassDescriptor;
+import org.junit.jupiter.api.ClassOrdererContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.werum.example.course.service.CourseServiceModule;
+import com.werum.example.student.service.StudentServiceModule;
+import com.werum.example.tests.mockconfigurations.CourseServiceMockConfiguration;
+import com.werum.example.tests.mockconfigurations.StudentDaoMockConfiguration;
+import com.werum.springmodules.definition.DependencyResolverStrategy.AlternativeComponentConfigurations;
+import com.werum.springmodules.testsupport.ModuleTest.Reset;
+
+/**
+ * Testcase for {@link ModuleTestClassOrderer}
+ */
+public class ModuleTestClassOrdererTest {
+
+    @Test
+    public void shouldGroupClassesUsingSameContext() {
+        List<ClassDescriptor> classDescriptors = new ArrayList<>();
+        for (Class<?> testClass : Arrays.asList(DStudentServiceOnlyResettingDatabase.class,
+                CStudentServiceAndCourseService.class, BStudentServiceWithDao.class, AStudentServiceOnly.class)) {
+            ClassDescriptor classDescriptor = mock(ClassDescriptor.class);
+            when(classDescriptor.getTestClass()).thenAnswer(invocation -> testClass);
+            classDescriptors.add(classDescriptor);
+        }
+        ClassOrdererContext context = mock(ClassOrdererContext.class);
+        when(context.getClassDescriptors()).thenAnswer(invocation -> classDescriptors);
+
+        new ModuleTestClassOrderer().orderClasses(context);
+
+        assertEquals(
+                Arrays.asList(AStudentServiceOnly.class, CStudentServiceAndCourseService.class,
+                        DStudentServiceOnlyResettingDatabase.class, BStudentServiceWithDao.class),
+                classDescriptors.stream().map(ClassDescriptor::getTestClass).collect(Collectors.toList()));
+        assertFalse(ModuleTestClassOrderer.isLastClassOfContext(AStudentServiceOnly.class));
+        assertFalse(ModuleTestClassOrderer.isLastClassOfContext(CStudentServiceAndCourseService.class));
+        assertTrue(ModuleTestClassOrderer.isLastClassOfContext(DStudentServiceOnlyResettingDatabase.class));
+        assertTrue(ModuleTestClassOrderer.isLastClassOfContext(BStudentServiceWithDao.class));
+    }
+
+    @ModuleTest
+    @Import(StudentServiceModule.class)
+    @AlternativeComponentConfigurations({CourseServiceMockConfiguration.class, StudentDaoMockConfiguration.class})
+    static class AStudentServiceOnly {
+
+    }
+
+    @ModuleTest
+    @Import(StudentServiceModule.class)
+    @AlternativeComponentConfigurations(CourseServiceMockConfiguration.class)
+    static class BStudentServiceWithDao {
+
+    }
+
+    @ModuleTest
+    @Import({StudentServiceModule.class, CourseServiceModule.class})
+    @AlternativeComponentConfigurations({CourseServiceMockConfiguration.class, StudentDaoMockConfiguration.class})
+    static class CStudentServiceAndCourseService {
+
+    }
+
+    @ModuleTest(reset = Reset.DATABASE)
+    @Import(StudentServiceModule.class)
+    @AlternativeComponentConfigurations({CourseServiceMockConfiguration.class, StudentDaoMockConfiguration.class})
+    @Transactional
+    static class DStudentServiceOnlyResettingDatabase {
+
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.testsupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.test.context.MergedContextConfiguration;
+import org.springframework.test.context.TestContextBootstrapper;
+import org.springframework.test.context.cache.DefaultCacheAwareContextLoaderDelegate;
+import org.springframework.test.context.support.DefaultBootstrapContext;
+import org.springframework.test.context.support.DefaultTestContextBootstrapper;
+
+import com.werum.example.course.service.CourseServiceModule;
+import com.werum.example.student.service.StudentServiceModule;
+import com.werum.example.tests.mockconfigurations.CourseServiceMockConfiguration;
+import com.werum.example.tests.mockconfigurations.StudentDaoMockConfiguration;
+import com.werum.springmodules.definition.DependencyResolverStrategy.AlternativeComponentConfigurations;
+
+/**
+ * Testcase for the context cache of {@link ModuleTest}s
+ */
+public class ModuleTestContextCacheTest {
+
+    @Test
+    public void shouldShareContextOfSameConfigurations() {
+        MergedContextConfiguration studentService = mergedConfiguration(StudentServiceOnly.class);
+
+        assertEquals(studentService, mergedConfiguration(StudentServiceAndCourseService.class));
+        assertNotEquals(studentService, mergedConfiguration(StudentServiceWithDao.class));
+    }
+
+    @Test
+    public void shouldCloseLeastRecentlyUsedContextsExceedingFootprint() {
+        ModuleTestContextCache cache = new ModuleTestContextCache(4);
+        GenericApplicationContext first = context(2);
+        GenericApplicationContext second = context(2);
+        GenericApplicationContext third = context(2);
+
+        cache.put(key(String.class), first);
+        cache.put(key(Integer.class), second);
+        cache.touch(first);
+        cache.put(key(Long.class), third);
+        cache.evict();
+
+        assertEquals(2, cache.size());
+        assertTrue(first.isActive());
+        assertFalse(second.isActive());
+        assertTrue(third.isActive());
+
+        third.close();
+        cache.evict();
+        assertEquals(1, cache.size());
+        first.close();
+    }
+
+    @Test
+    public void shouldKeepContextsAcquiredByTestClasses() {
+        ModuleTestContextCache cache = new ModuleTestContextCache(2);
+        GenericApplicationContext first = context(2);
+        GenericApplicationContext second = context(2);
+
+        cache.put(key(String.class), first);
+        assertTrue(cache.acquire(first));
+        assertTrue(cache.acquire(first));
+        cache.put(key(Integer.class), second);
+        cache.evict();
+        assertTrue(first.isActive());
+
+        assertFalse(cache.release(first, true));
+        assertTrue(cache.release(first, true));
+        assertFalse(cache.acquire(first));
+
+        first.close();
+        cache.evict();
+        assertEquals(1, cache.size());
+        second.close();
+    }
+
+    @Test
+    public void shouldLoadContextsWithoutBannerAndUnusedPersistence() {
+        String[] inlinedProperties = new ModuleTestContextLoader()
+                .getInlinedProperties(mergedConfiguration(StudentServiceOnly.class));
+
+        assertEquals(ModuleTestContextLoader.BANNER_OFF, inlinedProperties[0]);
+        assertEquals(ModuleTestContextLoader.EXCLUDE_UNUSED_PERSISTENCE, inlinedProperties[1]);
+        assertEquals(ModuleTestContextLoader.IN_MEMORY_FALLBACK, inlinedProperties[2]);
+    }
+
+    private static MergedContextConfiguration mergedConfiguration(Class<?> testClass) {
+        TestContextBootstrapper bootstrapper = new DefaultTestContextBootstrapper();
+        bootstrapper.setBootstrapContext(
+                new DefaultBootstrapContext(testClass, new DefaultCacheAwareContextLoaderDelegate()));
+        return bootstrapper.buildMergedContextConfiguration();
+    }
+
+    private static MergedContextConfiguration key(Class<?> configuration) {
+        return new MergedContextConfiguration(ModuleTestContextCacheTest.class, new String[0],
+                new Class<?>[] {configuration}, new String[0], new ModuleTestContextLoader());
+    }
+
+    private static GenericApplicationContext context(int beanCount) {
+        GenericApplicationContext ret = new GenericApplicationContext();
+        for (int i = 0; i < beanCount; i++) {
+            ret.registerBean("bean" + i, Object.class);
+        }
+        ret.refresh();
+        return ret;
+    }
+
+    @ModuleTest
+    @Import(StudentServiceModule.class)
+    @AlternativeComponentConfigurations({CourseServiceMockConfiguration.class, StudentDaoMockConfiguration.class})
+    static class StudentServiceOnly {
+
+    }
+
+    @ModuleTest
+    @Import({StudentServiceModule.class, CourseServiceModule.class})
+    @AlternativeComponentConfigurations({CourseServiceMockConfiguration.class, StudentDaoMockConfiguration.class})
+    static class StudentServiceAndCourseService {
+
+    }
+
+    @ModuleTest
+    @Import(StudentServiceModule.class)
+    @AlternativeComponentConfigurations(CourseServiceMockConfiguration.class)
+    static class StudentServiceWithDao {
+
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.werum.springmodules.testsupport;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+
+import com.werum.example.course.dao.Course;
+import com.werum.example.course.service.CourseService;
+import com.werum.example.student.dao.StudentRepository;
+import com.werum.example.student.service.StudentServiceModule;
+import com.werum.example.tests.mockconfigurations.CourseServiceMockConfiguration;
+import com.werum.example.tests.mockconfigurations.StudentDaoMockConfiguration;
+import com.werum.springmodules.definition.DependencyResolverStrategy.AlternativeComponentConfigurations;
+
+/**
+ * Testcase for {@link ModuleTestResetListener}
+ */
+@ModuleTest
+@Import(StudentServiceModule.class)
+@AlternativeComponentConfigurations({CourseServiceMockConfiguration.class, StudentDaoMockConfiguration.class})
+@TestMethodOrder(OrderAnnotation.class)
+public class ModuleTestResetListenerTest {
+    @Autowired
+    private CourseService courseServiceMock;
+    @Autowired
+    private StudentRepository studentRepositoryMock;
+
+    @Test
+    @Order(1)
+    public void shouldUseMocks() {
+        when(courseServiceMock.getCourse("TestCourse")).thenReturn(new Course("TestCourse", 2.0f));
+        studentRepositoryMock.count();
+
+        assertNotNull(courseServiceMock.getCourse("TestCourse"));
+    }
+
+    @Test
+    @Order(2)
+    public void shouldResetMocksOfPreviousTest() {
+        verifyZeroInteractions(studentRepositoryMock);
+        assertNull(courseServiceMock.getCourse("TestCourse"));
+    }
+}